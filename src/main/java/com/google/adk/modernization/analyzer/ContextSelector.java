@@ -0,0 +1,249 @@
+package com.google.adk.modernization.analyzer;
+
+import com.google.adk.modernization.analyzer.CodeAnalyzer.ClassInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyInfo;
+import com.google.adk.modernization.graph.Centrality;
+import com.google.adk.modernization.graph.ClassGraph;
+import com.google.adk.modernization.graph.DependencyGraphs;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Chooses which classes, and which of their methods, go into a prompt when
+ * not all of them fit into the token budget.
+ *
+ * Classes are ranked by a blend of PageRank, sampled betweenness and
+ * fan-in/fan-out on their dependency graph. The budget is filled breadth
+ * first: the highest ranked classes are included without methods, then
+ * methods are added class by class, those mentioning other classes first.
+ *
+ * PageRank is warm-started from the ranks of earlier selections, so
+ * ranking the many overlapping class sets of one analysis stays cheap. Only
+ * the ranks of the most recently ranked classes are kept.
+ */
+@Component
+public class ContextSelector {
+    private static final int BETWEENNESS_SAMPLES = 64;
+    private static final double PAGE_RANK_SHARE = 0.5;
+    private static final double BETWEENNESS_SHARE = 0.3;
+    private static final double DEGREE_SHARE = 0.2;
+    // Characters of JSON around each class and each list entry
+    private static final int CLASS_OVERHEAD = 80;
+    private static final int ENTRY_OVERHEAD = 3;
+    static final int DEFAULT_WARM_RANKS = 4096;
+
+    private final int tokenBudget;
+    private final Map<String, Double> lastRanks;
+
+    /**
+     * A ranked selection of classes.
+     *
+     * @param classes Selected classes, highest ranked first, possibly with fewer methods
+     * @param omitted Number of classes left out entirely
+     * @param trimmedMethods Number of methods left out of the selected classes
+     */
+    public record Selection(
+        List<ClassInfo> classes,
+        int omitted,
+        int trimmedMethods
+    ) {}
+
+    /**
+     * @param tokenBudget Approximate number of prompt tokens to spend on class details
+     */
+    @Autowired
+    public ContextSelector(@Value("${agent.prompts.token-budget:6000}") int tokenBudget) {
+        this(tokenBudget, DEFAULT_WARM_RANKS);
+    }
+
+    /**
+     * @param warmRanks Maximum number of class ranks kept to warm-start PageRank
+     */
+    ContextSelector(int tokenBudget, int warmRanks) {
+        this.tokenBudget = tokenBudget;
+        this.lastRanks = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Double> eldest) {
+                return size() > warmRanks;
+            }
+        });
+    }
+
+    public int tokenBudget() {
+        return tokenBudget;
+    }
+
+    /**
+     * Selects classes within the configured token budget.
+     */
+    public Selection select(List<ClassInfo> classes, List<DependencyInfo> dependencies) {
+        return select(classes, dependencies, tokenBudget);
+    }
+
+    /**
+     * Selects classes within the given token budget.
+     *
+     * @param classes Candidate classes
+     * @param dependencies Dependencies; only those between candidates count
+     * @param budget Approximate number of tokens the selected classes may take
+     * @return The selection
+     */
+    public Selection select(List<ClassInfo> classes, List<DependencyInfo> dependencies, int budget) {
+        long budgetChars = 4L * budget;
+        long fullCost = classes.stream().mapToLong(ContextSelector::cost).sum();
+        if (fullCost <= budgetChars) {
+            return new Selection(classes, 0, 0);
+        }
+
+        Map<String, Double> scores = rank(classes, dependencies);
+        List<ClassInfo> ranked = new ArrayList<>(classes);
+        ranked.sort(Comparator.<ClassInfo>comparingDouble(c -> scores.getOrDefault(c.name(), 0.0)).reversed()
+            .thenComparing(ClassInfo::name));
+
+        // First pass: as many classes as fit, without methods
+        long remaining = budgetChars;
+        List<ClassInfo> selected = new ArrayList<>();
+        for (ClassInfo classInfo : ranked) {
+            long skeleton = cost(withMethods(classInfo, List.of()));
+            if (skeleton > remaining) {
+                break;
+            }
+            selected.add(classInfo);
+            remaining -= skeleton;
+        }
+
+        // Second pass: methods in rank order while they fit
+        Set<String> known = new HashSet<>();
+        classes.forEach(c -> known.add(c.name()));
+        List<ClassInfo> result = new ArrayList<>(selected.size());
+        int trimmed = 0;
+        for (ClassInfo classInfo : selected) {
+            List<String> methods = new ArrayList<>();
+            for (String method : rankMethods(classInfo, known)) {
+                long methodCost = method.length() + ENTRY_OVERHEAD;
+                if (methodCost <= remaining) {
+                    methods.add(method);
+                    remaining -= methodCost;
+                }
+            }
+            trimmed += classInfo.methods().size() - methods.size();
+            result.add(methods.size() == classInfo.methods().size() ? classInfo : withMethods(classInfo, methods));
+        }
+        return new Selection(result, classes.size() - selected.size(), trimmed);
+    }
+
+    /**
+     * @return Number of class ranks currently kept for warm starts
+     */
+    int warmRanks() {
+        return lastRanks.size();
+    }
+
+    /**
+     * Scores every class between 0 and 1; higher is more informative.
+     */
+    Map<String, Double> rank(List<ClassInfo> classes, List<DependencyInfo> dependencies) {
+        ClassGraph graph = DependencyGraphs.build(classes, dependencies);
+        int n = graph.size();
+
+        double[] initial = new double[n];
+        for (int v = 0; v < n; v++) {
+            initial[v] = lastRanks.getOrDefault(graph.name(v), 1.0 / n);
+        }
+        double[] pageRank = Centrality.pageRank(graph, initial);
+        double[] betweenness = Centrality.betweenness(graph, BETWEENNESS_SAMPLES);
+        double[] fanIn = Centrality.fanIn(graph);
+        double[] fanOut = Centrality.fanOut(graph);
+        for (int v = 0; v < n; v++) {
+            lastRanks.put(graph.name(v), pageRank[v]);
+        }
+
+        double maxPageRank = max(pageRank);
+        double maxBetweenness = max(betweenness);
+        double[] degree = new double[n];
+        for (int v = 0; v < n; v++) {
+            degree[v] = fanIn[v] + fanOut[v];
+        }
+        double maxDegree = max(degree);
+
+        Map<String, Double> scores = new HashMap<>(n * 2);
+        for (int v = 0; v < n; v++) {
+            scores.put(graph.name(v),
+                PAGE_RANK_SHARE * normalize(pageRank[v], maxPageRank)
+                    + BETWEENNESS_SHARE * normalize(betweenness[v], maxBetweenness)
+                    + DEGREE_SHARE * normalize(degree[v], maxDegree));
+        }
+        return scores;
+    }
+
+    /**
+     * Orders methods so that those naming another known class (findOwner,
+     * addPet) come first and plain accessors come last.
+     */
+    private List<String> rankMethods(ClassInfo classInfo, Set<String> known) {
+        List<String> mentions = new ArrayList<>();
+        List<String> others = new ArrayList<>();
+        List<String> accessors = new ArrayList<>();
+        for (String method : classInfo.methods()) {
+            if (mentionsKnownClass(method, classInfo.name(), known)) {
+                mentions.add(method);
+            } else if (method.matches("(get|set|is)[A-Z].*")) {
+                accessors.add(method);
+            } else {
+                others.add(method);
+            }
+        }
+        mentions.addAll(others);
+        mentions.addAll(accessors);
+        return mentions;
+    }
+
+    private boolean mentionsKnownClass(String method, String owner, Set<String> known) {
+        // Split camel case: findOwnerById -> Owner, By, Id
+        for (String word : method.split("(?=[A-Z])")) {
+            if (!word.isEmpty() && Character.isUpperCase(word.charAt(0))
+                    && !word.equals(owner) && known.contains(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ClassInfo withMethods(ClassInfo classInfo, List<String> methods) {
+        return new ClassInfo(
+            classInfo.name(),
+            classInfo.packageName(),
+            methods,
+            classInfo.fields(),
+            classInfo.annotations()
+        );
+    }
+
+    /**
+     * Approximate size of a class once serialized into a prompt, in characters.
+     */
+    static long cost(ClassInfo classInfo) {
+        long cost = CLASS_OVERHEAD + classInfo.name().length() + classInfo.packageName().length();
+        for (List<String> entries : List.of(classInfo.methods(), classInfo.fields(), classInfo.annotations())) {
+            for (String entry : entries) {
+                cost += entry.length() + ENTRY_OVERHEAD;
+            }
+        }
+        return cost;
+    }
+
+    private static double max(double[] values) {
+        double max = 0;
+        for (double value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    private static double normalize(double value, double max) {
+        return max > 0 ? value / max : 0;
+    }
+}
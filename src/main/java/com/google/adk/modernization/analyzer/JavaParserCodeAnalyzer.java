@@ -5,6 +5,7 @@ import com.github.javaparser.ParseResult;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
@@ -15,12 +16,19 @@ import java.util.List;
 @Component
 public class JavaParserCodeAnalyzer implements CodeAnalyzer {
     private final JavaParser javaParser;
+    private final SourceCache sourceCache;
     private final List<PackageInfo> packages;
     private final List<ClassInfo> classes;
     private final List<DependencyInfo> dependencies;
 
     public JavaParserCodeAnalyzer() {
+        this(new SourceCache());
+    }
+
+    @Autowired
+    public JavaParserCodeAnalyzer(SourceCache sourceCache) {
         this.javaParser = new JavaParser();
+        this.sourceCache = sourceCache;
         this.packages = new ArrayList<>();
         this.classes = new ArrayList<>();
         this.dependencies = new ArrayList<>();
@@ -59,7 +67,7 @@ public class JavaParserCodeAnalyzer implements CodeAnalyzer {
 
     private void processJavaFile(File file) {
         try {
-            ParseResult<CompilationUnit> parseResult = javaParser.parse(file);
+            ParseResult<CompilationUnit> parseResult = javaParser.parse(sourceCache.read(file.toPath()));
             parseResult.getResult().ifPresent(cu -> 
                 cu.accept(new ClassVisitor(), null)
             );
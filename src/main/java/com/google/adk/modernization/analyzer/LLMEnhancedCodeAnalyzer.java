@@ -18,16 +18,27 @@ import java.util.stream.Collectors;
 @Component
 public class LLMEnhancedCodeAnalyzer implements CodeAnalyzer {
     private final JavaParser javaParser;
+    private final SourceCache sourceCache;
     private final LLMClient llmClient;
     private final PromptManager promptManager;
+    private final StructuralFingerprinter fingerprinter;
+    private final ContextSelector selector;
     private final List<PackageInfo> packages;
     private final List<ClassInfo> classes;
     private final List<DependencyInfo> dependencies;
 
-    public LLMEnhancedCodeAnalyzer(LLMClient llmClient, PromptManager promptManager) {
+    public LLMEnhancedCodeAnalyzer(
+            LLMClient llmClient,
+            PromptManager promptManager,
+            StructuralFingerprinter fingerprinter,
+            ContextSelector selector,
+            SourceCache sourceCache) {
         this.javaParser = new JavaParser();
+        this.sourceCache = sourceCache;
         this.llmClient = llmClient;
         this.promptManager = promptManager;
+        this.fingerprinter = fingerprinter;
+        this.selector = selector;
         this.packages = new ArrayList<>();
         this.classes = new ArrayList<>();
         this.dependencies = new ArrayList<>();
@@ -72,7 +83,7 @@ public class LLMEnhancedCodeAnalyzer implements CodeAnalyzer {
 
     private void processJavaFile(File file) {
         try {
-            ParseResult<CompilationUnit> parseResult = javaParser.parse(file);
+            ParseResult<CompilationUnit> parseResult = javaParser.parse(sourceCache.read(file.toPath()));
             parseResult.getResult().ifPresent(cu -> 
                 cu.accept(new ClassVisitor(), null)
             );
@@ -92,7 +103,7 @@ public class LLMEnhancedCodeAnalyzer implements CodeAnalyzer {
             Map.of("packages", packageStructure));
 
         try {
-            String response = llmClient.complete(prompt, Map.of()).get();
+            String response = llmClient.complete(prompt, Map.of(LLMClient.PROMPT_ID, "analyze-package-structure")).get();
             // Parse LLM response and update package information
             // This would typically involve parsing JSON response and updating package metadata
         } catch (Exception e) {
@@ -110,8 +121,15 @@ public class LLMEnhancedCodeAnalyzer implements CodeAnalyzer {
             String packageName = entry.getKey();
             List<ClassInfo> packageClassList = entry.getValue();
 
+            // Only one representative of structurally identical classes is needed
+            List<ClassInfo> representatives = fingerprinter.group(packageClassList, dependencies).stream()
+                .map(StructuralFingerprinter.ClassGroup::representative)
+                .toList();
+            // Large packages send their most central classes only
+            representatives = selector.select(representatives, dependencies).classes();
+
             // Convert classes to string representation for LLM
-            String classesString = packageClassList.stream()
+            String classesString = representatives.stream()
                 .map(c -> String.format("class %s {\n  %s\n}",
                     c.name(),
                     String.join("\n  ", c.methods())))
@@ -122,7 +140,7 @@ public class LLMEnhancedCodeAnalyzer implements CodeAnalyzer {
                 Map.of("classes", classesString));
 
             try {
-                String response = llmClient.complete(prompt, Map.of()).get();
+                String response = llmClient.complete(prompt, Map.of(LLMClient.PROMPT_ID, "identify-aggregates")).get();
                 // Parse LLM response and update dependency information
                 // This would typically involve parsing JSON response and adding semantic dependencies
             } catch (Exception e) {
@@ -0,0 +1,220 @@
+package com.google.adk.modernization.analyzer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of source file contents, shared by the analyzers, the
+ * source index and the refactoring engine across all candidates, so each
+ * monolith file is read from disk once per run instead of once per stage
+ * and candidate.
+ *
+ * Files at or above the mapping threshold are memory-mapped, smaller ones
+ * are read into the heap in one call. Contents are kept as bytes and decoded
+ * to text on first use; the decoded text of small files is kept as well.
+ * Each lookup costs one stat call: an entry whose modification time or size
+ * changed is read again. The least recently used entries are evicted once
+ * the cached bytes exceed the configured bound.
+ */
+@Component
+public class SourceCache {
+    static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+    static final int DEFAULT_MAP_THRESHOLD = 64 * 1024;
+
+    private final long maxBytes;
+    private final int mapThreshold;
+    private final Map<Path, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long cachedBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bytesRead;
+
+    /**
+     * Cached content of one file.
+     */
+    private static final class Entry {
+        final FileTime modified;
+        final long size;
+        final ByteBuffer bytes;
+        volatile String text;
+
+        Entry(FileTime modified, long size, ByteBuffer bytes) {
+            this.modified = modified;
+            this.size = size;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Heap footprint counted against the bound: the bytes, and the text once decoded.
+         */
+        long weight() {
+            String decoded = text;
+            return size + (decoded == null ? 0 : decoded.length());
+        }
+    }
+
+    public SourceCache() {
+        this(new SimpleMeterRegistry(), DEFAULT_MAX_BYTES, DEFAULT_MAP_THRESHOLD);
+    }
+
+    /**
+     * @param maxBytes Bound on the cached bytes, decoded text included
+     * @param mapThreshold Size from which files are memory-mapped instead of read
+     */
+    @Autowired
+    public SourceCache(
+            MeterRegistry registry,
+            @Value("${agent.source-cache.max-bytes:268435456}") long maxBytes,
+            @Value("${agent.source-cache.map-threshold:65536}") int mapThreshold) {
+        this.maxBytes = maxBytes;
+        this.mapThreshold = mapThreshold;
+        this.hits = Counter.builder("source.cache")
+            .tag("result", "hit")
+            .description("Source file reads served from the cache")
+            .register(registry);
+        this.misses = Counter.builder("source.cache")
+            .tag("result", "miss")
+            .description("Source file reads that went to disk")
+            .register(registry);
+        this.bytesRead = Counter.builder("source.cache.bytes.read")
+            .baseUnit("bytes")
+            .description("Bytes of source files read from disk")
+            .register(registry);
+        Gauge.builder("source.cache.bytes", this, SourceCache::cachedBytes)
+            .baseUnit("bytes")
+            .description("Bytes held by the source cache")
+            .register(registry);
+    }
+
+    /**
+     * Returns the content of a file as UTF-8 text.
+     *
+     * @throws UncheckedIOException If the file cannot be read
+     */
+    public String read(Path file) {
+        Entry entry = entry(file);
+        String text = entry.text;
+        if (text != null) {
+            return text;
+        }
+        text = StandardCharsets.UTF_8.decode(entry.bytes.duplicate()).toString();
+        // Mapped files stay mapped rather than also holding their text on the heap
+        if (!entry.bytes.isDirect()) {
+            synchronized (this) {
+                if (entry.text == null && entries.get(key(file)) == entry) {
+                    entry.text = text;
+                    cachedBytes += text.length();
+                    evict();
+                }
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Returns the raw content of a file, as a read-only buffer positioned at its start.
+     */
+    public ByteBuffer bytes(Path file) {
+        return entry(file).bytes.asReadOnlyBuffer();
+    }
+
+    /**
+     * Drops a file, e.g. after writing it.
+     */
+    public synchronized void invalidate(Path file) {
+        Entry removed = entries.remove(key(file));
+        if (removed != null) {
+            cachedBytes -= removed.weight();
+        }
+    }
+
+    /**
+     * @return Bytes currently held, decoded text included
+     */
+    public synchronized long cachedBytes() {
+        return cachedBytes;
+    }
+
+    private Entry entry(Path path) {
+        Path file = key(path);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            invalidate(file);
+            throw new UncheckedIOException("Failed to read " + file, e);
+        }
+
+        synchronized (this) {
+            Entry cached = entries.get(file);
+            if (cached != null && cached.size == attributes.size()
+                    && cached.modified.equals(attributes.lastModifiedTime())) {
+                hits.increment();
+                return cached;
+            }
+        }
+
+        // Read outside the lock; concurrent misses on one file may both read it
+        misses.increment();
+        Entry loaded = new Entry(attributes.lastModifiedTime(), attributes.size(), load(file, attributes.size()));
+        bytesRead.increment(loaded.size);
+        synchronized (this) {
+            Entry replaced = entries.put(file, loaded);
+            if (replaced != null) {
+                cachedBytes -= replaced.weight();
+            }
+            cachedBytes += loaded.weight();
+            evict();
+        }
+        return loaded;
+    }
+
+    private ByteBuffer load(Path file, long size) {
+        try {
+            if (size >= mapThreshold) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            }
+            return ByteBuffer.wrap(Files.readAllBytes(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        }
+    }
+
+    /**
+     * Evicts least recently used entries until the cache is within its bound,
+     * always keeping the most recent one.
+     */
+    private void evict() {
+        Iterator<Entry> oldest = entries.values().iterator();
+        while (cachedBytes > maxBytes && entries.size() > 1 && oldest.hasNext()) {
+            cachedBytes -= oldest.next().weight();
+            oldest.remove();
+        }
+    }
+
+    private static Path key(Path file) {
+        return file.toAbsolutePath().normalize();
+    }
+}
@@ -0,0 +1,227 @@
+package com.google.adk.modernization.analyzer;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Index from class names to the source files declaring them, built once per
+ * source root and shared by everything that needs to find a class's file.
+ * A root's index is rebuilt when reused after any of its files or
+ * directories changed, as SourceCache does for file contents.
+ *
+ * Every type declared in a file is indexed, including nested types and
+ * non-public top-level types whose names differ from the file name, by
+ * simple name and by qualified name (com.example.Owner.Address). Files that
+ * cannot be parsed are indexed by their file name.
+ */
+@Component
+public class SourceIndex {
+    private static final ThreadLocal<JavaParser> PARSER = ThreadLocal.withInitial(() -> new JavaParser(
+        new ParserConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17)));
+
+    private final SourceCache sourceCache;
+    private final Map<Path, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    public SourceIndex() {
+        this(new SourceCache());
+    }
+
+    @Autowired
+    public SourceIndex(SourceCache sourceCache) {
+        this.sourceCache = sourceCache;
+    }
+
+    /**
+     * @return The cache the indexed files are read through
+     */
+    public SourceCache sourceCache() {
+        return sourceCache;
+    }
+
+    /**
+     * Returns the index of a source root, building it on first use and
+     * rebuilding it if files were added, changed or deleted since.
+     */
+    public Snapshot of(Path root) {
+        return snapshots.compute(root.toAbsolutePath().normalize(),
+            (r, snapshot) -> snapshot != null && snapshot.isCurrent() ? snapshot : build(r, sourceCache));
+    }
+
+    /**
+     * Drops the index of a source root, e.g. after its files changed.
+     */
+    public void invalidate(Path root) {
+        snapshots.remove(root.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Builds the index of a source root, parsing its files in parallel.
+     *
+     * @param sourceCache Cache the files are read through
+     */
+    public static Snapshot build(Path root, SourceCache sourceCache) {
+        List<Path> files;
+        // Directories change when entries are added or removed, files when edited
+        Map<Path, FileTime> modified = new HashMap<>();
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk
+                .filter(p -> Files.isDirectory(p) || p.toString().endsWith(".java") && Files.isRegularFile(p))
+                .peek(p -> modified.put(p, lastModified(p)))
+                .filter(Files::isRegularFile)
+                .sorted()
+                .collect(Collectors.toList());
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Failed to index sources in " + root, e);
+        }
+
+        List<List<String>> declared = files.parallelStream()
+            .map(file -> declaredTypes(file, sourceCache))
+            .toList();
+
+        Map<String, List<Path>> bySimpleName = new HashMap<>();
+        Map<String, Path> byQualifiedName = new HashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            for (String qualifiedName : declared.get(i)) {
+                String simpleName = qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+                List<Path> paths = bySimpleName.computeIfAbsent(simpleName, n -> new ArrayList<>(1));
+                if (!paths.contains(file)) {
+                    paths.add(file);
+                }
+                byQualifiedName.putIfAbsent(qualifiedName, file);
+            }
+        }
+        return new Snapshot(files, bySimpleName, byQualifiedName, modified);
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Qualified names of all types declared in a file.
+     */
+    private static List<String> declaredTypes(Path file, SourceCache sourceCache) {
+        String fileName = file.getFileName().toString();
+        String fallback = fileName.substring(0, fileName.length() - ".java".length());
+        try {
+            Optional<CompilationUnit> parsed = PARSER.get().parse(sourceCache.read(file)).getResult();
+            if (parsed.isEmpty()) {
+                return List.of(fallback);
+            }
+            CompilationUnit cu = parsed.get();
+            String packageName = cu.getPackageDeclaration().map(pd -> pd.getNameAsString() + ".").orElse("");
+
+            List<String> names = new ArrayList<>();
+            for (TypeDeclaration<?> type : cu.findAll(TypeDeclaration.class)) {
+                names.add(packageName + nestedName(type));
+            }
+            return names.isEmpty() ? List.of(fallback) : names;
+        } catch (RuntimeException e) {
+            return List.of(fallback);
+        }
+    }
+
+    private static String nestedName(TypeDeclaration<?> type) {
+        StringBuilder name = new StringBuilder(type.getNameAsString());
+        Optional<Node> parent = type.getParentNode();
+        while (parent.isPresent()) {
+            if (parent.get() instanceof TypeDeclaration<?> outer) {
+                name.insert(0, outer.getNameAsString() + ".");
+            }
+            parent = parent.get().getParentNode();
+        }
+        return name.toString();
+    }
+
+    /**
+     * Immutable index of one source root.
+     */
+    public static final class Snapshot {
+        private final List<Path> files;
+        private final Map<String, List<Path>> bySimpleName;
+        private final Map<String, Path> byQualifiedName;
+        private final Map<Path, FileTime> modified;
+
+        private Snapshot(List<Path> files, Map<String, List<Path>> bySimpleName, Map<String, Path> byQualifiedName,
+                         Map<Path, FileTime> modified) {
+            this.files = List.copyOf(files);
+            this.bySimpleName = bySimpleName;
+            this.byQualifiedName = byQualifiedName;
+            this.modified = modified;
+        }
+
+        /**
+         * @return Whether every indexed file and directory still exists with
+         *         the modification time it was indexed at
+         */
+        public boolean isCurrent() {
+            for (Map.Entry<Path, FileTime> entry : modified.entrySet()) {
+                try {
+                    if (!Files.getLastModifiedTime(entry.getKey()).equals(entry.getValue())) {
+                        return false;
+                    }
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return All Java source files, sorted
+         */
+        public List<Path> files() {
+            return files;
+        }
+
+        /**
+         * @return Qualified names of all declared types
+         */
+        public Set<String> qualifiedNames() {
+            return Collections.unmodifiableSet(byQualifiedName.keySet());
+        }
+
+        /**
+         * Files declaring a class, looked up by qualified name if the name
+         * contains a dot and by simple name otherwise.
+         */
+        public List<Path> filesFor(String className) {
+            if (className.indexOf('.') >= 0) {
+                Path file = byQualifiedName.get(className);
+                return file == null ? List.of() : List.of(file);
+            }
+            return Collections.unmodifiableList(bySimpleName.getOrDefault(className, List.of()));
+        }
+
+        /**
+         * Files declaring any of the given classes, sorted and without duplicates.
+         */
+        public List<Path> filesFor(Collection<String> classNames) {
+            Set<Path> found = new TreeSet<>();
+            for (String className : classNames) {
+                found.addAll(filesFor(className));
+            }
+            return new ArrayList<>(found);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.google.adk.modernization.analyzer;
+
+import com.google.adk.modernization.analyzer.CodeAnalyzer.ClassInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyInfo;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Groups structurally identical classes, such as per-entity DAOs, generated
+ * DTOs or copy-pasted controllers, so that only one representative per group
+ * needs to be analyzed by the LLM.
+ *
+ * The fingerprint covers a class's role word, annotations, method and field
+ * names and outgoing dependencies, with the entity stem of its own name
+ * (Owner in OwnerDao) replaced by a placeholder, so OwnerDao.findOwner and
+ * PetDao.findPet normalize to the same shape. The stem is only replaced
+ * where it forms whole camel-case words, so Pet in findCarpet or
+ * Petition is kept. Classes with single-word names are never grouped.
+ */
+@Component
+public class StructuralFingerprinter {
+    private static final String STEM_PLACEHOLDER = "#";
+
+    /**
+     * A set of structurally equivalent classes.
+     */
+    public record ClassGroup(
+        String fingerprint,
+        ClassInfo representative,
+        List<ClassInfo> members
+    ) {}
+
+    /**
+     * Groups classes by fingerprint, keeping the first class of each group as
+     * its representative and preserving input order.
+     */
+    public List<ClassGroup> group(List<ClassInfo> classes, List<DependencyInfo> dependencies) {
+        Map<String, List<DependencyInfo>> outgoing = dependencies.stream()
+            .collect(Collectors.groupingBy(DependencyInfo::sourceClass));
+
+        Map<String, List<ClassInfo>> groups = new LinkedHashMap<>();
+        for (ClassInfo classInfo : classes) {
+            String fingerprint = fingerprint(classInfo, outgoing.getOrDefault(classInfo.name(), List.of()));
+            groups.computeIfAbsent(fingerprint, f -> new ArrayList<>()).add(classInfo);
+        }
+
+        return groups.entrySet().stream()
+            .map(e -> new ClassGroup(e.getKey(), e.getValue().get(0), List.copyOf(e.getValue())))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Computes the normalized shape hash of a class.
+     *
+     * @param classInfo The class
+     * @param outgoing Dependencies whose source is this class
+     * @return Hex-encoded fingerprint
+     */
+    public String fingerprint(ClassInfo classInfo, List<DependencyInfo> outgoing) {
+        String stem = stem(classInfo.name());
+        String role = classInfo.name().substring(stem.length());
+        Pattern stemWords = stemWords(stem);
+
+        StringBuilder shape = new StringBuilder();
+        if (role.isEmpty()) {
+            // Single-word names are usually domain concepts; never merge them
+            shape.append("name:").append(classInfo.name()).append('\n');
+        }
+        shape.append("role:").append(role).append('\n');
+        appendSorted(shape, "annotations", classInfo.annotations(), stemWords);
+        appendSorted(shape, "methods", classInfo.methods(), stemWords);
+        appendSorted(shape, "fields", classInfo.fields(), stemWords);
+        appendSorted(shape, "dependencies", outgoing.stream()
+            .map(d -> d.type() + ":" + d.targetClass())
+            .toList(), stemWords);
+
+        return sha256(shape.toString());
+    }
+
+    /**
+     * Returns the class name without its trailing camel-case word, e.g.
+     * PetType for PetTypeController. Single-word names are their own stem.
+     */
+    public String stem(String className) {
+        for (int i = className.length() - 1; i > 0; i--) {
+            if (Character.isUpperCase(className.charAt(i)) && !Character.isUpperCase(className.charAt(i - 1))) {
+                return className.substring(0, i);
+            }
+        }
+        return className;
+    }
+
+    private void appendSorted(StringBuilder shape, String label, List<String> values, Pattern stemWords) {
+        shape.append(label).append(':');
+        values.stream()
+            .map(v -> stemWords.matcher(v).replaceAll(STEM_PLACEHOLDER))
+            .sorted()
+            .forEach(v -> shape.append(v).append(','));
+        shape.append('\n');
+    }
+
+    /**
+     * Matches the stem as whole camel-case words, optionally plural:
+     * capitalized anywhere (findOwner, List<Owner>), or lower-case at the
+     * start of an identifier (owner, owners), but not within a longer word
+     * (Ownership, coowner).
+     */
+    private static Pattern stemWords(String stem) {
+        String lowerStem = Character.toLowerCase(stem.charAt(0)) + stem.substring(1);
+        return Pattern.compile("(?:" + Pattern.quote(stem) + "|(?<![\\p{Alnum}_$])" + Pattern.quote(lowerStem)
+            + ")(?=(?:e?s)?(?!\\p{Lower}))");
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.google.adk.modernization.generator;
 
+import com.google.adk.modernization.generator.output.OutputSink;
 import com.google.adk.modernization.mapper.DDDMapper.MicroserviceCandidate;
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 public interface ProjectGenerator {
     /**
@@ -13,6 +17,61 @@ public interface ProjectGenerator {
      */
     Path generateMicroservice(MicroserviceCandidate candidate, Path outputPath);
 
+    /**
+     * Renders the files of a microservice project without writing them.
+     *
+     * @param candidate The microservice candidate to generate
+     * @return The project's files, relative to the project root
+     */
+    List<GeneratedFile> generateFiles(MicroserviceCandidate candidate);
+
+    /**
+     * Generates several microservice projects.
+     *
+     * @param candidates The microservice candidates to generate
+     * @param outputPath The path where the projects should be generated
+     * @return The paths to the generated projects, in candidate order
+     */
+    default List<Path> generateMicroservices(List<MicroserviceCandidate> candidates, Path outputPath) {
+        List<Path> projects = new ArrayList<>(candidates.size());
+        for (MicroserviceCandidate candidate : candidates) {
+            projects.add(generateMicroservice(candidate, outputPath));
+        }
+        return projects;
+    }
+
+    /**
+     * Writes a microservice project to a sink, below a directory named after
+     * the service's artifact.
+     *
+     * @param candidate The microservice candidate to generate
+     * @param sink Where the project's files go, e.g. a zip or tar stream
+     */
+    void writeMicroservice(MicroserviceCandidate candidate, OutputSink sink) throws IOException;
+
+    /**
+     * Writes several microservice projects to one sink.
+     *
+     * @param candidates The microservice candidates to generate
+     * @param sink Where the projects' files go, e.g. a zip or tar stream
+     */
+    default void writeMicroservices(List<MicroserviceCandidate> candidates, OutputSink sink) throws IOException {
+        for (MicroserviceCandidate candidate : candidates) {
+            writeMicroservice(candidate, sink);
+        }
+    }
+
+    /**
+     * A file of a generated project.
+     *
+     * @param path Path relative to the project root
+     * @param content File content
+     */
+    record GeneratedFile(
+        Path path,
+        String content
+    ) {}
+
     /**
      * Configuration for a generated microservice.
      */
@@ -25,9 +84,50 @@ public interface ProjectGenerator {
         String springBootVersion,
         boolean useKubernetes,
         boolean useHelm,
-        boolean useGithubActions
+        boolean useGithubActions,
+        boolean useNativeImage,
+        RuntimeProfile runtimeProfile
     ) {}
 
+    /**
+     * Runtime tuning of a generated microservice.
+     */
+    enum RuntimeProfile {
+        /**
+         * Framework and JVM defaults on Java 17.
+         */
+        STANDARD("17", "3.1.4", "2023.0.0"),
+
+        /**
+         * Java 21 with virtual threads for Spring MVC, a layered jar with an
+         * AppCDS archive, container-aware heap and GC flags, sized Hikari and
+         * Tomcat pools, and CPU and memory requests and limits to match.
+         */
+        PERFORMANCE("21", "3.3.4", "2023.0.3");
+
+        private final String javaVersion;
+        private final String springBootVersion;
+        private final String springCloudVersion;
+
+        RuntimeProfile(String javaVersion, String springBootVersion, String springCloudVersion) {
+            this.javaVersion = javaVersion;
+            this.springBootVersion = springBootVersion;
+            this.springCloudVersion = springCloudVersion;
+        }
+
+        public String javaVersion() {
+            return javaVersion;
+        }
+
+        public String springBootVersion() {
+            return springBootVersion;
+        }
+
+        public String springCloudVersion() {
+            return springCloudVersion;
+        }
+    }
+
     /**
      * Represents the structure of the generated project.
      */
@@ -1,470 +1,408 @@
 package com.google.adk.modernization.generator;
 
+import com.google.adk.modernization.generator.output.IncrementalSink;
+import com.google.adk.modernization.generator.output.OutputSink;
 import com.google.adk.modernization.mapper.DDDMapper.MicroserviceCandidate;
+import com.google.adk.modernization.prompt.CompiledTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
 
+/**
+ * Generates Spring Boot microservice projects from the templates under
+ * {@value #TEMPLATE_DIR}.
+ *
+ * Templates and their target paths are {{variable}} templates compiled once
+ * per process, so rendering a project is a single pass over each template.
+ * Rendering is separate from writing: a project's files are rendered in
+ * memory and then written to an {@link OutputSink}, a directory tree
+ * (written in parallel, skipping unchanged files) or a zip or tar stream, and
+ * {@link #writeMicroservices(List, OutputSink)} generates several projects
+ * at once.
+ */
 @Component
 public class SpringBootProjectGenerator implements ProjectGenerator {
     private static final String TEMPLATE_DIR = "/templates/spring-boot";
 
+    /**
+     * A template and where its output goes.
+     *
+     * @param template Template resource below {@value #TEMPLATE_DIR}
+     * @param target Target path relative to the project root, itself a template
+     * @param enabled Whether the file is generated for a service
+     * @param perAggregate Whether the file is generated once per aggregate root
+     */
+    private record FileTemplate(
+        String template,
+        String target,
+        Predicate<ServiceConfig> enabled,
+        boolean perAggregate
+    ) {}
+
+    /**
+     * Files in generation order. Files tuned per runtime profile have a
+     * template for each, the {@code PERFORMANCE} ones under
+     * {@code performance/}.
+     */
+    private static final List<FileTemplate> FILES = List.of(
+        new FileTemplate("pom.xml.tmpl", "pom.xml", config -> true, false),
+        new FileTemplate("application.yml.tmpl", "src/main/resources/application.yml",
+            profile(RuntimeProfile.STANDARD), false),
+        new FileTemplate("performance/application.yml.tmpl", "src/main/resources/application.yml",
+            profile(RuntimeProfile.PERFORMANCE), false),
+        new FileTemplate("Dockerfile.tmpl", "docker/Dockerfile", profile(RuntimeProfile.STANDARD), false),
+        new FileTemplate("performance/Dockerfile.tmpl", "docker/Dockerfile",
+            profile(RuntimeProfile.PERFORMANCE), false),
+        new FileTemplate("Dockerfile.native.tmpl", "docker/Dockerfile.native", ServiceConfig::useNativeImage, false),
+        new FileTemplate("deployment.yaml.tmpl", "kubernetes/deployment.yaml",
+            profile(RuntimeProfile.STANDARD).and(ServiceConfig::useKubernetes), false),
+        new FileTemplate("performance/deployment.yaml.tmpl", "kubernetes/deployment.yaml",
+            profile(RuntimeProfile.PERFORMANCE).and(ServiceConfig::useKubernetes), false),
+        new FileTemplate("service.yaml.tmpl", "kubernetes/service.yaml", ServiceConfig::useKubernetes, false),
+        new FileTemplate("Chart.yaml.tmpl", "helm/{{artifactId}}/Chart.yaml", ServiceConfig::useHelm, false),
+        new FileTemplate("values.yaml.tmpl", "helm/{{artifactId}}/values.yaml",
+            profile(RuntimeProfile.STANDARD).and(ServiceConfig::useHelm), false),
+        new FileTemplate("performance/values.yaml.tmpl", "helm/{{artifactId}}/values.yaml",
+            profile(RuntimeProfile.PERFORMANCE).and(ServiceConfig::useHelm), false),
+        new FileTemplate("ci-cd.yml.tmpl", ".github/workflows/ci-cd.yml", ServiceConfig::useGithubActions, false),
+        new FileTemplate("AggregateRoot.java.tmpl",
+            "src/main/java/{{packagePath}}/domain/model/{{aggregate}}.java", config -> true, true),
+        new FileTemplate("Application.java.tmpl", "src/main/java/{{packagePath}}/Application.java", config -> true, false),
+        new FileTemplate("DomainModelHints.java.tmpl",
+            "src/main/java/{{packagePath}}/infrastructure/aot/DomainModelHints.java", ServiceConfig::useNativeImage,
+            false),
+        new FileTemplate("Benchmark.java.tmpl",
+            "src/jmh/java/{{packagePath}}/benchmark/{{aggregate}}Benchmark.java", config -> true, true),
+        new FileTemplate("LoadDriver.java.tmpl", "src/jmh/java/{{packagePath}}/benchmark/LoadDriver.java",
+            config -> true, false)
+    );
+
+    private static final Map<String, CompiledTemplate> TEMPLATES = compileTemplates();
+
+    /**
+     * The pom's native-image profile, appended to its profiles for services that use it.
+     */
+    private static final String NATIVE_PROFILE = "\n\n" + loadTemplate("native-profile.xml.tmpl").stripTrailing();
+
+    private final int maxParallelism;
+    private final RuntimeProfile runtimeProfile;
+    private final boolean nativeImage;
+
+    public SpringBootProjectGenerator() {
+        this(4);
+    }
+
+    public SpringBootProjectGenerator(int maxParallelism) {
+        this(maxParallelism, RuntimeProfile.PERFORMANCE);
+    }
+
+    public SpringBootProjectGenerator(int maxParallelism, RuntimeProfile runtimeProfile) {
+        this(maxParallelism, runtimeProfile, false);
+    }
+
+    /**
+     * @param maxParallelism Maximum number of projects generated at once
+     * @param runtimeProfile Runtime tuning of the generated services
+     * @param nativeImage Whether services get a Spring AOT and GraalVM native-image build
+     */
+    @Autowired
+    public SpringBootProjectGenerator(
+            @Value("${agent.generator.max-parallelism:4}") int maxParallelism,
+            @Value("${agent.generator.runtime-profile:PERFORMANCE}") RuntimeProfile runtimeProfile,
+            @Value("${agent.generator.native-image:false}") boolean nativeImage) {
+        this.maxParallelism = Math.max(1, maxParallelism);
+        this.runtimeProfile = runtimeProfile;
+        this.nativeImage = nativeImage;
+    }
+
+    private static Predicate<ServiceConfig> profile(RuntimeProfile profile) {
+        return config -> config.runtimeProfile() == profile;
+    }
+
+    /**
+     * Generates into the output directory incrementally: files whose content
+     * did not change are not rewritten, and files of an earlier run that are
+     * no longer generated are deleted.
+     */
     @Override
     public Path generateMicroservice(MicroserviceCandidate candidate, Path outputPath) {
         try {
-            // Create service configuration
-            ServiceConfig config = createServiceConfig(candidate);
+            IncrementalSink sink = new IncrementalSink(outputPath);
+            writeMicroservice(candidate, sink);
+            sink.close();
+            return outputPath.resolve(createServiceConfig(candidate).artifactId());
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("Failed to generate microservice project", e);
+        }
+    }
 
-            // Create project structure
-            ProjectStructure structure = createProjectStructure(outputPath, config);
+    @Override
+    public List<Path> generateMicroservices(List<MicroserviceCandidate> candidates, Path outputPath) {
+        try {
+            IncrementalSink sink = new IncrementalSink(outputPath);
+            writeMicroservices(candidates, sink);
+            sink.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to generate microservice projects", e);
+        }
+        List<Path> roots = new ArrayList<>(candidates.size());
+        for (MicroserviceCandidate candidate : candidates) {
+            roots.add(outputPath.resolve(createServiceConfig(candidate).artifactId()));
+        }
+        return roots;
+    }
+
+    @Override
+    public void writeMicroservice(MicroserviceCandidate candidate, OutputSink sink) throws IOException {
+        ServiceConfig config = createServiceConfig(candidate);
+        write(config, generateFiles(candidate, config), sink);
+    }
 
-            // Generate project files
-            generateProjectFiles(structure, config, candidate);
+    /**
+     * Generates the projects concurrently, at most
+     * {@code agent.generator.max-parallelism} at a time. Sinks that take
+     * concurrent writes get whole projects in parallel; archive sinks get
+     * the projects in candidate order in one sequential pass while later
+     * projects are still being rendered.
+     */
+    @Override
+    public void writeMicroservices(List<MicroserviceCandidate> candidates, OutputSink sink) {
+        if (candidates.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxParallelism, candidates.size()));
+        try {
+            if (sink.concurrent()) {
+                List<Future<?>> projects = new ArrayList<>(candidates.size());
+                for (MicroserviceCandidate candidate : candidates) {
+                    projects.add(executor.submit(() -> {
+                        writeMicroservice(candidate, sink);
+                        return null;
+                    }));
+                }
+                for (Future<?> project : projects) {
+                    project.get();
+                }
+                return;
+            }
 
-            return structure.rootDir();
+            List<ServiceConfig> configs = new ArrayList<>(candidates.size());
+            List<Future<List<GeneratedFile>>> rendered = new ArrayList<>(candidates.size());
+            for (MicroserviceCandidate candidate : candidates) {
+                ServiceConfig config = createServiceConfig(candidate);
+                configs.add(config);
+                rendered.add(executor.submit(() -> generateFiles(candidate, config)));
+            }
+            for (int i = 0; i < candidates.size(); i++) {
+                write(configs.get(i), rendered.get(i).get(), sink);
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to generate microservice projects", e.getCause());
         } catch (IOException e) {
-            throw new RuntimeException("Failed to generate microservice project", e);
+            throw new RuntimeException("Failed to generate microservice projects", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while generating microservice projects", e);
+        } finally {
+            executor.shutdownNow();
         }
     }
 
-    private ServiceConfig createServiceConfig(MicroserviceCandidate candidate) {
-        return new ServiceConfig(
-            "com.example", // Should be configurable
-            candidate.name(),
-            "0.1.0-SNAPSHOT",
-            "Microservice for " + candidate.boundedContext().name() + " bounded context",
-            "com.example." + candidate.name().replace("-", ""),
-            "3.1.4",
-            true,  // Use Kubernetes
-            true,  // Use Helm
-            true   // Use GitHub Actions
-        );
+    @Override
+    public List<GeneratedFile> generateFiles(MicroserviceCandidate candidate) {
+        return generateFiles(candidate, createServiceConfig(candidate));
     }
 
-    private ProjectStructure createProjectStructure(Path outputPath, ServiceConfig config) throws IOException {
-        Path rootDir = outputPath.resolve(config.artifactId());
-        
-        // Create main directories
-        Path srcMainJava = createDirectories(rootDir, "src/main/java");
-        Path srcMainResources = createDirectories(rootDir, "src/main/resources");
-        Path srcTestJava = createDirectories(rootDir, "src/test/java");
-        Path srcTestResources = createDirectories(rootDir, "src/test/resources");
-
-        // Create infrastructure directories
-        Path dockerDir = createDirectories(rootDir, "docker");
-        Path kubernetesDir = createDirectories(rootDir, "kubernetes");
-        Path helmDir = createDirectories(rootDir, "helm", config.artifactId());
-        Path githubDir = createDirectories(rootDir, ".github/workflows");
-
-        // Create DDD layer directories
-        String basePackagePath = config.packageName().replace(".", "/");
-        createDirectories(srcMainJava, basePackagePath, "domain/model");
-        createDirectories(srcMainJava, basePackagePath, "domain/repository");
-        createDirectories(srcMainJava, basePackagePath, "domain/service");
-        createDirectories(srcMainJava, basePackagePath, "application/service");
-        createDirectories(srcMainJava, basePackagePath, "application/dto");
-        createDirectories(srcMainJava, basePackagePath, "infrastructure/persistence");
-        createDirectories(srcMainJava, basePackagePath, "infrastructure/messaging");
-        createDirectories(srcMainJava, basePackagePath, "interfaces/rest");
-
-        return new ProjectStructure(
-            rootDir, srcMainJava, srcMainResources, 
-            srcTestJava, srcTestResources, dockerDir,
-            kubernetesDir, helmDir, githubDir
+    private List<GeneratedFile> generateFiles(MicroserviceCandidate candidate, ServiceConfig config) {
+        Map<String, String> variables = new HashMap<>();
+        variables.put("groupId", config.groupId());
+        variables.put("artifactId", config.artifactId());
+        variables.put("version", config.version());
+        variables.put("description", config.description());
+        variables.put("packageName", config.packageName());
+        variables.put("packagePath", config.packageName().replace(".", "/"));
+        variables.put("springBootVersion", config.springBootVersion());
+        variables.put("javaVersion", config.runtimeProfile().javaVersion());
+        variables.put("springCloudVersion", config.runtimeProfile().springCloudVersion());
+        variables.put("apiPaths", javaStrings(new TreeSet<>(candidate.apis())));
+        variables.put("nativeProfile", config.useNativeImage() ? NATIVE_PROFILE : "");
+        variables.put("domainTypes", domainTypes(config, candidate.boundedContext().aggregateRoots()));
+
+        List<GeneratedFile> files = new ArrayList<>();
+        for (FileTemplate file : FILES) {
+            if (!file.enabled().test(config)) {
+                continue;
+            }
+            if (!file.perAggregate()) {
+                files.add(render(file, variables));
+                continue;
+            }
+            for (String aggregate : candidate.boundedContext().aggregateRoots()) {
+                Map<String, String> aggregateVariables = new HashMap<>(variables);
+                aggregateVariables.put("aggregate", aggregate);
+                files.add(render(file, aggregateVariables));
+            }
+        }
+        return files;
+    }
+
+    private static GeneratedFile render(FileTemplate file, Map<String, String> variables) {
+        return new GeneratedFile(
+            Path.of(renderTemplate(TEMPLATES.get(file.target()), variables)),
+            renderTemplate(TEMPLATES.get(file.template()), variables)
         );
     }
 
-    private void generateProjectFiles(
-            ProjectStructure structure,
-            ServiceConfig config,
-            MicroserviceCandidate candidate) throws IOException {
-        
-        // Generate build files
-        generatePomXml(structure.rootDir(), config, candidate);
-        
-        // Generate application properties
-        generateApplicationYaml(structure.srcMainResources());
-        
-        // Generate Docker files
-        generateDockerfile(structure.dockerDir(), config);
-        
-        // Generate Kubernetes manifests
-        if (config.useKubernetes()) {
-            generateKubernetesManifests(structure.kubernetesDir(), config);
-        }
-        
-        // Generate Helm charts
-        if (config.useHelm()) {
-            generateHelmCharts(structure.helmDir(), config);
-        }
-        
-        // Generate GitHub Actions
-        if (config.useGithubActions()) {
-            generateGithubActions(structure.githubDir(), config);
+    /**
+     * Java string literals for a list initializer, one per line.
+     */
+    private static String javaStrings(Collection<String> values) {
+        StringBuilder literals = new StringBuilder();
+        for (String value : values) {
+            literals.append(literals.length() == 0 ? "\n        \"" : ",\n        \"")
+                .append(value.replace("\\", "\\\\").replace("\"", "\\\""))
+                .append('"');
         }
-        
-        // Generate domain model classes
-        generateDomainModel(structure, config, candidate);
-        
-        // Generate Spring Boot application class
-        generateApplicationClass(structure, config);
+        return literals.toString();
     }
 
-    private Path createDirectories(Path base, String... paths) throws IOException {
-        Path current = base;
-        for (String path : paths) {
-            current = current.resolve(path);
-            Files.createDirectories(current);
+    /**
+     * Class literals of the aggregates, for the native-image reflection hints.
+     */
+    private static String domainTypes(ServiceConfig config, Collection<String> aggregates) {
+        StringBuilder literals = new StringBuilder();
+        for (String aggregate : aggregates) {
+            literals.append(literals.length() == 0 ? "\n                " : ",\n                ")
+                .append(config.packageName()).append(".domain.model.").append(aggregate).append(".class");
         }
-        return current;
+        return literals.toString();
     }
 
-    private void generatePomXml(Path rootDir, ServiceConfig config, MicroserviceCandidate candidate) throws IOException {
-        String pomXml = """
-            <?xml version="1.0" encoding="UTF-8"?>
-            <project xmlns="http://maven.apache.org/POM/4.0.0"
-                     xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
-                     xsi:schemaLocation="http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd">
-                <modelVersion>4.0.0</modelVersion>
-                
-                <parent>
-                    <groupId>org.springframework.boot</groupId>
-                    <artifactId>spring-boot-starter-parent</artifactId>
-                    <version>%s</version>
-                </parent>
-                
-                <groupId>%s</groupId>
-                <artifactId>%s</artifactId>
-                <version>%s</version>
-                <description>%s</description>
-                
-                <properties>
-                    <java.version>17</java.version>
-                    <spring-cloud.version>2023.0.0</spring-cloud.version>
-                </properties>
-                
-                <dependencies>
-                    <dependency>
-                        <groupId>org.springframework.boot</groupId>
-                        <artifactId>spring-boot-starter-web</artifactId>
-                    </dependency>
-                    <dependency>
-                        <groupId>org.springframework.boot</groupId>
-                        <artifactId>spring-boot-starter-data-jpa</artifactId>
-                    </dependency>
-                    <dependency>
-                        <groupId>org.springframework.cloud</groupId>
-                        <artifactId>spring-cloud-starter-netflix-eureka-client</artifactId>
-                    </dependency>
-                    <dependency>
-                        <groupId>org.springframework.kafka</groupId>
-                        <artifactId>spring-kafka</artifactId>
-                    </dependency>
-                    <dependency>
-                        <groupId>org.projectlombok</groupId>
-                        <artifactId>lombok</artifactId>
-                        <optional>true</optional>
-                    </dependency>
-                    <dependency>
-                        <groupId>org.springframework.boot</groupId>
-                        <artifactId>spring-boot-starter-test</artifactId>
-                        <scope>test</scope>
-                    </dependency>
-                </dependencies>
-                
-                <dependencyManagement>
-                    <dependencies>
-                        <dependency>
-                            <groupId>org.springframework.cloud</groupId>
-                            <artifactId>spring-cloud-dependencies</artifactId>
-                            <version>${spring-cloud.version}</version>
-                            <type>pom</type>
-                            <scope>import</scope>
-                        </dependency>
-                    </dependencies>
-                </dependencyManagement>
-                
-                <build>
-                    <plugins>
-                        <plugin>
-                            <groupId>org.springframework.boot</groupId>
-                            <artifactId>spring-boot-maven-plugin</artifactId>
-                            <configuration>
-                                <excludes>
-                                    <exclude>
-                                        <groupId>org.projectlombok</groupId>
-                                        <artifactId>lombok</artifactId>
-                                    </exclude>
-                                </excludes>
-                            </configuration>
-                        </plugin>
-                    </plugins>
-                </build>
-            </project>
-            """.formatted(
-                config.springBootVersion(),
-                config.groupId(),
-                config.artifactId(),
-                config.version(),
-                config.description()
-            );
-        
-        Files.writeString(rootDir.resolve("pom.xml"), pomXml);
+    /**
+     * Renders with the variables the template uses; the rest are shared by other templates.
+     */
+    private static String renderTemplate(CompiledTemplate template, Map<String, String> variables) {
+        Map<String, String> used = new HashMap<>();
+        for (String name : template.variableNames()) {
+            used.put(name, variables.get(name));
+        }
+        return template.render(used);
     }
 
-    private void generateApplicationYaml(Path resourcesDir) throws IOException {
-        String yaml = """
-            spring:
-              application:
-                name: ${spring.application.name}
-              datasource:
-                url: jdbc:postgresql://localhost:5432/${spring.application.name}
-                username: postgres
-                password: postgres
-              jpa:
-                hibernate:
-                  ddl-auto: update
-                properties:
-                  hibernate:
-                    dialect: org.hibernate.dialect.PostgreSQLDialect
-              kafka:
-                bootstrap-servers: localhost:9092
-                
-            server:
-              port: 8080
-              
-            eureka:
-              client:
-                serviceUrl:
-                  defaultZone: http://localhost:8761/eureka/
-                  
-            management:
-              endpoints:
-                web:
-                  exposure:
-                    include: health,info,metrics
-            """;
-        
-        Files.writeString(resourcesDir.resolve("application.yml"), yaml);
+    /**
+     * Writes a project below a directory named after its artifact, including
+     * the empty DDD layer directories. Files are written in parallel if the
+     * sink allows it.
+     */
+    private void write(ServiceConfig config, List<GeneratedFile> files, OutputSink sink) throws IOException {
+        String root = config.artifactId() + "/";
+        for (String directory : projectDirectories(config)) {
+            sink.directory(root + directory);
+        }
+        if (!sink.concurrent()) {
+            for (GeneratedFile file : files) {
+                write(root, file, sink);
+            }
+            return;
+        }
+        files.parallelStream().forEach(file -> {
+            try {
+                write(root, file, sink);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write " + root + file.path(), e);
+            }
+        });
     }
 
-    private void generateDockerfile(Path dockerDir, ServiceConfig config) throws IOException {
-        String dockerfile = """
-            FROM eclipse-temurin:17-jre-alpine
-            WORKDIR /app
-            COPY target/*.jar app.jar
-            EXPOSE 8080
-            ENTRYPOINT ["java", "-jar", "app.jar"]
-            """;
-        
-        Files.writeString(dockerDir.resolve("Dockerfile"), dockerfile);
+    private static void write(String root, GeneratedFile file, OutputSink sink) throws IOException {
+        String path = root + file.path().toString().replace('\\', '/');
+        sink.write(path, file.content().getBytes(StandardCharsets.UTF_8));
     }
 
-    private void generateKubernetesManifests(Path kubernetesDir, ServiceConfig config) throws IOException {
-        String deployment = """
-            apiVersion: apps/v1
-            kind: Deployment
-            metadata:
-              name: %s
-            spec:
-              replicas: 3
-              selector:
-                matchLabels:
-                  app: %s
-              template:
-                metadata:
-                  labels:
-                    app: %s
-                spec:
-                  containers:
-                  - name: %s
-                    image: %s:%s
-                    ports:
-                    - containerPort: 8080
-                    livenessProbe:
-                      httpGet:
-                        path: /actuator/health
-                        port: 8080
-                    readinessProbe:
-                      httpGet:
-                        path: /actuator/health
-                        port: 8080
-            """.formatted(
-                config.artifactId(),
-                config.artifactId(),
-                config.artifactId(),
-                config.artifactId(),
-                config.artifactId(),
-                config.version()
-            );
-        
-        Files.writeString(kubernetesDir.resolve("deployment.yaml"), deployment);
-
-        String service = """
-            apiVersion: v1
-            kind: Service
-            metadata:
-              name: %s
-            spec:
-              selector:
-                app: %s
-              ports:
-              - port: 80
-                targetPort: 8080
-              type: ClusterIP
-            """.formatted(
-                config.artifactId(),
-                config.artifactId()
-            );
-        
-        Files.writeString(kubernetesDir.resolve("service.yaml"), service);
+    private ServiceConfig createServiceConfig(MicroserviceCandidate candidate) {
+        return new ServiceConfig(
+            "com.example", // Should be configurable
+            candidate.name(),
+            "0.1.0-SNAPSHOT",
+            "Microservice for " + candidate.boundedContext().name() + " bounded context",
+            "com.example." + candidate.name().replace("-", ""),
+            runtimeProfile.springBootVersion(),
+            true,  // Use Kubernetes
+            true,  // Use Helm
+            true,  // Use GitHub Actions
+            nativeImage,
+            runtimeProfile
+        );
     }
 
-    private void generateHelmCharts(Path helmDir, ServiceConfig config) throws IOException {
-        // Generate Chart.yaml
-        String chart = """
-            apiVersion: v2
-            name: %s
-            description: %s
-            version: %s
-            type: application
-            """.formatted(
-                config.artifactId(),
-                config.description(),
-                config.version()
-            );
-        
-        Files.writeString(helmDir.resolve("Chart.yaml"), chart);
-
-        // Generate values.yaml
-        String values = """
-            replicaCount: 3
-            
-            image:
-              repository: %s
-              tag: %s
-              pullPolicy: IfNotPresent
-            
-            service:
-              type: ClusterIP
-              port: 80
-            
-            ingress:
-              enabled: false
-            
-            resources:
-              limits:
-                cpu: 500m
-                memory: 512Mi
-              requests:
-                cpu: 250m
-                memory: 256Mi
-            """.formatted(
-                config.artifactId(),
-                config.version()
-            );
-        
-        Files.writeString(helmDir.resolve("values.yaml"), values);
-    }
+    /**
+     * Directories of the project structure, relative to the project root.
+     */
+    private List<String> projectDirectories(ServiceConfig config) {
+        String basePackagePath = config.packageName().replace(".", "/");
+        return List.of(
+            // Main directories
+            "src/main/java",
+            "src/main/resources",
+            "src/test/java",
+            "src/test/resources",
+
+            // Infrastructure directories
+            "docker",
+            "kubernetes",
+            "helm/" + config.artifactId(),
+            ".github/workflows",
 
-    private void generateGithubActions(Path githubDir, ServiceConfig config) throws IOException {
-        String workflow = """
-            name: CI/CD
-            
-            on:
-              push:
-                branches: [ main ]
-              pull_request:
-                branches: [ main ]
-            
-            jobs:
-              build:
-                runs-on: ubuntu-latest
-                steps:
-                - uses: actions/checkout@v4
-                
-                - name: Set up JDK 17
-                  uses: actions/setup-java@v3
-                  with:
-                    java-version: '17'
-                    distribution: 'temurin'
-                
-                - name: Build with Maven
-                  run: mvn clean package
-                
-                - name: Build Docker image
-                  run: |
-                    docker build -t %s:%s .
-                    
-                - name: Run tests
-                  run: mvn test
-            """.formatted(
-                config.artifactId(),
-                config.version()
-            );
-        
-        Files.writeString(githubDir.resolve("ci-cd.yml"), workflow);
+            // DDD layer directories
+            "src/main/java/" + basePackagePath + "/domain/model",
+            "src/main/java/" + basePackagePath + "/domain/repository",
+            "src/main/java/" + basePackagePath + "/domain/service",
+            "src/main/java/" + basePackagePath + "/application/service",
+            "src/main/java/" + basePackagePath + "/application/dto",
+            "src/main/java/" + basePackagePath + "/infrastructure/persistence",
+            "src/main/java/" + basePackagePath + "/infrastructure/messaging",
+            "src/main/java/" + basePackagePath + "/interfaces/rest"
+        );
     }
 
-    private void generateDomainModel(ProjectStructure structure, ServiceConfig config, MicroserviceCandidate candidate) throws IOException {
-        String basePackagePath = config.packageName().replace(".", "/");
-        Path domainModelDir = structure.srcMainJava().resolve(basePackagePath).resolve("domain/model");
-
-        // Generate aggregate roots
-        for (String aggregate : candidate.boundedContext().aggregateRoots()) {
-            String aggregateClass = """
-                package %s.domain.model;
-                
-                import lombok.Data;
-                import javax.persistence.Entity;
-                import javax.persistence.Id;
-                import javax.persistence.Version;
-                import java.util.UUID;
-                
-                @Data
-                @Entity
-                public class %s {
-                    @Id
-                    private UUID id;
-                    
-                    @Version
-                    private Long version;
-                    
-                    // Add fields based on domain model
-                }
-                """.formatted(
-                    config.packageName(),
-                    aggregate
-                );
-            
-            Files.writeString(domainModelDir.resolve(aggregate + ".java"), aggregateClass);
+    /**
+     * Compiles every template and target path, with all their variables required.
+     */
+    private static Map<String, CompiledTemplate> compileTemplates() {
+        Map<String, CompiledTemplate> compiled = new HashMap<>();
+        for (FileTemplate file : FILES) {
+            compiled.computeIfAbsent(file.template(), name -> compile(loadTemplate(name)));
+            compiled.computeIfAbsent(file.target(), SpringBootProjectGenerator::compile);
         }
+        return Map.copyOf(compiled);
     }
 
-    private void generateApplicationClass(ProjectStructure structure, ServiceConfig config) throws IOException {
-        String applicationClass = """
-            package %s;
-            
-            import org.springframework.boot.SpringApplication;
-            import org.springframework.boot.autoconfigure.SpringBootApplication;
-            import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
-            
-            @SpringBootApplication
-            @EnableDiscoveryClient
-            public class Application {
-                public static void main(String[] args) {
-                    SpringApplication.run(Application.class, args);
-                }
+    private static CompiledTemplate compile(String text) {
+        return CompiledTemplate.compile(text, CompiledTemplate.compile(text, null).variableNames());
+    }
+
+    private static String loadTemplate(String name) {
+        String resource = TEMPLATE_DIR + "/" + name;
+        try (InputStream in = SpringBootProjectGenerator.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Template not found: " + resource);
             }
-            """.formatted(config.packageName());
-        
-        String basePackagePath = config.packageName().replace(".", "/");
-        Files.writeString(
-            structure.srcMainJava().resolve(basePackagePath).resolve("Application.java"),
-            applicationClass
-        );
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load template " + resource, e);
+        }
     }
-}
\ No newline at end of file
+}
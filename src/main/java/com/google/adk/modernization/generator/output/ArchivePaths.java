@@ -0,0 +1,44 @@
+package com.google.adk.modernization.generator.output;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry names shared by the sinks.
+ */
+final class ArchivePaths {
+    private ArchivePaths() {}
+
+    /**
+     * Converts a relative path into an archive entry name with '/' separators.
+     *
+     * @throws IllegalArgumentException If the path is empty or leaves the archive root
+     */
+    static String normalize(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.replace('\\', '/').split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) {
+                continue;
+            }
+            if (segment.equals("..")) {
+                throw new IllegalArgumentException("Path leaves the archive root: " + path);
+            }
+            segments.add(segment);
+        }
+        if (segments.isEmpty()) {
+            throw new IllegalArgumentException("Empty archive path: " + path);
+        }
+        return String.join("/", segments);
+    }
+
+    /**
+     * @return The directories containing an entry, outermost first, each ending in '/'
+     */
+    static List<String> parents(String name) {
+        List<String> parents = new ArrayList<>();
+        for (int slash = name.indexOf('/'); slash >= 0; slash = name.indexOf('/', slash + 1)) {
+            parents.add(name.substring(0, slash + 1));
+        }
+        return parents;
+    }
+}
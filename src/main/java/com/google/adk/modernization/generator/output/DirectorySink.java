@@ -0,0 +1,41 @@
+package com.google.adk.modernization.generator.output;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes generated files into a directory tree. Safe for concurrent writes.
+ */
+public class DirectorySink implements OutputSink {
+    private final Path root;
+
+    public DirectorySink(Path root) {
+        this.root = root;
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    @Override
+    public void write(String path, byte[] content) throws IOException {
+        Path target = root.resolve(ArchivePaths.normalize(path));
+        Files.createDirectories(target.getParent());
+        Files.write(target, content);
+    }
+
+    @Override
+    public void directory(String path) throws IOException {
+        Files.createDirectories(root.resolve(ArchivePaths.normalize(path)));
+    }
+
+    @Override
+    public boolean concurrent() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+    }
+}
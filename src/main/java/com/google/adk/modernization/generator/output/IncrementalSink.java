@@ -0,0 +1,267 @@
+package com.google.adk.modernization.generator.output;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes into a directory tree only what changed since the last run, so
+ * regenerating an unchanged project keeps its files' modification times and
+ * the Maven, Docker layer and IDE caches built on them.
+ *
+ * A manifest in the root records the content hash, size and modification
+ * time of every file written through the sink. A file whose content hash
+ * matches what is on disk is not written again; the recorded size and time
+ * spare reading it back. On {@link #close()}, files recorded by the previous
+ * run but not written by this one are deleted, along with directories left
+ * empty, provided they were not modified since. Stale files are only looked
+ * for below the top-level directories written in this run, so generating a
+ * subset of the projects into a shared root leaves the others alone.
+ *
+ * A run that fails should not be closed: the previous manifest then stays
+ * in place, and the next run still skips the files that were written.
+ */
+public class IncrementalSink implements OutputSink {
+    private static final Logger log = LoggerFactory.getLogger(IncrementalSink.class);
+
+    /**
+     * Default manifest name, in the sink's root.
+     */
+    public static final String MANIFEST = ".generated-files";
+
+    private final DirectorySink directory;
+    private final Path manifest;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+    private final Set<String> scopes = ConcurrentHashMap.newKeySet();
+    private final Set<String> directories = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger unchanged = new AtomicInteger();
+    private final AtomicInteger deleted = new AtomicInteger();
+
+    /**
+     * A file as last written through the sink.
+     */
+    private record Entry(String hash, long size, long modified) {}
+
+    public IncrementalSink(Path root) throws IOException {
+        this(root, MANIFEST);
+    }
+
+    /**
+     * @param root Root directory
+     * @param manifestName Name of the manifest file in the root; sinks
+     *        sharing a root need different names
+     */
+    public IncrementalSink(Path root, String manifestName) throws IOException {
+        this.directory = new DirectorySink(root);
+        this.manifest = root.resolve(manifestName);
+        this.previous = load(manifest);
+    }
+
+    public Path root() {
+        return directory.root();
+    }
+
+    @Override
+    public void write(String path, byte[] content) throws IOException {
+        String name = ArchivePaths.normalize(path);
+        scopes.add(scope(name));
+        Path target = root().resolve(name);
+        String hash = hash(content);
+
+        BasicFileAttributes attributes = attributes(target);
+        if (attributes != null && attributes.size() == content.length
+                && (matches(previous.get(name), hash, attributes) || hash.equals(hash(Files.readAllBytes(target))))) {
+            current.put(name, new Entry(hash, attributes.size(), attributes.lastModifiedTime().toMillis()));
+            unchanged.incrementAndGet();
+            return;
+        }
+
+        directory.write(name, content);
+        attributes = Files.readAttributes(target, BasicFileAttributes.class);
+        current.put(name, new Entry(hash, attributes.size(), attributes.lastModifiedTime().toMillis()));
+        written.incrementAndGet();
+    }
+
+    @Override
+    public void directory(String path) throws IOException {
+        String name = ArchivePaths.normalize(path);
+        scopes.add(scope(name));
+        directories.add(name);
+        directory.directory(name);
+    }
+
+    /**
+     * Keeps a file written by an earlier run without passing its content
+     * again, e.g. one a caller already knows to be up to date.
+     */
+    public void keep(String path) {
+        String name = ArchivePaths.normalize(path);
+        scopes.add(scope(name));
+        Entry entry = previous.get(name);
+        if (entry != null) {
+            current.put(name, entry);
+        }
+    }
+
+    @Override
+    public boolean concurrent() {
+        return true;
+    }
+
+    /**
+     * @return Files written because they were new or changed
+     */
+    public int written() {
+        return written.get();
+    }
+
+    /**
+     * @return Files left alone because their content was unchanged
+     */
+    public int unchanged() {
+        return unchanged.get();
+    }
+
+    /**
+     * @return Stale files deleted on close
+     */
+    public int deleted() {
+        return deleted.get();
+    }
+
+    /**
+     * Deletes the stale files and saves the manifest.
+     */
+    @Override
+    public void close() throws IOException {
+        Map<String, Entry> kept = new TreeMap<>(current);
+        for (Map.Entry<String, Entry> stale : previous.entrySet()) {
+            String name = stale.getKey();
+            if (current.containsKey(name)) {
+                continue;
+            }
+            if (!scopes.contains(scope(name))) {
+                kept.put(name, stale.getValue());
+                continue;
+            }
+            Path target = root().resolve(name);
+            BasicFileAttributes attributes = attributes(target);
+            if (attributes == null) {
+                continue;
+            }
+            if (matches(stale.getValue(), stale.getValue().hash(), attributes)
+                    || stale.getValue().hash().equals(hash(Files.readAllBytes(target)))) {
+                Files.delete(target);
+                deleteEmptyParents(target.getParent());
+                deleted.incrementAndGet();
+            } else {
+                log.warn("Keeping stale file {}: it was modified since it was generated", target);
+            }
+        }
+        save(kept);
+        log.info("{}: {} files written, {} unchanged, {} stale files deleted",
+            root(), written.get(), unchanged.get(), deleted.get());
+    }
+
+    /**
+     * Deletes the directories a stale file leaves empty, except those created
+     * through {@link #directory(String)} in this run.
+     */
+    private void deleteEmptyParents(Path directory) throws IOException {
+        Path root = root().toAbsolutePath().normalize();
+        for (Path dir = directory.toAbsolutePath().normalize(); dir != null && dir.startsWith(root) && !dir.equals(root);
+                dir = dir.getParent()) {
+            if (directories.contains(root.relativize(dir).toString().replace('\\', '/'))) {
+                return;
+            }
+            try {
+                Files.delete(dir);
+            } catch (DirectoryNotEmptyException | NoSuchFileException e) {
+                return;
+            }
+        }
+    }
+
+    private static boolean matches(Entry entry, String hash, BasicFileAttributes attributes) {
+        return entry != null && entry.hash().equals(hash) && entry.size() == attributes.size()
+            && entry.modified() == attributes.lastModifiedTime().toMillis();
+    }
+
+    private static BasicFileAttributes attributes(Path file) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.isRegularFile() ? attributes : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The top-level directory of an entry, or the entry itself if it is in the root.
+     */
+    private static String scope(String name) {
+        int slash = name.indexOf('/');
+        return slash < 0 ? name : name.substring(0, slash);
+    }
+
+    /**
+     * Reads a manifest of "hash size modified path" lines; a missing or
+     * unreadable manifest only means every file is compared on disk.
+     */
+    private static Map<String, Entry> load(Path manifest) throws IOException {
+        Map<String, Entry> entries = new HashMap<>();
+        if (!Files.isRegularFile(manifest)) {
+            return entries;
+        }
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            String[] fields = line.split(" ", 4);
+            if (fields.length < 4) {
+                continue;
+            }
+            try {
+                entries.put(fields[3], new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2])));
+            } catch (NumberFormatException e) {
+                log.warn("Skipping unreadable manifest line in {}: {}", manifest, line);
+            }
+        }
+        return entries;
+    }
+
+    private void save(Map<String, Entry> entries) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        entries.forEach((name, entry) -> lines.append(entry.hash()).append(' ').append(entry.size()).append(' ')
+            .append(entry.modified()).append(' ').append(name).append('\n'));
+        Files.createDirectories(root());
+        Path temp = Files.createTempFile(root(), manifest.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(temp, lines, StandardCharsets.UTF_8);
+            Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.google.adk.modernization.generator.output;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Destination of generated projects: a directory tree, or a single zip or
+ * tar stream written in one sequential pass.
+ *
+ * Paths are relative, with '/' separators once written. Archive sinks are
+ * not thread-safe; only sinks reporting {@link #concurrent()} may be written
+ * from several threads at once.
+ */
+public interface OutputSink extends Closeable {
+    /**
+     * Writes a file, creating its parent directories as needed.
+     *
+     * @param path Path relative to the sink's root
+     * @param content File content
+     */
+    void write(String path, byte[] content) throws IOException;
+
+    /**
+     * Creates a directory, so empty directories are kept too.
+     *
+     * @param path Path relative to the sink's root
+     */
+    void directory(String path) throws IOException;
+
+    /**
+     * @return Whether files may be written from several threads at once
+     */
+    default boolean concurrent() {
+        return false;
+    }
+
+    /**
+     * Opens a sink by the target's name: a zip for {@code .zip}, a tar for
+     * {@code .tar}, a gzipped tar for {@code .tar.gz} or {@code .tgz}, and an
+     * {@link IncrementalSink} directory otherwise.
+     */
+    static OutputSink open(Path target) throws IOException {
+        String name = target.getFileName() == null ? "" : target.getFileName().toString();
+        if (!name.endsWith(".zip") && !name.endsWith(".tar") && !name.endsWith(".tar.gz") && !name.endsWith(".tgz")) {
+            return new IncrementalSink(target);
+        }
+        if (target.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+        }
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(target), 1 << 16);
+        if (name.endsWith(".zip")) {
+            return new ZipSink(out);
+        }
+        return new TarSink(name.endsWith(".tar") ? out : new GZIPOutputStream(out, 1 << 16));
+    }
+}
@@ -0,0 +1,169 @@
+package com.google.adk.modernization.generator.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Streams generated files into a POSIX (ustar) tar archive. Names that do not
+ * fit the ustar name and prefix fields are written with a pax extended
+ * header. Parent directories get their own entries the first time they are
+ * seen.
+ */
+public class TarSink implements OutputSink {
+    private static final int BLOCK = 512;
+    private static final byte FILE = '0';
+    private static final byte DIRECTORY = '5';
+    private static final byte PAX_HEADER = 'x';
+
+    private final OutputStream out;
+    private final Set<String> directories = new HashSet<>();
+    private final long time = System.currentTimeMillis() / 1000;
+
+    public TarSink(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(String path, byte[] content) throws IOException {
+        String name = ArchivePaths.normalize(path);
+        parents(name);
+        entry(name, FILE, 0644, content);
+    }
+
+    @Override
+    public void directory(String path) throws IOException {
+        String name = ArchivePaths.normalize(path);
+        parents(name);
+        addDirectory(name + "/");
+    }
+
+    private void parents(String name) throws IOException {
+        for (String parent : ArchivePaths.parents(name)) {
+            addDirectory(parent);
+        }
+    }
+
+    private void addDirectory(String name) throws IOException {
+        if (directories.add(name)) {
+            entry(name, DIRECTORY, 0755, new byte[0]);
+        }
+    }
+
+    private void entry(String name, byte type, int mode, byte[] content) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        String prefix = "";
+        String shortName = name;
+        if (nameBytes.length > 100) {
+            int split = splitPoint(name);
+            if (split < 0) {
+                paxPath(name);
+                // The ustar name is informational once a pax path is given
+                shortName = truncate(name.substring(name.lastIndexOf('/', name.length() - 2) + 1), 100);
+            } else {
+                prefix = name.substring(0, split);
+                shortName = name.substring(split + 1);
+            }
+        }
+        out.write(header(shortName, prefix, type, mode, content.length));
+        out.write(content);
+        pad(content.length);
+    }
+
+    /**
+     * Index of the '/' splitting a name into a prefix of at most 155 bytes
+     * and a name of at most 100, or -1 if there is none.
+     */
+    private static int splitPoint(String name) {
+        for (int slash = name.indexOf('/'); slash >= 0; slash = name.indexOf('/', slash + 1)) {
+            int prefixLength = name.substring(0, slash).getBytes(StandardCharsets.UTF_8).length;
+            int nameLength = name.substring(slash + 1).getBytes(StandardCharsets.UTF_8).length;
+            if (prefixLength <= 155 && nameLength <= 100 && nameLength > 0) {
+                return slash;
+            }
+        }
+        return -1;
+    }
+
+    private void paxPath(String name) throws IOException {
+        byte[] record = paxRecord("path", name);
+        out.write(header("PaxHeader", "", PAX_HEADER, 0644, record.length));
+        out.write(record);
+        pad(record.length);
+    }
+
+    /**
+     * A pax record "length key=value\n", whose length counts its own digits.
+     */
+    static byte[] paxRecord(String key, String value) {
+        int body = (" " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8).length;
+        int length = body + String.valueOf(body).length();
+        if (String.valueOf(length).length() != String.valueOf(body).length()) {
+            length++;
+        }
+        return (length + " " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] header(String name, String prefix, byte type, int mode, long size) {
+        byte[] header = new byte[BLOCK];
+        put(header, 0, 100, name.getBytes(StandardCharsets.UTF_8));
+        octal(header, 100, 8, mode);
+        octal(header, 108, 8, 0);
+        octal(header, 116, 8, 0);
+        octal(header, 124, 12, size);
+        octal(header, 136, 12, time);
+        header[156] = type;
+        put(header, 257, 6, "ustar\0".getBytes(StandardCharsets.US_ASCII));
+        put(header, 263, 2, "00".getBytes(StandardCharsets.US_ASCII));
+        put(header, 345, 155, prefix.getBytes(StandardCharsets.UTF_8));
+
+        // Checksum over the header with the checksum field read as spaces
+        for (int i = 148; i < 156; i++) {
+            header[i] = ' ';
+        }
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        byte[] digits = String.format("%06o", checksum).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(digits, 0, header, 148, 6);
+        header[154] = 0;
+        header[155] = ' ';
+        return header;
+    }
+
+    private static void put(byte[] header, int offset, int length, byte[] value) {
+        System.arraycopy(value, 0, header, offset, Math.min(length, value.length));
+    }
+
+    private static void octal(byte[] header, int offset, int length, long value) {
+        String digits = String.format("%0" + (length - 1) + "o", value);
+        put(header, offset, length - 1, digits.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String truncate(String value, int bytes) {
+        String result = value;
+        while (result.getBytes(StandardCharsets.UTF_8).length > bytes) {
+            result = result.substring(0, result.length() - 1);
+        }
+        return result;
+    }
+
+    private void pad(long written) throws IOException {
+        int remainder = (int) (written % BLOCK);
+        if (remainder != 0) {
+            out.write(new byte[BLOCK - remainder]);
+        }
+    }
+
+    /**
+     * Writes the two empty blocks ending the archive and closes the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        out.write(new byte[2 * BLOCK]);
+        out.close();
+    }
+}
@@ -0,0 +1,60 @@
+package com.google.adk.modernization.generator.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams generated files into a zip archive. Parent directories get their
+ * own entries the first time they are seen.
+ */
+public class ZipSink implements OutputSink {
+    private final ZipOutputStream zip;
+    private final Set<String> directories = new HashSet<>();
+    private final long time = System.currentTimeMillis();
+
+    public ZipSink(OutputStream out) {
+        this.zip = new ZipOutputStream(out);
+    }
+
+    @Override
+    public void write(String path, byte[] content) throws IOException {
+        String name = ArchivePaths.normalize(path);
+        parents(name);
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(time);
+        zip.putNextEntry(entry);
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    @Override
+    public void directory(String path) throws IOException {
+        String name = ArchivePaths.normalize(path);
+        parents(name);
+        addDirectory(name + "/");
+    }
+
+    private void parents(String name) throws IOException {
+        for (String parent : ArchivePaths.parents(name)) {
+            addDirectory(parent);
+        }
+    }
+
+    private void addDirectory(String name) throws IOException {
+        if (directories.add(name)) {
+            ZipEntry entry = new ZipEntry(name);
+            entry.setTime(time);
+            zip.putNextEntry(entry);
+            zip.closeEntry();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+}
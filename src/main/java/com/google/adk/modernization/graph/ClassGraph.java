@@ -0,0 +1,239 @@
+package com.google.adk.modernization.graph;
+
+import java.util.*;
+
+/**
+ * Immutable weighted class dependency graph in compressed sparse row form.
+ *
+ * Nodes are class names, numbered in sorted order so that everything computed
+ * on the graph is deterministic. The graph keeps the directed edges (source
+ * depends on target) as well as their undirected, symmetrized form used for
+ * clustering. Parallel edges are merged by summing their weights.
+ */
+public final class ClassGraph {
+    private final String[] names;
+    private final Map<String, Integer> ids;
+
+    // Directed: outgoing and incoming adjacency
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final double[] outWeights;
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final double[] inWeights;
+
+    // Undirected: every edge appears in both endpoints' rows
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+
+    private ClassGraph(String[] names, Map<String, Integer> ids, int[] sources, int[] destinations,
+                       double[] edgeWeights, int count) {
+        this.names = names;
+        this.ids = ids;
+        int n = names.length;
+
+        Csr out = Csr.of(n, sources, destinations, edgeWeights, count);
+        outOffsets = out.offsets;
+        outTargets = out.targets;
+        outWeights = out.weights;
+
+        // Transpose; rows come out sorted because sources are visited in order
+        inOffsets = new int[n + 1];
+        for (int e = 0; e < outTargets.length; e++) {
+            inOffsets[outTargets[e] + 1]++;
+        }
+        prefixSum(inOffsets);
+        inSources = new int[outTargets.length];
+        inWeights = new double[outTargets.length];
+        int[] inFill = Arrays.copyOf(inOffsets, n);
+        for (int u = 0; u < n; u++) {
+            for (int e = outOffsets[u]; e < outOffsets[u + 1]; e++) {
+                int slot = inFill[outTargets[e]]++;
+                inSources[slot] = u;
+                inWeights[slot] = outWeights[e];
+            }
+        }
+
+        // Symmetrize, merging u->v and v->u into one undirected edge
+        int directed = outTargets.length;
+        int[] us = new int[directed * 2];
+        int[] vs = new int[directed * 2];
+        double[] ws = new double[directed * 2];
+        int k = 0;
+        for (int u = 0; u < n; u++) {
+            for (int e = outOffsets[u]; e < outOffsets[u + 1]; e++) {
+                us[k] = u;
+                vs[k] = outTargets[e];
+                ws[k++] = outWeights[e];
+                us[k] = outTargets[e];
+                vs[k] = u;
+                ws[k++] = outWeights[e];
+            }
+        }
+        Csr undirected = Csr.of(n, us, vs, ws, k);
+        offsets = undirected.offsets;
+        targets = undirected.targets;
+        weights = undirected.weights;
+    }
+
+    public static Builder builder(Collection<String> classNames) {
+        return new Builder(classNames);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int node) {
+        return names[node];
+    }
+
+    /**
+     * @return The node id of a class, or -1 if it is not in the graph
+     */
+    public int id(String className) {
+        Integer id = ids.get(className);
+        return id == null ? -1 : id;
+    }
+
+    public int outStart(int node) {
+        return outOffsets[node];
+    }
+
+    public int outEnd(int node) {
+        return outOffsets[node + 1];
+    }
+
+    public int outTarget(int edge) {
+        return outTargets[edge];
+    }
+
+    public double outWeight(int edge) {
+        return outWeights[edge];
+    }
+
+    public int inStart(int node) {
+        return inOffsets[node];
+    }
+
+    public int inEnd(int node) {
+        return inOffsets[node + 1];
+    }
+
+    public int inSource(int edge) {
+        return inSources[edge];
+    }
+
+    public double inWeight(int edge) {
+        return inWeights[edge];
+    }
+
+    /**
+     * Undirected adjacency, for algorithms that ignore edge direction.
+     */
+    public int[] offsets() {
+        return offsets;
+    }
+
+    public int[] targets() {
+        return targets;
+    }
+
+    public double[] weights() {
+        return weights;
+    }
+
+    private static void prefixSum(int[] offsets) {
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+    }
+
+    /**
+     * Row-compressed adjacency with rows sorted by target and parallel edges merged.
+     */
+    private record Csr(int[] offsets, int[] targets, double[] weights) {
+        static Csr of(int n, int[] sources, int[] destinations, double[] edgeWeights, int count) {
+            int[] rowStart = new int[n + 1];
+            for (int e = 0; e < count; e++) {
+                rowStart[sources[e] + 1]++;
+            }
+            prefixSum(rowStart);
+
+            int[] fill = Arrays.copyOf(rowStart, n);
+            long[] packed = new long[count];
+            for (int e = 0; e < count; e++) {
+                // Target in the high bits so sorting a row orders it by target
+                packed[fill[sources[e]]++] = ((long) destinations[e] << 32) | e;
+            }
+
+            int[] offsets = new int[n + 1];
+            int[] targets = new int[count];
+            double[] weights = new double[count];
+            int size = 0;
+            for (int u = 0; u < n; u++) {
+                Arrays.sort(packed, rowStart[u], rowStart[u + 1]);
+                int previous = -1;
+                for (int i = rowStart[u]; i < rowStart[u + 1]; i++) {
+                    int target = (int) (packed[i] >>> 32);
+                    double weight = edgeWeights[(int) packed[i]];
+                    if (target == previous) {
+                        weights[size - 1] += weight;
+                    } else {
+                        targets[size] = target;
+                        weights[size++] = weight;
+                        previous = target;
+                    }
+                }
+                offsets[u + 1] = size;
+            }
+            return new Csr(offsets, Arrays.copyOf(targets, size), Arrays.copyOf(weights, size));
+        }
+    }
+
+    /**
+     * Collects weighted edges between known classes. Edges to unknown classes
+     * and self-edges are ignored.
+     */
+    public static final class Builder {
+        private final String[] names;
+        private final Map<String, Integer> ids;
+        private int[] sources = new int[16];
+        private int[] destinations = new int[16];
+        private double[] weights = new double[16];
+        private int count;
+
+        private Builder(Collection<String> classNames) {
+            this.names = new TreeSet<>(classNames).toArray(String[]::new);
+            this.ids = new HashMap<>(names.length * 2);
+            for (int i = 0; i < names.length; i++) {
+                ids.put(names[i], i);
+            }
+        }
+
+        public boolean contains(String className) {
+            return ids.containsKey(className);
+        }
+
+        public Builder addEdge(String source, String target, double weight) {
+            Integer u = ids.get(source);
+            Integer v = ids.get(target);
+            if (u != null && v != null && !u.equals(v) && weight > 0) {
+                if (count == sources.length) {
+                    sources = Arrays.copyOf(sources, count * 2);
+                    destinations = Arrays.copyOf(destinations, count * 2);
+                    weights = Arrays.copyOf(weights, count * 2);
+                }
+                sources[count] = u;
+                destinations[count] = v;
+                weights[count++] = weight;
+            }
+            return this;
+        }
+
+        public ClassGraph build() {
+            return new ClassGraph(names, ids, sources, destinations, weights, count);
+        }
+    }
+}
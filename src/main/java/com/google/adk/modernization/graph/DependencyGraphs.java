@@ -0,0 +1,130 @@
+package com.google.adk.modernization.graph;
+
+import com.google.adk.modernization.analyzer.CodeAnalyzer.ClassInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyType;
+import com.google.adk.modernization.profile.CallProfile;
+import com.google.adk.modernization.profile.CallProfile.CallEdge;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Builds {@link ClassGraph}s from code analysis results.
+ */
+public final class DependencyGraphs {
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+    // Each class is linked to this many following classes of its package
+    private static final int PACKAGE_NEIGHBOURS = 2;
+
+    private DependencyGraphs() {}
+
+    /**
+     * Default edge weight per dependency type: inheritance binds classes
+     * tightest, plain association loosest.
+     */
+    public static double weight(DependencyType type) {
+        return switch (type) {
+            case INHERITANCE -> 4.0;
+            case COMPOSITION -> 3.0;
+            case AGGREGATION -> 2.0;
+            case ASSOCIATION -> 1.0;
+        };
+    }
+
+    /**
+     * Builds the weighted dependency graph between the given classes.
+     */
+    public static ClassGraph build(List<ClassInfo> classes, List<DependencyInfo> dependencies) {
+        return build(classes, dependencies, 0);
+    }
+
+    /**
+     * Builds the weighted dependency graph between the given classes.
+     *
+     * @param classes Classes to use as nodes
+     * @param dependencies Dependencies between them
+     * @param packageAffinity Weight of extra edges linking classes of the same
+     *                        package, or 0 for none
+     * @return The graph
+     */
+    public static ClassGraph build(
+            List<ClassInfo> classes,
+            List<DependencyInfo> dependencies,
+            double packageAffinity) {
+        return build(classes, dependencies, packageAffinity, CallProfile.EMPTY, 0);
+    }
+
+    /**
+     * Builds the weighted dependency graph between the given classes, adding
+     * the runtime calls of a profile so that hot call paths bind classes
+     * tighter than static dependencies alone.
+     *
+     * @param classes Classes to use as nodes
+     * @param dependencies Dependencies between them
+     * @param packageAffinity Weight of extra edges linking classes of the same
+     *                        package, or 0 for none
+     * @param profile Runtime calls between the classes
+     * @param profileWeight Scale of call edges; a call pair seen in n samples
+     *                      weighs {@code profileWeight * ln(1 + n)}
+     * @return The graph
+     */
+    public static ClassGraph build(
+            List<ClassInfo> classes,
+            List<DependencyInfo> dependencies,
+            double packageAffinity,
+            CallProfile profile,
+            double profileWeight) {
+        ClassGraph.Builder builder = ClassGraph.builder(
+            classes.stream().map(ClassInfo::name).collect(Collectors.toSet()));
+
+        for (DependencyInfo dependency : dependencies) {
+            double weight = weight(dependency.type());
+            for (String target : resolveTargets(dependency.targetClass(), builder)) {
+                builder.addEdge(dependency.sourceClass(), target, weight);
+            }
+        }
+
+        if (profileWeight > 0) {
+            for (CallEdge edge : profile.edges()) {
+                builder.addEdge(edge.caller(), edge.callee(), profileWeight * Math.log1p(edge.samples()));
+            }
+        }
+
+        if (packageAffinity > 0) {
+            Map<String, List<String>> byPackage = classes.stream()
+                .collect(Collectors.groupingBy(ClassInfo::packageName, TreeMap::new,
+                    Collectors.mapping(ClassInfo::name, Collectors.toList())));
+            for (List<String> names : byPackage.values()) {
+                List<String> sorted = names.stream().distinct().sorted().toList();
+                for (int i = 0; i < sorted.size(); i++) {
+                    for (int k = 1; k <= PACKAGE_NEIGHBOURS && i + k < sorted.size(); k++) {
+                        builder.addEdge(sorted.get(i), sorted.get(i + k), packageAffinity);
+                    }
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Resolves a dependency's target type, such as {@code List<Pet>} or
+     * {@code com.example.Owner[]}, to the known classes it mentions.
+     */
+    public static List<String> resolveTargets(String typeName, ClassGraph.Builder builder) {
+        if (builder.contains(typeName)) {
+            return List.of(typeName);
+        }
+        List<String> targets = new ArrayList<>(1);
+        Matcher matcher = IDENTIFIER.matcher(typeName);
+        while (matcher.find()) {
+            String identifier = matcher.group();
+            if (builder.contains(identifier) && !targets.contains(identifier)) {
+                targets.add(identifier);
+            }
+        }
+        return targets;
+    }
+}
@@ -0,0 +1,259 @@
+package com.google.adk.modernization.graph;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Deterministic Louvain community detection on the undirected view of a
+ * {@link ClassGraph}.
+ *
+ * Connected components cannot share a community, so each component is
+ * clustered independently and the components are processed in parallel.
+ * Nodes are always visited in id order and ties keep the current community,
+ * so the result does not depend on thread scheduling.
+ */
+public final class LouvainClustering {
+    private static final int MAX_PASSES = 32;
+    private static final double MIN_GAIN = 1e-12;
+
+    private LouvainClustering() {}
+
+    /**
+     * @param graph The graph to cluster
+     * @param resolution Modularity resolution; higher values give smaller communities
+     * @return Community id per node, numbered by each community's lowest node id
+     */
+    public static int[] cluster(ClassGraph graph, double resolution) {
+        int n = graph.size();
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        double[] weights = graph.weights();
+
+        List<int[]> components = components(n, offsets, targets);
+        int[][] local = new int[components.size()][];
+        IntStream.range(0, components.size()).parallel().forEach(c -> {
+            int[] nodes = components.get(c);
+            local[c] = nodes.length == 1
+                ? new int[] {0}
+                : clusterComponent(nodes, offsets, targets, weights, resolution);
+        });
+
+        // Merge into global ids; components are ordered by lowest node id
+        int[] community = new int[n];
+        Arrays.fill(community, -1);
+        int next = 0;
+        for (int c = 0; c < components.size(); c++) {
+            int[] nodes = components.get(c);
+            Map<Integer, Integer> remap = new HashMap<>();
+            for (int i = 0; i < nodes.length; i++) {
+                community[nodes[i]] = remap.computeIfAbsent(local[c][i], k -> remap.size());
+            }
+            for (int i = 0; i < nodes.length; i++) {
+                community[nodes[i]] += next;
+            }
+            next += remap.size();
+        }
+        return renumber(community);
+    }
+
+    private static int[] clusterComponent(
+            int[] nodes, int[] offsets, int[] targets, double[] weights, double resolution) {
+        // Build the component's local CSR graph
+        Map<Integer, Integer> localId = new HashMap<>(nodes.length * 2);
+        for (int i = 0; i < nodes.length; i++) {
+            localId.put(nodes[i], i);
+        }
+        int[] off = new int[nodes.length + 1];
+        for (int i = 0; i < nodes.length; i++) {
+            off[i + 1] = off[i] + offsets[nodes[i] + 1] - offsets[nodes[i]];
+        }
+        int[] tgt = new int[off[nodes.length]];
+        double[] wgt = new double[off[nodes.length]];
+        for (int i = 0; i < nodes.length; i++) {
+            int pos = off[i];
+            for (int e = offsets[nodes[i]]; e < offsets[nodes[i] + 1]; e++) {
+                tgt[pos] = localId.get(targets[e]);
+                wgt[pos++] = weights[e];
+            }
+        }
+
+        int[] membership = IntStream.range(0, nodes.length).toArray();
+        while (true) {
+            int size = off.length - 1;
+            int[] community = moveNodes(size, off, tgt, wgt, resolution);
+            int count = 1 + Arrays.stream(community).max().orElse(0);
+            if (count == size) {
+                break;
+            }
+            for (int i = 0; i < membership.length; i++) {
+                membership[i] = community[membership[i]];
+            }
+
+            // Aggregate communities into super-nodes
+            int[][] members = new int[count][];
+            int[] sizes = new int[count];
+            for (int c : community) {
+                sizes[c]++;
+            }
+            for (int c = 0; c < count; c++) {
+                members[c] = new int[sizes[c]];
+                sizes[c] = 0;
+            }
+            for (int i = 0; i < size; i++) {
+                members[community[i]][sizes[community[i]]++] = i;
+            }
+
+            double[] accumulated = new double[count];
+            int[] touched = new int[count];
+            int[] newOff = new int[count + 1];
+            List<int[]> rowTargets = new ArrayList<>(count);
+            List<double[]> rowWeights = new ArrayList<>(count);
+            for (int c = 0; c < count; c++) {
+                int touchedCount = 0;
+                for (int i : members[c]) {
+                    for (int e = off[i]; e < off[i + 1]; e++) {
+                        int d = community[tgt[e]];
+                        if (accumulated[d] == 0) {
+                            touched[touchedCount++] = d;
+                        }
+                        accumulated[d] += wgt[e];
+                    }
+                }
+                int[] row = Arrays.copyOf(touched, touchedCount);
+                Arrays.sort(row);
+                double[] rowWeight = new double[touchedCount];
+                for (int k = 0; k < touchedCount; k++) {
+                    rowWeight[k] = accumulated[row[k]];
+                    accumulated[row[k]] = 0;
+                }
+                rowTargets.add(row);
+                rowWeights.add(rowWeight);
+                newOff[c + 1] = newOff[c] + touchedCount;
+            }
+
+            off = newOff;
+            tgt = new int[newOff[count]];
+            wgt = new double[newOff[count]];
+            for (int c = 0; c < count; c++) {
+                System.arraycopy(rowTargets.get(c), 0, tgt, off[c], rowTargets.get(c).length);
+                System.arraycopy(rowWeights.get(c), 0, wgt, off[c], rowWeights.get(c).length);
+            }
+        }
+        return membership;
+    }
+
+    /**
+     * One level of Louvain local moving. Self-loops (edges to the node itself)
+     * carry the internal weight of aggregated communities.
+     */
+    private static int[] moveNodes(int n, int[] off, int[] tgt, double[] wgt, double resolution) {
+        double[] degree = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            for (int e = off[i]; e < off[i + 1]; e++) {
+                degree[i] += wgt[e];
+            }
+            total += degree[i];
+        }
+        int[] community = IntStream.range(0, n).toArray();
+        if (total == 0) {
+            return community;
+        }
+
+        double[] communityDegree = degree.clone();
+        double[] linkWeight = new double[n];
+        int[] touched = new int[n];
+
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            boolean moved = false;
+            for (int i = 0; i < n; i++) {
+                int current = community[i];
+                int touchedCount = 0;
+                for (int e = off[i]; e < off[i + 1]; e++) {
+                    int j = tgt[e];
+                    if (j == i) {
+                        continue;
+                    }
+                    int c = community[j];
+                    if (linkWeight[c] == 0) {
+                        touched[touchedCount++] = c;
+                    }
+                    linkWeight[c] += wgt[e];
+                }
+
+                communityDegree[current] -= degree[i];
+                double scale = resolution * degree[i] / total;
+                int best = current;
+                double bestGain = linkWeight[current] - scale * communityDegree[current];
+                for (int k = 0; k < touchedCount; k++) {
+                    int c = touched[k];
+                    double gain = linkWeight[c] - scale * communityDegree[c];
+                    if (gain > bestGain + MIN_GAIN || (Math.abs(gain - bestGain) <= MIN_GAIN && c < best && best != current)) {
+                        best = c;
+                        bestGain = gain;
+                    }
+                }
+                communityDegree[best] += degree[i];
+                for (int k = 0; k < touchedCount; k++) {
+                    linkWeight[touched[k]] = 0;
+                }
+
+                if (best != current) {
+                    community[i] = best;
+                    moved = true;
+                }
+            }
+            if (!moved) {
+                break;
+            }
+        }
+        return renumber(community);
+    }
+
+    private static List<int[]> components(int n, int[] offsets, int[] targets) {
+        int[] parent = IntStream.range(0, n).toArray();
+        for (int u = 0; u < n; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int a = find(parent, u);
+                int b = find(parent, targets[e]);
+                if (a != b) {
+                    parent[Math.max(a, b)] = Math.min(a, b);
+                }
+            }
+        }
+
+        Map<Integer, List<Integer>> byRoot = new LinkedHashMap<>();
+        for (int u = 0; u < n; u++) {
+            byRoot.computeIfAbsent(find(parent, u), r -> new ArrayList<>()).add(u);
+        }
+        return byRoot.values().stream()
+            .map(nodes -> nodes.stream().mapToInt(Integer::intValue).toArray())
+            .toList();
+    }
+
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    private static int[] renumber(int[] community) {
+        int[] ids = new int[community.length];
+        Arrays.fill(ids, -1);
+        int next = 0;
+        int[] result = new int[community.length];
+        for (int i = 0; i < community.length; i++) {
+            int c = community[i];
+            if (c >= ids.length) {
+                throw new IllegalStateException("Community id out of range: " + c);
+            }
+            if (ids[c] < 0) {
+                ids[c] = next++;
+            }
+            result[i] = ids[c];
+        }
+        return result;
+    }
+}
@@ -2,8 +2,14 @@ package com.google.adk.modernization.llm;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -11,26 +17,55 @@ import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Component
 public class GooglePaLMClient implements LLMClient {
+    private static final Logger log = LoggerFactory.getLogger(GooglePaLMClient.class);
+    private static final long RETRY_BACKOFF_MILLIS = 500;
+
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final LLMMetrics metrics;
     private final String apiEndpoint;
     private final String apiKey;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
 
+    @Autowired
     public GooglePaLMClient(
+            LLMMetrics metrics,
             @Value("${llm.palm.endpoint}") String apiEndpoint,
-            @Value("${llm.palm.key}") String apiKey) {
-        this.restTemplate = new RestTemplate();
+            @Value("${llm.palm.key}") String apiKey,
+            @Value("${llm.palm.max-retries:2}") int maxRetries) {
+        this(new RestTemplate(), metrics, apiEndpoint, apiKey, maxRetries, RETRY_BACKOFF_MILLIS);
+    }
+
+    /**
+     * @param retryBackoffMillis Wait before the first retry, doubled for each further one
+     */
+    GooglePaLMClient(
+            RestTemplate restTemplate,
+            LLMMetrics metrics,
+            String apiEndpoint,
+            String apiKey,
+            int maxRetries,
+            long retryBackoffMillis) {
+        this.restTemplate = restTemplate;
         this.objectMapper = new ObjectMapper();
+        this.metrics = metrics;
         this.apiEndpoint = apiEndpoint;
         this.apiKey = apiKey;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMillis = retryBackoffMillis;
     }
 
     @Override
     public CompletableFuture<String> complete(String prompt, Map<String, Object> parameters) {
+        String promptId = (String) parameters.get(PROMPT_ID);
         return CompletableFuture.supplyAsync(() -> {
+            Timer.Sample sample = metrics.start(promptId, prompt);
+            String text = null;
             try {
                 // Create request payload for Gemini API
                 Map<String, Object> part = new HashMap<>();
@@ -41,14 +76,14 @@ public class GooglePaLMClient implements LLMClient {
                 request.put("contents", List.of(content));
 
                 // Add optional parameters if provided
-                if (!parameters.isEmpty()) {
-                    Map<String, Object> generationConfig = new HashMap<>();
-                    if (parameters.containsKey("temperature")) {
-                        generationConfig.put("temperature", parameters.get("temperature"));
-                    }
-                    if (parameters.containsKey("candidateCount") || parameters.containsKey("n")) {
-                        generationConfig.put("candidateCount", parameters.getOrDefault("candidateCount", parameters.getOrDefault("n", 1)));
-                    }
+                Map<String, Object> generationConfig = new HashMap<>();
+                if (parameters.containsKey("temperature")) {
+                    generationConfig.put("temperature", parameters.get("temperature"));
+                }
+                if (parameters.containsKey("candidateCount") || parameters.containsKey("n")) {
+                    generationConfig.put("candidateCount", parameters.getOrDefault("candidateCount", parameters.getOrDefault("n", 1)));
+                }
+                if (!generationConfig.isEmpty()) {
                     request.put("generationConfig", generationConfig);
                 }
 
@@ -59,33 +94,61 @@ public class GooglePaLMClient implements LLMClient {
                     .queryParam("key", apiKey)
                     .toUriString();
 
-                // Log the URL (with redacted API key) and key prefix for debugging
-                System.out.println("Making request to URL: " + url.replace(apiKey, "REDACTED_API_KEY"));
-                System.out.println("Using API Key starting with: " + (apiKey != null ? apiKey.substring(0, Math.min(8, apiKey.length())) : "null"));
+                log.debug("Sending prompt {} ({} chars) to {}", promptId, prompt.length(), apiEndpoint);
 
                 // Call Gemini API
-                String responseText = restTemplate.postForObject(
-                    url,
-                    request,
-                    String.class
-                );
+                String responseText = post(url, request, promptId);
 
                 // Parse response to get generated text
                 JsonNode responseJson = objectMapper.readTree(responseText);
-                return responseJson
+                text = responseJson
                     .path("candidates").get(0)
                     .path("content").path("parts").get(0)
                     .path("text").asText();
+                return text;
+            } catch (InterruptedException e) {
+                // Interrupted during a retry backoff: keep the flag for the pool thread
+                Thread.currentThread().interrupt();
+                log.warn("Prompt {} interrupted", promptId);
+                throw new CompletionException(e);
             } catch (Exception e) {
                 String errorDetail = e.getMessage();
                 if (e instanceof org.springframework.web.client.HttpClientErrorException) {
                     errorDetail = ((org.springframework.web.client.HttpClientErrorException) e).getResponseBodyAsString();
                 }
+                log.warn("Prompt {} failed: {}", promptId, errorDetail);
                 throw new RuntimeException("Failed to generate text: " + errorDetail, e);
+            } finally {
+                metrics.stop(sample, promptId, text);
             }
         });
     }
 
+    private String post(String url, Map<String, Object> request, String promptId) throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return restTemplate.postForObject(url, request, String.class);
+            } catch (HttpStatusCodeException e) {
+                int status = e.getStatusCode().value();
+                metrics.recordError(promptId, String.valueOf(status));
+                boolean retryable = status == 429 || e.getStatusCode().is5xxServerError();
+                if (!retryable || attempt >= maxRetries) {
+                    throw e;
+                }
+            } catch (ResourceAccessException e) {
+                metrics.recordError(promptId, "io");
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+            }
+
+            metrics.recordRetry(promptId);
+            long backoff = retryBackoffMillis << attempt;
+            log.debug("Retrying prompt {} in {} ms (attempt {})", promptId, backoff, attempt + 1);
+            Thread.sleep(backoff);
+        }
+    }
+
     @Override
     public <T> CompletableFuture<T> complete(String prompt, Class<T> responseType, Map<String, Object> parameters) {
         return complete(prompt, parameters)
@@ -93,8 +156,9 @@ public class GooglePaLMClient implements LLMClient {
                 try {
                     return objectMapper.readValue(response, responseType);
                 } catch (Exception e) {
+                    metrics.recordError((String) parameters.get(PROMPT_ID), "parse");
                     throw new RuntimeException("Failed to parse LLM response", e);
                 }
             });
     }
-}
\ No newline at end of file
+}
@@ -7,6 +7,12 @@ import java.util.concurrent.CompletableFuture;
  * Interface for interacting with Large Language Models.
  */
 public interface LLMClient {
+    /**
+     * Parameter key naming the prompt template a request was built from.
+     * Used for telemetry only and never forwarded to the model.
+     */
+    String PROMPT_ID = "promptId";
+
     /**
      * Send a prompt to the LLM and get a completion.
      *
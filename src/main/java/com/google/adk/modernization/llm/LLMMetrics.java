@@ -0,0 +1,113 @@
+package com.google.adk.modernization.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micrometer instrumentation for LLM calls, tagged by prompt id so the
+ * slowest and most expensive prompts can be found.
+ */
+@Component
+public class LLMMetrics {
+    static final String UNKNOWN_PROMPT = "unknown";
+
+    private final MeterRegistry registry;
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public LLMMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Marks the start of a call and returns the sample used to time it.
+     */
+    public Timer.Sample start(String promptId, String prompt) {
+        String tag = tag(promptId);
+        inFlight(tag).incrementAndGet();
+        size("llm.request.size", tag).record(prompt.length());
+        tokens(tag, "prompt").record(estimateTokens(prompt));
+        return Timer.start(registry);
+    }
+
+    /**
+     * Marks the end of a call; a null response means the call failed.
+     */
+    public void stop(Timer.Sample sample, String promptId, String response) {
+        String tag = tag(promptId);
+        inFlight(tag).decrementAndGet();
+        sample.stop(Timer.builder("llm.request.latency")
+            .description("LLM request latency including retries")
+            .tag("prompt", tag)
+            .tag("outcome", response != null ? "success" : "error")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .publishPercentileHistogram()
+            .register(registry));
+
+        if (response != null) {
+            size("llm.response.size", tag).record(response.length());
+            tokens(tag, "completion").record(estimateTokens(response));
+        }
+    }
+
+    public void recordRetry(String promptId) {
+        Counter.builder("llm.request.retries")
+            .tag("prompt", tag(promptId))
+            .register(registry)
+            .increment();
+    }
+
+    /**
+     * @param status HTTP status code, or a short failure class such as "io"
+     */
+    public void recordError(String promptId, String status) {
+        Counter.builder("llm.request.errors")
+            .tag("prompt", tag(promptId))
+            .tag("status", status)
+            .register(registry)
+            .increment();
+    }
+
+    /**
+     * Rough token estimate of ~4 characters per token, good enough to compare prompts.
+     */
+    public static long estimateTokens(String text) {
+        return (text.length() + 3) / 4;
+    }
+
+    private AtomicInteger inFlight(String tag) {
+        return inFlight.computeIfAbsent(tag, t -> {
+            AtomicInteger value = new AtomicInteger();
+            Gauge.builder("llm.requests.in-flight", value, AtomicInteger::get)
+                .tag("prompt", t)
+                .register(registry);
+            return value;
+        });
+    }
+
+    private DistributionSummary size(String name, String tag) {
+        return DistributionSummary.builder(name)
+            .baseUnit("chars")
+            .tag("prompt", tag)
+            .register(registry);
+    }
+
+    private DistributionSummary tokens(String tag, String direction) {
+        return DistributionSummary.builder("llm.tokens.estimated")
+            .baseUnit("tokens")
+            .tag("prompt", tag)
+            .tag("direction", direction)
+            .register(registry);
+    }
+
+    private static String tag(String promptId) {
+        return promptId != null ? promptId : UNKNOWN_PROMPT;
+    }
+}
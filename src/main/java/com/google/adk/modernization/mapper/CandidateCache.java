@@ -0,0 +1,189 @@
+package com.google.adk.modernization.mapper;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.adk.modernization.mapper.DDDMapper.BoundedContext;
+import com.google.adk.modernization.mapper.DDDMapper.DomainEvent;
+import com.google.adk.modernization.mapper.DDDMapper.MicroserviceCandidate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent store of generated microservice candidates, keyed by a
+ * fingerprint of the bounded context and the prompt inputs they were
+ * generated from, so re-running after a small change only regenerates the
+ * candidates of contexts that changed.
+ *
+ * The store is a JSON file loaded on first use and rewritten atomically on
+ * {@link #flush()}. An empty file setting disables persistence.
+ */
+@Component
+public class CandidateCache {
+    private static final Logger log = LoggerFactory.getLogger(CandidateCache.class);
+
+    private final ObjectMapper objectMapper;
+    private final Path file;
+    private final Counter hits;
+    private final Counter misses;
+    private volatile Map<String, MicroserviceCandidate> entries;
+    private volatile boolean dirty;
+
+    /**
+     * @param file JSON file holding the candidates, or empty to keep them in memory only
+     */
+    public CandidateCache(
+            ObjectMapper objectMapper,
+            MeterRegistry registry,
+            @Value("${agent.mapper.candidates.cache-file:}") String file) {
+        this.objectMapper = objectMapper;
+        this.file = file.isBlank() ? null : Path.of(file);
+        this.hits = Counter.builder("mapper.candidates.cache")
+            .tag("result", "hit")
+            .description("Microservice candidates reused from the cache")
+            .register(registry);
+        this.misses = Counter.builder("mapper.candidates.cache")
+            .tag("result", "miss")
+            .description("Microservice candidates not found in the cache")
+            .register(registry);
+    }
+
+    /**
+     * Canonical fingerprint of a context: its name, aggregate roots, entities,
+     * value objects, repositories, services and events in sorted order. The
+     * free-text description is left out.
+     */
+    public static String fingerprint(BoundedContext context) {
+        StringBuilder canonical = new StringBuilder();
+        canonical.append("name:").append(context.name()).append('\n');
+        appendSorted(canonical, "aggregateRoots", context.aggregateRoots());
+        appendSorted(canonical, "entities", context.entities());
+        appendSorted(canonical, "valueObjects", context.valueObjects());
+        appendSorted(canonical, "repositories", context.repositories());
+        appendSorted(canonical, "services", context.services());
+
+        List<String> events = new ArrayList<>();
+        for (DomainEvent event : Objects.requireNonNullElse(context.domainEvents(), List.<DomainEvent>of())) {
+            StringBuilder entry = new StringBuilder(event.name()).append('@').append(event.aggregateRoot()).append('(');
+            appendSorted(entry, "", event.payload());
+            events.add(entry.append(')').toString());
+        }
+        appendSorted(canonical, "events", events);
+        return sha256(canonical.toString());
+    }
+
+    /**
+     * Key of a candidate: the context fingerprint plus everything else that
+     * went into its prompt.
+     *
+     * @param context The bounded context
+     * @param promptInputs Other prompt inputs, such as the template and class details
+     */
+    public static String key(BoundedContext context, String... promptInputs) {
+        StringBuilder key = new StringBuilder(fingerprint(context));
+        for (String input : promptInputs) {
+            key.append('\n').append(sha256(input));
+        }
+        return sha256(key.toString());
+    }
+
+    /**
+     * Returns the stored candidate for a key, rebound to the given context.
+     */
+    public Optional<MicroserviceCandidate> get(String key, BoundedContext context) {
+        MicroserviceCandidate stored = entries().get(key);
+        if (stored == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(new MicroserviceCandidate(
+            stored.name(),
+            context,
+            stored.apis(),
+            stored.commands(),
+            stored.queries(),
+            stored.requiredServices()
+        ));
+    }
+
+    public void put(String key, MicroserviceCandidate candidate) {
+        entries().put(key, candidate);
+        dirty = true;
+    }
+
+    /**
+     * Writes the store to its file if anything changed since the last flush.
+     */
+    public synchronized void flush() {
+        if (file == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+            objectMapper.writeValue(temp.toFile(), new TreeMap<>(entries()));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            log.warn("Failed to write candidate cache {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Map<String, MicroserviceCandidate> entries() {
+        Map<String, MicroserviceCandidate> loaded = entries;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = entries;
+                if (loaded == null) {
+                    loaded = new ConcurrentHashMap<>(load());
+                    entries = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private Map<String, MicroserviceCandidate> load() {
+        if (file == null || !Files.exists(file)) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(file.toFile(), new TypeReference<Map<String, MicroserviceCandidate>>() {});
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable candidate cache {}: {}", file, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private static void appendSorted(StringBuilder canonical, String label, Collection<String> values) {
+        canonical.append(label).append(':');
+        Objects.requireNonNullElse(values, Set.<String>of()).stream()
+            .sorted()
+            .forEach(v -> canonical.append(v).append(','));
+        canonical.append('\n');
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.google.adk.modernization.mapper;
 
 import com.google.adk.modernization.analyzer.CodeAnalyzer.ClassInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.CodeAnalysisResult;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 public interface DDDMapper {
     /**
@@ -13,6 +15,78 @@ public interface DDDMapper {
      */
     List<BoundedContext> identifyBoundedContexts(List<ClassInfo> classes);
 
+    /**
+     * Maps classes to bounded contexts using the full analysis, so that
+     * implementations can take the dependencies between classes into account.
+     *
+     * @param analysis Analysis of the monolith
+     * @return List of identified bounded contexts
+     */
+    default List<BoundedContext> identifyBoundedContexts(CodeAnalysisResult analysis) {
+        return identifyBoundedContexts(analysis.classes());
+    }
+
+    /**
+     * Maps classes to bounded contexts and scores how well the contexts
+     * split the dependency graph.
+     *
+     * @param analysis Analysis of the monolith
+     * @return The bounded contexts with their coupling and cohesion metrics
+     */
+    default ScoredContexts identifyScoredBoundedContexts(CodeAnalysisResult analysis) {
+        List<BoundedContext> contexts = identifyBoundedContexts(analysis);
+        return new ScoredContexts(contexts, PartitionScorer.score(contexts, analysis));
+    }
+
+    /**
+     * Bounded contexts together with the quality of the split they make.
+     */
+    record ScoredContexts(
+        List<BoundedContext> contexts,
+        PartitionQuality quality
+    ) {}
+
+    /**
+     * Coupling and cohesion of a whole split of the monolith into contexts or
+     * services. Higher modularity, fewer cut edges and higher cohesion are better.
+     *
+     * @param modularity Newman modularity of the split, between -0.5 and 1
+     * @param cutEdges Dependencies between classes of different contexts
+     * @param meanCohesion Average cohesion over the contexts
+     * @param meanInstability Average instability over the contexts
+     * @param unassignedClasses Classes of the analysis in no context
+     * @param contexts Metrics per context, in input order
+     */
+    record PartitionQuality(
+        double modularity,
+        int cutEdges,
+        double meanCohesion,
+        double meanInstability,
+        int unassignedClasses,
+        List<ContextMetrics> contexts
+    ) {}
+
+    /**
+     * Coupling and cohesion of one bounded context or service.
+     *
+     * @param name Context or service name
+     * @param classes Number of classes in it
+     * @param afferentCoupling Classes outside that depend on it (Ca)
+     * @param efferentCoupling Classes inside that depend on others (Ce)
+     * @param instability Ce / (Ca + Ce)
+     * @param cohesion Share of its dependency weight that stays inside
+     * @param cutEdges Dependencies crossing its boundary
+     */
+    record ContextMetrics(
+        String name,
+        int classes,
+        int afferentCoupling,
+        int efferentCoupling,
+        double instability,
+        double cohesion,
+        int cutEdges
+    ) {}
+
     /**
      * Represents a bounded context in DDD.
      */
@@ -37,7 +111,8 @@ public interface DDDMapper {
     ) {}
 
     /**
-     * Maps a bounded context to a microservice candidate.
+     * Maps a bounded context to a microservice candidate. APIs are
+     * "METHOD /path" or, when the method is unknown, a bare path.
      */
     record MicroserviceCandidate(
         String name,
@@ -46,7 +121,14 @@ public interface DDDMapper {
         Set<String> commands,
         Set<String> queries,
         List<String> requiredServices
-    ) {}
+    ) {
+        /**
+         * The path of an API, without its method.
+         */
+        public static String path(String api) {
+            return api.substring(api.indexOf(' ') + 1);
+        }
+    }
 
     /**
      * Generate microservice candidates from bounded contexts.
@@ -55,4 +137,50 @@ public interface DDDMapper {
      * @return List of microservice candidates
      */
     List<MicroserviceCandidate> generateMicroserviceCandidates(List<BoundedContext> boundedContexts);
-}
\ No newline at end of file
+
+    /**
+     * Generate microservice candidates from bounded contexts, using the
+     * analysis to work out dependencies between the candidates.
+     *
+     * @param boundedContexts List of identified bounded contexts
+     * @param analysis Analysis of the monolith the contexts were identified from
+     * @return List of microservice candidates
+     */
+    default List<MicroserviceCandidate> generateMicroserviceCandidates(
+            List<BoundedContext> boundedContexts,
+            CodeAnalysisResult analysis) {
+        return generateMicroserviceCandidates(boundedContexts);
+    }
+
+    /**
+     * Generate microservice candidates, delivering each one as soon as it is
+     * ready. Failures are reported per context instead of failing the whole run.
+     *
+     * @param boundedContexts List of identified bounded contexts
+     * @param analysis Analysis of the monolith the contexts were identified from
+     * @return One outcome per context, in completion order
+     */
+    default Stream<CandidateOutcome> streamMicroserviceCandidates(
+            List<BoundedContext> boundedContexts,
+            CodeAnalysisResult analysis) {
+        return generateMicroserviceCandidates(boundedContexts, analysis).stream()
+            .map(candidate -> new CandidateOutcome(candidate.boundedContext(), candidate, null));
+    }
+
+    /**
+     * The result of generating the microservice candidate for one context.
+     *
+     * @param context The bounded context
+     * @param candidate The candidate, or null if generation failed
+     * @param error Why generation failed, or null if it succeeded
+     */
+    record CandidateOutcome(
+        BoundedContext context,
+        MicroserviceCandidate candidate,
+        String error
+    ) {
+        public boolean succeeded() {
+            return candidate != null;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.google.adk.modernization.mapper;
+
+import com.google.adk.modernization.analyzer.CodeAnalyzer.ClassInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyType;
+import com.google.adk.modernization.graph.ClassGraph;
+import com.google.adk.modernization.graph.DependencyGraphs;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Rule-based DDD role assignment for classes that classify themselves through
+ * their annotations, naming or dependency shape, so that only ambiguous
+ * classes need to be sent to the LLM.
+ */
+@Component
+public class DomainRoleClassifier {
+
+    /**
+     * DDD building block a class plays.
+     */
+    public enum DomainRole {
+        ENTITY,
+        VALUE_OBJECT,
+        REPOSITORY,
+        SERVICE
+    }
+
+    /**
+     * Outcome of classifying a set of classes.
+     */
+    public record ClassificationResult(
+        Map<String, DomainRole> classified,
+        List<ClassInfo> ambiguous
+    ) {}
+
+    private static final Map<String, DomainRole> ANNOTATION_ROLES = Map.ofEntries(
+        Map.entry("Entity", DomainRole.ENTITY),
+        Map.entry("Table", DomainRole.ENTITY),
+        Map.entry("Document", DomainRole.ENTITY),
+        Map.entry("Embeddable", DomainRole.VALUE_OBJECT),
+        Map.entry("Value", DomainRole.VALUE_OBJECT),
+        Map.entry("Immutable", DomainRole.VALUE_OBJECT),
+        Map.entry("Repository", DomainRole.REPOSITORY),
+        Map.entry("RepositoryDefinition", DomainRole.REPOSITORY),
+        Map.entry("Service", DomainRole.SERVICE)
+    );
+
+    private static final Map<String, DomainRole> SUFFIX_ROLES = Map.of(
+        "Repository", DomainRole.REPOSITORY,
+        "Dao", DomainRole.REPOSITORY,
+        "DAO", DomainRole.REPOSITORY,
+        "Dto", DomainRole.VALUE_OBJECT,
+        "DTO", DomainRole.VALUE_OBJECT,
+        "VO", DomainRole.VALUE_OBJECT,
+        "ValueObject", DomainRole.VALUE_OBJECT,
+        "Service", DomainRole.SERVICE,
+        "ServiceImpl", DomainRole.SERVICE
+    );
+
+    private static final List<String> ACCESSOR_PREFIXES = List.of("get", "set", "is", "with");
+    private static final Set<String> OBJECT_METHODS = Set.of("equals", "hashCode", "toString");
+
+    /**
+     * Classifies classes from their annotations and names only.
+     */
+    public ClassificationResult classify(List<ClassInfo> classes) {
+        return classify(classes, List.of());
+    }
+
+    /**
+     * Classifies classes from their annotations, names and dependency shape.
+     *
+     * @param classes Classes to classify
+     * @param dependencies Static dependencies between the classes
+     * @return Roles for the classes that could be classified and the rest
+     */
+    public ClassificationResult classify(List<ClassInfo> classes, List<DependencyInfo> dependencies) {
+        Map<String, DomainRole> classified = new LinkedHashMap<>();
+        List<ClassInfo> unresolved = new ArrayList<>();
+
+        for (ClassInfo classInfo : classes) {
+            Optional<DomainRole> role = classify(classInfo);
+            if (role.isPresent()) {
+                classified.put(classInfo.name(), role.get());
+            } else {
+                unresolved.add(classInfo);
+            }
+        }
+
+        // Structural rule: plain data holders embedded by an entity and
+        // depending on no other class themselves are value objects. Fields of
+        // JDK types such as String or List<String> are not dependencies here.
+        ClassGraph.Builder known = ClassGraph.builder(classes.stream().map(ClassInfo::name).toList());
+        Set<String> embeddedInEntities = new HashSet<>();
+        Set<String> withOutgoing = new HashSet<>();
+        for (DependencyInfo dependency : dependencies) {
+            for (String target : DependencyGraphs.resolveTargets(dependency.targetClass(), known)) {
+                withOutgoing.add(dependency.sourceClass());
+                if (classified.get(dependency.sourceClass()) == DomainRole.ENTITY
+                        && dependency.type() != DependencyType.INHERITANCE) {
+                    embeddedInEntities.add(target);
+                }
+            }
+        }
+
+        List<ClassInfo> ambiguous = new ArrayList<>();
+        for (ClassInfo classInfo : unresolved) {
+            if (embeddedInEntities.contains(classInfo.name())
+                    && !withOutgoing.contains(classInfo.name())
+                    && isDataHolder(classInfo)) {
+                classified.put(classInfo.name(), DomainRole.VALUE_OBJECT);
+            } else {
+                ambiguous.add(classInfo);
+            }
+        }
+
+        return new ClassificationResult(classified, ambiguous);
+    }
+
+    /**
+     * Classifies a single class from its annotations and name. Classes whose
+     * signals disagree are left unclassified.
+     */
+    public Optional<DomainRole> classify(ClassInfo classInfo) {
+        Set<DomainRole> byAnnotation = EnumSet.noneOf(DomainRole.class);
+        for (String annotation : classInfo.annotations()) {
+            DomainRole role = ANNOTATION_ROLES.get(simpleName(annotation));
+            if (role != null) {
+                byAnnotation.add(role);
+            }
+        }
+        if (byAnnotation.size() > 1) {
+            return Optional.empty();
+        }
+
+        DomainRole byName = roleFromName(classInfo.name());
+        if (byAnnotation.size() == 1) {
+            DomainRole role = byAnnotation.iterator().next();
+            return byName == null || byName == role ? Optional.of(role) : Optional.empty();
+        }
+        return Optional.ofNullable(byName);
+    }
+
+    /**
+     * Strips a role suffix from a class name, so OwnerRepository and
+     * OwnerDto both map to Owner.
+     */
+    public String stem(String className) {
+        String stem = className;
+        for (String suffix : SUFFIX_ROLES.keySet()) {
+            if (className.length() > suffix.length() && className.endsWith(suffix)
+                    && className.length() - suffix.length() < stem.length()) {
+                stem = className.substring(0, className.length() - suffix.length());
+            }
+        }
+        return stem;
+    }
+
+    private DomainRole roleFromName(String name) {
+        DomainRole match = null;
+        int matchLength = 0;
+        for (Map.Entry<String, DomainRole> entry : SUFFIX_ROLES.entrySet()) {
+            String suffix = entry.getKey();
+            // Require a stem so that a class called just "Service" is not matched
+            if (name.length() > suffix.length() && name.endsWith(suffix) && suffix.length() > matchLength) {
+                match = entry.getValue();
+                matchLength = suffix.length();
+            }
+        }
+        return match;
+    }
+
+    private boolean isDataHolder(ClassInfo classInfo) {
+        if (!classInfo.annotations().isEmpty() || classInfo.fields().isEmpty()) {
+            return false;
+        }
+        return classInfo.methods().stream().allMatch(method ->
+            OBJECT_METHODS.contains(method)
+                || ACCESSOR_PREFIXES.stream().anyMatch(method::startsWith));
+    }
+
+    private static String simpleName(String annotation) {
+        int dot = annotation.lastIndexOf('.');
+        return dot < 0 ? annotation : annotation.substring(dot + 1);
+    }
+}
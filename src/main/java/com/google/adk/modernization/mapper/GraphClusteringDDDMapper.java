@@ -0,0 +1,368 @@
+package com.google.adk.modernization.mapper;
+
+import com.google.adk.modernization.analyzer.CodeAnalyzer.ClassInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.CodeAnalysisResult;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyType;
+import com.google.adk.modernization.graph.ClassGraph;
+import com.google.adk.modernization.graph.DependencyGraphs;
+import com.google.adk.modernization.graph.LouvainClustering;
+import com.google.adk.modernization.graph.PartitionMetrics;
+import com.google.adk.modernization.mapper.DomainRoleClassifier.DomainRole;
+import com.google.adk.modernization.profile.CallProfile;
+import com.google.adk.modernization.profile.JfrProfileReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+
+/**
+ * Deterministic DDDMapper that needs no LLM: bounded contexts are the
+ * communities found by Louvain clustering of the weighted class dependency
+ * graph, and DDD roles come from {@link DomainRoleClassifier}.
+ *
+ * Usable on its own, offline, or as a cheap first pass whose clusters are
+ * refined by {@link LLMDrivenDDDMapper}.
+ */
+@Component
+public class GraphClusteringDDDMapper implements DDDMapper {
+    private final DomainRoleClassifier classifier;
+    private final double resolution;
+    private final double packageAffinity;
+    private final double[] alternativeResolutions;
+    private final JfrProfileReader profileReader;
+    private final double profileWeight;
+
+    public GraphClusteringDDDMapper(DomainRoleClassifier classifier, double resolution, double packageAffinity) {
+        this(classifier, resolution, packageAffinity, new double[0], new JfrProfileReader(""), 0);
+    }
+
+    /**
+     * @param alternativeResolutions Further resolutions tried by
+     *        {@link #identifyScoredBoundedContexts}, which keeps the split
+     *        with the highest modularity
+     * @param profileReader Source of runtime call weights
+     * @param profileWeight Weight of runtime calls relative to static dependencies
+     */
+    @Autowired
+    public GraphClusteringDDDMapper(
+            DomainRoleClassifier classifier,
+            @Value("${agent.mapper.clustering.resolution:1.0}") double resolution,
+            @Value("${agent.mapper.clustering.package-affinity:0.5}") double packageAffinity,
+            @Value("${agent.mapper.clustering.alternative-resolutions:0.5,0.75,1.5,2.0}") double[] alternativeResolutions,
+            JfrProfileReader profileReader,
+            @Value("${agent.profile.weight:1.0}") double profileWeight) {
+        this.classifier = classifier;
+        this.resolution = resolution;
+        this.packageAffinity = packageAffinity;
+        this.alternativeResolutions = alternativeResolutions.clone();
+        this.profileReader = profileReader;
+        this.profileWeight = profileWeight;
+    }
+
+    @Override
+    public List<BoundedContext> identifyBoundedContexts(List<ClassInfo> classes) {
+        return identifyBoundedContexts(new CodeAnalysisResult(List.of(), classes, List.of()));
+    }
+
+    @Override
+    public List<BoundedContext> identifyBoundedContexts(CodeAnalysisResult analysis) {
+        return toBoundedContexts(cluster(analysis), analysis);
+    }
+
+    /**
+     * Clusters at the configured and every alternative resolution and keeps
+     * the split with the highest modularity on the dependency graph.
+     */
+    @Override
+    public ScoredContexts identifyScoredBoundedContexts(CodeAnalysisResult analysis) {
+        // Splits are compared without package affinity, but with runtime calls,
+        // so that cutting a hot call path counts against a split
+        CallProfile profile = profile(analysis);
+        ClassGraph affinityGraph = DependencyGraphs.build(analysis.classes(), analysis.dependencies(), packageAffinity,
+            profile, profileWeight);
+        ClassGraph dependencyGraph = DependencyGraphs.build(analysis.classes(), analysis.dependencies(), 0,
+            profile, profileWeight);
+
+        List<List<ClassInfo>> best = null;
+        int[] bestPartition = null;
+        double bestModularity = Double.NEGATIVE_INFINITY;
+        for (double candidate : resolutions()) {
+            List<List<ClassInfo>> clusters = cluster(analysis, affinityGraph, candidate);
+            int[] partition = partition(dependencyGraph, clusters);
+            double modularity = PartitionMetrics.modularity(dependencyGraph, partition, clusters.size());
+            if (modularity > bestModularity) {
+                best = clusters;
+                bestPartition = partition;
+                bestModularity = modularity;
+            }
+        }
+
+        List<BoundedContext> contexts = toBoundedContexts(best, analysis);
+        List<String> names = contexts.stream().map(BoundedContext::name).toList();
+        return new ScoredContexts(contexts, PartitionScorer.score(dependencyGraph, bestPartition, names));
+    }
+
+    private double[] resolutions() {
+        return DoubleStream.concat(DoubleStream.of(resolution), Arrays.stream(alternativeResolutions))
+            .filter(r -> r > 0)
+            .distinct()
+            .toArray();
+    }
+
+    private static int[] partition(ClassGraph graph, List<List<ClassInfo>> clusters) {
+        int[] partition = new int[graph.size()];
+        Arrays.fill(partition, -1);
+        for (int p = 0; p < clusters.size(); p++) {
+            for (ClassInfo member : clusters.get(p)) {
+                partition[graph.id(member.name())] = p;
+            }
+        }
+        return partition;
+    }
+
+    private List<BoundedContext> toBoundedContexts(List<List<ClassInfo>> clusters, CodeAnalysisResult analysis) {
+        Map<String, DomainRole> roles = classifier
+            .classify(analysis.classes(), analysis.dependencies())
+            .classified();
+
+        Map<String, List<DependencyInfo>> outgoing = analysis.dependencies().stream()
+            .collect(Collectors.groupingBy(DependencyInfo::sourceClass));
+
+        Set<String> usedNames = new HashSet<>();
+        return clusters.stream()
+            .map(cluster -> toBoundedContext(cluster, outgoing, roles, usedNames))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Partitions the classes into cohesive clusters, largest first. Classes
+     * left on their own by the clustering are grouped by package.
+     *
+     * @param analysis Analysis of the monolith
+     * @return Clusters of classes
+     */
+    public List<List<ClassInfo>> cluster(CodeAnalysisResult analysis) {
+        return cluster(analysis, clusteringGraph(analysis), resolution);
+    }
+
+    /**
+     * The graph clustered: static dependencies, package affinity and, when
+     * JFR recordings are configured, runtime call weights.
+     */
+    private ClassGraph clusteringGraph(CodeAnalysisResult analysis) {
+        return DependencyGraphs.build(analysis.classes(), analysis.dependencies(), packageAffinity,
+            profile(analysis), profileWeight);
+    }
+
+    private CallProfile profile(CodeAnalysisResult analysis) {
+        return profileWeight > 0
+            ? profileReader.read(analysis.classes().stream().map(ClassInfo::name).toList())
+            : CallProfile.EMPTY;
+    }
+
+    private List<List<ClassInfo>> cluster(CodeAnalysisResult analysis, ClassGraph graph, double resolution) {
+        int[] community = LouvainClustering.cluster(graph, resolution);
+
+        Map<String, ClassInfo> byName = new LinkedHashMap<>();
+        for (ClassInfo classInfo : analysis.classes()) {
+            byName.putIfAbsent(classInfo.name(), classInfo);
+        }
+
+        Map<Integer, List<ClassInfo>> byCommunity = new TreeMap<>();
+        for (int node = 0; node < graph.size(); node++) {
+            byCommunity.computeIfAbsent(community[node], c -> new ArrayList<>()).add(byName.get(graph.name(node)));
+        }
+
+        List<List<ClassInfo>> clusters = new ArrayList<>();
+        Map<String, List<ClassInfo>> singletonsByPackage = new TreeMap<>();
+        for (List<ClassInfo> members : byCommunity.values()) {
+            if (members.size() == 1) {
+                singletonsByPackage.computeIfAbsent(members.get(0).packageName(), p -> new ArrayList<>())
+                    .add(members.get(0));
+            } else {
+                clusters.add(members);
+            }
+        }
+        clusters.addAll(singletonsByPackage.values());
+        clusters.sort(Comparator.<List<ClassInfo>>comparingInt(List::size).reversed());
+        return clusters;
+    }
+
+    @Override
+    public List<MicroserviceCandidate> generateMicroserviceCandidates(List<BoundedContext> boundedContexts) {
+        return generateMicroserviceCandidates(boundedContexts, List.of());
+    }
+
+    @Override
+    public List<MicroserviceCandidate> generateMicroserviceCandidates(
+            List<BoundedContext> boundedContexts,
+            CodeAnalysisResult analysis) {
+        return generateMicroserviceCandidates(boundedContexts, analysis.dependencies());
+    }
+
+    private List<MicroserviceCandidate> generateMicroserviceCandidates(
+            List<BoundedContext> boundedContexts,
+            List<DependencyInfo> dependencies) {
+        Map<String, String> serviceByClass = new HashMap<>();
+        for (BoundedContext context : boundedContexts) {
+            String service = serviceName(context);
+            classesOf(context).forEach(c -> serviceByClass.putIfAbsent(c, service));
+        }
+
+        // A service requires every other service owning a class it depends on
+        Map<String, Set<String>> required = new HashMap<>();
+        ClassGraph.Builder known = ClassGraph.builder(serviceByClass.keySet());
+        for (DependencyInfo dependency : dependencies) {
+            String source = serviceByClass.get(dependency.sourceClass());
+            if (source == null) {
+                continue;
+            }
+            for (String target : DependencyGraphs.resolveTargets(dependency.targetClass(), known)) {
+                String targetService = serviceByClass.get(target);
+                if (!source.equals(targetService)) {
+                    required.computeIfAbsent(source, s -> new TreeSet<>()).add(targetService);
+                }
+            }
+        }
+
+        List<MicroserviceCandidate> candidates = new ArrayList<>();
+        for (BoundedContext context : boundedContexts) {
+            String service = serviceName(context);
+            Set<String> apis = new TreeSet<>();
+            Set<String> commands = new TreeSet<>();
+            Set<String> queries = new TreeSet<>();
+            for (String root : context.aggregateRoots()) {
+                String resource = "/api/" + kebabCase(root) + "s";
+                apis.add(resource);
+                apis.add(resource + "/{id}");
+                commands.add("Create" + root);
+                commands.add("Update" + root);
+                queries.add("Get" + root);
+                queries.add("List" + root + "s");
+            }
+            candidates.add(new MicroserviceCandidate(
+                service,
+                context,
+                apis,
+                commands,
+                queries,
+                new ArrayList<>(required.getOrDefault(service, Set.of()))
+            ));
+        }
+        return candidates;
+    }
+
+    private BoundedContext toBoundedContext(
+            List<ClassInfo> members,
+            Map<String, List<DependencyInfo>> outgoing,
+            Map<String, DomainRole> roles,
+            Set<String> usedNames) {
+        Set<String> names = members.stream().map(ClassInfo::name).collect(Collectors.toSet());
+        Map<DomainRole, Set<String>> byRole = new EnumMap<>(DomainRole.class);
+        for (DomainRole role : DomainRole.values()) {
+            byRole.put(role, new TreeSet<>());
+        }
+        for (ClassInfo member : members) {
+            byRole.get(roles.getOrDefault(member.name(), fallbackRole(member))).add(member.name());
+        }
+
+        // Degree within the cluster, and entities held by other entities
+        Map<String, Double> degree = new HashMap<>();
+        Set<String> held = new HashSet<>();
+        ClassGraph.Builder known = ClassGraph.builder(names);
+        Set<String> entities = byRole.get(DomainRole.ENTITY);
+        List<DependencyInfo> dependencies = names.stream()
+            .flatMap(n -> outgoing.getOrDefault(n, List.of()).stream())
+            .toList();
+        for (DependencyInfo dependency : dependencies) {
+            for (String target : DependencyGraphs.resolveTargets(dependency.targetClass(), known)) {
+                double weight = DependencyGraphs.weight(dependency.type());
+                degree.merge(dependency.sourceClass(), weight, Double::sum);
+                degree.merge(target, weight, Double::sum);
+                if (entities.contains(dependency.sourceClass()) && entities.contains(target)
+                        && !dependency.sourceClass().equals(target)
+                        && dependency.type() != DependencyType.INHERITANCE) {
+                    held.add(target);
+                }
+            }
+        }
+        Comparator<String> byDegree = Comparator
+            .<String>comparingDouble(n -> degree.getOrDefault(n, 0.0)).reversed()
+            .thenComparing(Comparator.naturalOrder());
+
+        Set<String> aggregateRoots = entities.stream()
+            .filter(e -> !held.contains(e))
+            .collect(Collectors.toCollection(TreeSet::new));
+        if (aggregateRoots.isEmpty() && !entities.isEmpty()) {
+            aggregateRoots.add(entities.stream().min(byDegree).orElseThrow());
+        }
+        entities.removeAll(aggregateRoots);
+
+        String central = (aggregateRoots.isEmpty() ? names : aggregateRoots).stream()
+            .min(byDegree)
+            .orElseThrow();
+        String name = contextName(members, central, usedNames);
+
+        return new BoundedContext(
+            name,
+            "Cluster of " + members.size() + " classes around " + central
+                + ", detected from static dependencies",
+            aggregateRoots,
+            entities,
+            byRole.get(DomainRole.VALUE_OBJECT),
+            byRole.get(DomainRole.REPOSITORY),
+            byRole.get(DomainRole.SERVICE),
+            new ArrayList<>()
+        );
+    }
+
+    private DomainRole fallbackRole(ClassInfo classInfo) {
+        // Stateless classes with behaviour act as services, the rest hold state
+        return classInfo.fields().isEmpty() && !classInfo.methods().isEmpty()
+            ? DomainRole.SERVICE
+            : DomainRole.ENTITY;
+    }
+
+    /**
+     * Names a context after the package most of its classes share, or after
+     * its most central class.
+     */
+    private String contextName(List<ClassInfo> members, String central, Set<String> usedNames) {
+        Map<String, Long> packages = members.stream()
+            .collect(Collectors.groupingBy(ClassInfo::packageName, Collectors.counting()));
+        String name = packages.entrySet().stream()
+            .filter(e -> !e.getKey().isEmpty() && e.getValue() * 2 > members.size())
+            .map(e -> e.getKey().substring(e.getKey().lastIndexOf('.') + 1))
+            .map(segment -> Character.toUpperCase(segment.charAt(0)) + segment.substring(1))
+            .findFirst()
+            .orElse(central);
+
+        if (!usedNames.add(name)) {
+            name = name + " " + central;
+            usedNames.add(name);
+        }
+        return name;
+    }
+
+    private Set<String> classesOf(BoundedContext context) {
+        Set<String> classes = new LinkedHashSet<>();
+        classes.addAll(context.aggregateRoots());
+        classes.addAll(context.entities());
+        classes.addAll(context.valueObjects());
+        classes.addAll(context.repositories());
+        classes.addAll(context.services());
+        return classes;
+    }
+
+    private String serviceName(BoundedContext context) {
+        return kebabCase(context.name().replace(" ", "")) + "-service";
+    }
+
+    private static String kebabCase(String name) {
+        return name.replaceAll("([a-z0-9])([A-Z])", "$1-$2").toLowerCase();
+    }
+}
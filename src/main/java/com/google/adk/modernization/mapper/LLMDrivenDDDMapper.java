@@ -2,110 +2,750 @@ package com.google.adk.modernization.mapper;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.adk.modernization.analyzer.CodeAnalyzer.ClassInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.CodeAnalysisResult;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyInfo;
+import com.google.adk.modernization.analyzer.ContextSelector;
+import com.google.adk.modernization.analyzer.ContextSelector.Selection;
+import com.google.adk.modernization.analyzer.StructuralFingerprinter;
+import com.google.adk.modernization.analyzer.StructuralFingerprinter.ClassGroup;
+import com.google.adk.modernization.graph.ClassGraph;
+import com.google.adk.modernization.graph.DependencyGraphs;
+import com.google.adk.modernization.mapper.DomainRoleClassifier.ClassificationResult;
+import com.google.adk.modernization.mapper.DomainRoleClassifier.DomainRole;
 import com.google.adk.modernization.llm.LLMClient;
 import com.google.adk.modernization.prompt.PromptManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+@Primary
 @Component
 public class LLMDrivenDDDMapper implements DDDMapper {
+    private static final Logger log = LoggerFactory.getLogger(LLMDrivenDDDMapper.class);
+    static final String MODE_HIERARCHICAL = "hierarchical";
+
     private final LLMClient llmClient;
     private final PromptManager promptManager;
     private final ObjectMapper objectMapper;
+    private final DomainRoleClassifier classifier;
+    private final StructuralFingerprinter fingerprinter;
+    private final GraphClusteringDDDMapper clustering;
+    private final ContextSelector selector;
+    private final CandidateCache cache;
+    private final String mode;
+    private final int maxPartitionSize;
+    private final int maxParallelism;
+    private final long candidateTimeoutSeconds;
+    private final int candidateRetries;
 
+    /**
+     * @param mode "single" sends all classes in one prompt; "hierarchical"
+     *             clusters first and refines each partition in parallel
+     * @param maxPartitionSize Maximum number of classes per partition prompt
+     * @param maxParallelism Maximum number of candidates generated at once
+     * @param candidateTimeoutSeconds Time allowed per candidate attempt
+     * @param candidateRetries Further attempts per candidate after a failure
+     */
     public LLMDrivenDDDMapper(
             LLMClient llmClient,
             PromptManager promptManager,
-            ObjectMapper objectMapper) {
+            ObjectMapper objectMapper,
+            DomainRoleClassifier classifier,
+            StructuralFingerprinter fingerprinter,
+            GraphClusteringDDDMapper clustering,
+            ContextSelector selector,
+            CandidateCache cache,
+            @Value("${agent.mapper.mode:single}") String mode,
+            @Value("${agent.mapper.max-partition-size:150}") int maxPartitionSize,
+            @Value("${agent.mapper.candidates.max-parallelism:4}") int maxParallelism,
+            @Value("${agent.mapper.candidates.timeout-seconds:120}") long candidateTimeoutSeconds,
+            @Value("${agent.mapper.candidates.max-retries:1}") int candidateRetries) {
         this.llmClient = llmClient;
         this.promptManager = promptManager;
         this.objectMapper = objectMapper;
+        this.classifier = classifier;
+        this.fingerprinter = fingerprinter;
+        this.clustering = clustering;
+        this.selector = selector;
+        this.cache = cache;
+        this.mode = mode;
+        this.maxPartitionSize = maxPartitionSize;
+        this.maxParallelism = Math.max(1, maxParallelism);
+        this.candidateTimeoutSeconds = candidateTimeoutSeconds;
+        this.candidateRetries = candidateRetries;
     }
 
     @Override
     public List<BoundedContext> identifyBoundedContexts(List<ClassInfo> classes) {
+        return identifyBoundedContexts(classes, List.of());
+    }
+
+    @Override
+    public List<BoundedContext> identifyBoundedContexts(CodeAnalysisResult analysis) {
+        return identifyBoundedContexts(analysis.classes(), analysis.dependencies());
+    }
+
+    private List<BoundedContext> identifyBoundedContexts(List<ClassInfo> classes, List<DependencyInfo> dependencies) {
         try {
-            // Prepare class information for LLM analysis
-            String classesJson = objectMapper.writeValueAsString(classes);
-            
-            // Get LLM analysis for bounded contexts
-            String prompt = promptManager.getPrompt("identify-bounded-contexts",
-                Map.of("classes", classesJson));
-            
-            String response = llmClient.complete(prompt, Map.of()).get();
-            
-            // Parse LLM response into bounded contexts
-            Map<String, Object> result = objectMapper.readValue(response, Map.class);
-            List<Map<String, Object>> boundedContextsMap = (List<Map<String, Object>>) result.get("boundedContexts");
-            
-            return boundedContextsMap.stream()
-                .map(this::convertToBoundedContext)
-                .collect(Collectors.toList());
+            if (MODE_HIERARCHICAL.equals(mode)) {
+                return identifyHierarchically(classes, dependencies);
+            }
+            return identifyInPrompt("identify-bounded-contexts", classes, dependencies).get();
         } catch (Exception e) {
             throw new RuntimeException("Failed to identify bounded contexts", e);
         }
     }
 
-    @Override
-    public List<MicroserviceCandidate> generateMicroserviceCandidates(List<BoundedContext> boundedContexts) {
-        List<CompletableFuture<MicroserviceCandidate>> futures = boundedContexts.stream()
-            .map(context -> {
+    /**
+     * Cluster-then-refine: partitions the classes cheaply by package and
+     * dependency cohesion, has the LLM name and refine every partition in
+     * parallel, then merges the partition results with one small prompt.
+     */
+    private List<BoundedContext> identifyHierarchically(
+            List<ClassInfo> classes,
+            List<DependencyInfo> dependencies) throws Exception {
+        List<List<ClassInfo>> partitions = partition(new CodeAnalysisResult(List.of(), classes, dependencies));
+        log.debug("Refining {} classes in {} partitions", classes.size(), partitions.size());
+
+        Map<String, List<DependencyInfo>> outgoing = dependencies.stream()
+            .collect(Collectors.groupingBy(DependencyInfo::sourceClass));
+        List<CompletableFuture<List<BoundedContext>>> futures = new ArrayList<>();
+        for (List<ClassInfo> partition : partitions) {
+            List<DependencyInfo> partitionDependencies = partition.stream()
+                .flatMap(c -> outgoing.getOrDefault(c.name(), List.of()).stream())
+                .collect(Collectors.toList());
+            futures.add(identifyInPrompt("refine-partition", partition, partitionDependencies));
+        }
+
+        List<BoundedContext> refined = new ArrayList<>();
+        for (CompletableFuture<List<BoundedContext>> future : futures) {
+            refined.addAll(future.get());
+        }
+        // Contexts of a single partition were identified together and need no merge
+        return partitions.size() > 1 && refined.size() > 1 ? mergeContexts(refined) : refined;
+    }
+
+    /**
+     * Splits the dependency clusters into prompt-sized partitions: clusters
+     * larger than the limit are split by package, and small clusters are
+     * packed together so that each prompt carries a useful amount of work.
+     */
+    private List<List<ClassInfo>> partition(CodeAnalysisResult analysis) {
+        List<List<ClassInfo>> pieces = new ArrayList<>();
+        for (List<ClassInfo> cluster : clustering.cluster(analysis)) {
+            if (cluster.size() <= maxPartitionSize) {
+                pieces.add(cluster);
+                continue;
+            }
+            List<ClassInfo> sorted = cluster.stream()
+                .sorted(Comparator.comparing(ClassInfo::packageName).thenComparing(ClassInfo::name))
+                .collect(Collectors.toList());
+            for (int i = 0; i < sorted.size(); i += maxPartitionSize) {
+                pieces.add(sorted.subList(i, Math.min(i + maxPartitionSize, sorted.size())));
+            }
+        }
+
+        // First-fit decreasing
+        pieces.sort(Comparator.<List<ClassInfo>>comparingInt(List::size).reversed());
+        List<List<ClassInfo>> partitions = new ArrayList<>();
+        for (List<ClassInfo> piece : pieces) {
+            List<ClassInfo> target = partitions.stream()
+                .filter(p -> p.size() + piece.size() <= maxPartitionSize)
+                .findFirst()
+                .orElse(null);
+            if (target == null) {
+                partitions.add(new ArrayList<>(piece));
+            } else {
+                target.addAll(piece);
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * Asks the LLM for the bounded contexts within one set of classes.
+     */
+    private CompletableFuture<List<BoundedContext>> identifyInPrompt(
+            String promptId,
+            List<ClassInfo> classes,
+            List<DependencyInfo> dependencies) throws Exception {
+        // Classes that classify themselves are sent by name and role only
+        ClassificationResult classification = classifier.classify(classes, dependencies);
+        Map<String, DomainRole> classified = classification.classified();
+
+        // Structurally identical classes are sent once and expanded afterwards
+        List<ClassGroup> groups = fingerprinter.group(classification.ambiguous(), dependencies);
+        List<ClassInfo> representatives = groups.stream()
+            .map(ClassGroup::representative)
+            .collect(Collectors.toList());
+
+        // The most central classes are sent when not all of them fit the budget
+        Selection selection = selector.select(representatives, dependencies);
+        if (selection.omitted() > 0 || selection.trimmedMethods() > 0) {
+            log.debug("Prompt {} leaves out {} of {} classes and {} methods to fit the token budget",
+                promptId, selection.omitted(), representatives.size(), selection.trimmedMethods());
+        }
+        Set<String> sent = selection.classes().stream().map(ClassInfo::name).collect(Collectors.toSet());
+        List<String> omitted = groups.stream()
+            .filter(g -> !sent.contains(g.representative().name()))
+            .flatMap(g -> g.members().stream().map(ClassInfo::name))
+            .collect(Collectors.toList());
+
+        // Prepare class information for LLM analysis
+        String classesJson = objectMapper.writeValueAsString(selection.classes());
+        String classifiedClasses = classified.entrySet().stream()
+            .map(e -> e.getKey() + ": " + e.getValue())
+            .collect(Collectors.joining("\n"));
+
+        // Get LLM analysis for bounded contexts
+        String prompt = promptManager.getPrompt(promptId,
+            Map.of(
+                "classes", classesJson,
+                "classifiedClasses", classifiedClasses.isEmpty() ? "(none)" : classifiedClasses
+            ));
+
+        return llmClient.complete(prompt, Map.of(LLMClient.PROMPT_ID, promptId))
+            .thenApply(response -> {
                 try {
-                    String contextJson = objectMapper.writeValueAsString(context);
-                    String prompt = promptManager.getPrompt("microservice-candidate-design",
-                        Map.of("boundedContext", contextJson));
-                    
-                    return llmClient.complete(prompt, Map.of())
-                        .thenApply(response -> {
-                            try {
-                                Map<String, Object> result = objectMapper.readValue(response, Map.class);
-                                Map<String, Object> microservice = (Map<String, Object>) result.get("microservice");
-                                return convertToMicroserviceCandidate(microservice, context);
-                            } catch (Exception e) {
-                                throw new RuntimeException("Failed to parse microservice candidate", e);
-                            }
-                        });
+                    // Parse LLM response into bounded contexts
+                    Map<String, Object> result = objectMapper.readValue(response, Map.class);
+                    List<Map<String, Object>> boundedContextsMap = (List<Map<String, Object>>) result.get("boundedContexts");
+
+                    List<BoundedContext> contexts = boundedContextsMap.stream()
+                        .map(this::convertToBoundedContext)
+                        .map(context -> applyClassification(context, classified))
+                        .collect(Collectors.toList());
+                    List<String> dropped = expandGroups(contexts, groups, sent);
+                    Map<String, List<String>> neighbours = neighbours(classes, dependencies);
+                    placeUnassigned(contexts, classified, neighbours);
+                    placeOmitted(contexts, omitted, neighbours);
+                    placeOmitted(contexts, dropped, neighbours);
+                    return contexts;
                 } catch (Exception e) {
-                    throw new RuntimeException("Failed to generate microservice candidate", e);
+                    throw new RuntimeException("Failed to parse bounded contexts", e);
                 }
-            })
+            });
+    }
+
+    /**
+     * Merges contexts identified independently in different partitions that
+     * describe the same capability. Only names, descriptions and aggregate
+     * roots are sent, so the prompt stays small however big the monolith is.
+     * If the merge fails the unmerged contexts are returned.
+     */
+    private List<BoundedContext> mergeContexts(List<BoundedContext> contexts) {
+        try {
+            List<Map<String, Object>> summaries = new ArrayList<>();
+            for (int i = 0; i < contexts.size(); i++) {
+                BoundedContext context = contexts.get(i);
+                summaries.add(Map.of(
+                    "id", "c" + i,
+                    "name", context.name(),
+                    "description", context.description() == null ? "" : context.description(),
+                    "aggregateRoots", new TreeSet<>(context.aggregateRoots())
+                ));
+            }
+
+            String prompt = promptManager.getPrompt("merge-bounded-contexts",
+                Map.of("contexts", objectMapper.writeValueAsString(summaries)));
+            String response = llmClient.complete(prompt, Map.of(LLMClient.PROMPT_ID, "merge-bounded-contexts")).get();
+
+            Map<String, Object> result = objectMapper.readValue(response, Map.class);
+            List<Map<String, Object>> merged = (List<Map<String, Object>>) result.get("boundedContexts");
+
+            List<BoundedContext> results = new ArrayList<>();
+            boolean[] used = new boolean[contexts.size()];
+            for (Map<String, Object> entry : merged) {
+                List<BoundedContext> sources = new ArrayList<>();
+                for (String id : (List<String>) entry.getOrDefault("sourceContexts", List.of())) {
+                    int index = id.startsWith("c") ? Integer.parseInt(id.substring(1)) : -1;
+                    if (index >= 0 && index < contexts.size() && !used[index]) {
+                        used[index] = true;
+                        sources.add(contexts.get(index));
+                    }
+                }
+                if (!sources.isEmpty()) {
+                    results.add(union((String) entry.get("name"), (String) entry.get("description"), sources));
+                }
+            }
+            for (int i = 0; i < contexts.size(); i++) {
+                if (!used[i]) {
+                    results.add(contexts.get(i));
+                }
+            }
+            return results;
+        } catch (Exception e) {
+            log.warn("Failed to merge partition contexts, keeping them separate: {}", e.getMessage());
+            return contexts;
+        }
+    }
+
+    private BoundedContext union(String name, String description, List<BoundedContext> sources) {
+        BoundedContext first = sources.get(0);
+        BoundedContext union = new BoundedContext(
+            name != null ? name : first.name(),
+            description != null ? description : first.description(),
+            new HashSet<>(),
+            new HashSet<>(),
+            new HashSet<>(),
+            new HashSet<>(),
+            new HashSet<>(),
+            new ArrayList<>()
+        );
+        for (BoundedContext source : sources) {
+            List<Set<String>> target = roleSets(union);
+            List<Set<String>> from = roleSets(source);
+            for (int i = 0; i < target.size(); i++) {
+                target.get(i).addAll(from.get(i));
+            }
+            union.domainEvents().addAll(source.domainEvents());
+        }
+        union.entities().removeAll(union.aggregateRoots());
+        return union;
+    }
+
+    @Override
+    public List<MicroserviceCandidate> generateMicroserviceCandidates(List<BoundedContext> boundedContexts) {
+        return generateMicroserviceCandidates(boundedContexts, new CodeAnalysisResult(List.of(), List.of(), List.of()));
+    }
+
+    /**
+     * Generates the candidates with bounded parallelism. Contexts whose
+     * candidate cannot be generated are logged and left out, so one failing
+     * context no longer loses the others' results.
+     *
+     * @return The generated candidates, in the order of their contexts
+     */
+    @Override
+    public List<MicroserviceCandidate> generateMicroserviceCandidates(
+            List<BoundedContext> boundedContexts,
+            CodeAnalysisResult analysis) {
+        Map<BoundedContext, MicroserviceCandidate> byContext = new IdentityHashMap<>();
+        streamMicroserviceCandidates(boundedContexts, analysis).forEach(outcome -> {
+            if (outcome.succeeded()) {
+                byContext.put(outcome.context(), outcome.candidate());
+            } else {
+                log.warn("No microservice candidate for context {}: {}", outcome.context().name(), outcome.error());
+            }
+        });
+        return boundedContexts.stream()
+            .map(byContext::get)
+            .filter(Objects::nonNull)
             .collect(Collectors.toList());
+    }
+
+    /**
+     * Generates at most {@code agent.mapper.candidates.max-parallelism}
+     * candidates at a time, each with a timeout and retries, and streams the
+     * outcomes as they complete. The stream blocks until the next outcome is
+     * ready. The LLM client cannot cancel a call that timed out, so its
+     * context keeps its slot until the call has actually completed.
+     */
+    @Override
+    public Stream<CandidateOutcome> streamMicroserviceCandidates(
+            List<BoundedContext> boundedContexts,
+            CodeAnalysisResult analysis) {
+        Map<String, ClassInfo> classesByName = new HashMap<>();
+        analysis.classes().forEach(c -> classesByName.putIfAbsent(c.name(), c));
+
+        BlockingQueue<CandidateOutcome> completed = new LinkedBlockingQueue<>();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        Runnable[] launchNext = new Runnable[1];
+        launchNext[0] = () -> {
+            int index = next.getAndIncrement();
+            if (index >= boundedContexts.size()) {
+                return;
+            }
+            BoundedContext context = boundedContexts.get(index);
+            AtomicReference<CompletableFuture<?>> lastCall = new AtomicReference<>(CompletableFuture.completedFuture(null));
+            generateCached(context, classesByName, analysis.dependencies(), lastCall)
+                .handle((candidate, error) -> error == null
+                    ? new CandidateOutcome(context, candidate, null)
+                    : new CandidateOutcome(context, null, describe(error)))
+                .thenAccept(outcome -> {
+                    if (finished.incrementAndGet() == boundedContexts.size()) {
+                        cache.flush();
+                    }
+                    completed.add(outcome);
+                    lastCall.get().whenComplete((result, error) -> launchNext[0].run());
+                });
+        };
+        for (int i = 0; i < Math.min(maxParallelism, boundedContexts.size()); i++) {
+            launchNext[0].run();
+        }
+
+        return IntStream.range(0, boundedContexts.size()).mapToObj(i -> {
+            try {
+                return completed.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while generating microservice candidates", e);
+            }
+        });
+    }
 
-        // Wait for all candidates to be generated
-        return futures.stream()
-            .map(CompletableFuture::join)
+    /**
+     * Reuses the stored candidate of an unchanged context, or generates and
+     * stores a new one.
+     *
+     * @param lastCall Set to the LLM call of each attempt
+     */
+    private CompletableFuture<MicroserviceCandidate> generateCached(
+            BoundedContext context,
+            Map<String, ClassInfo> classesByName,
+            List<DependencyInfo> dependencies,
+            AtomicReference<CompletableFuture<?>> lastCall) {
+        String classes;
+        String key;
+        try {
+            classes = classDetails(context, classesByName, dependencies);
+            key = CandidateCache.key(context, promptManager.getTemplateSource("microservice-candidate-design"), classes);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new RuntimeException("Failed to generate microservice candidate", e));
+        }
+
+        Optional<MicroserviceCandidate> cached = cache.get(key, context);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
+        }
+        return generateWithRetries(context, classes, 0, lastCall)
+            .thenApply(candidate -> {
+                cache.put(key, candidate);
+                return candidate;
+            });
+    }
+
+    /**
+     * Times out the wait for each attempt, not the call itself: a retry
+     * starts once the timed-out call has completed, so a context never has
+     * more than one call in flight.
+     */
+    private CompletableFuture<MicroserviceCandidate> generateWithRetries(
+            BoundedContext context,
+            String classes,
+            int attempt,
+            AtomicReference<CompletableFuture<?>> lastCall) {
+        CompletableFuture<MicroserviceCandidate> call = generateCandidate(context, classes);
+        lastCall.set(call);
+        return call.copy()
+            .orTimeout(candidateTimeoutSeconds, TimeUnit.SECONDS)
+            .handle((candidate, error) -> {
+                if (error == null) {
+                    return CompletableFuture.completedFuture(candidate);
+                }
+                if (attempt >= candidateRetries) {
+                    return CompletableFuture.<MicroserviceCandidate>failedFuture(error);
+                }
+                log.debug("Retrying microservice candidate for context {} after: {}", context.name(), describe(error));
+                return call.handle((result, callError) -> null)
+                    .thenCompose(settled -> generateWithRetries(context, classes, attempt + 1, lastCall));
+            })
+            .thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<MicroserviceCandidate> generateCandidate(BoundedContext context, String classes) {
+        try {
+            String contextJson = objectMapper.writeValueAsString(context);
+            String prompt = promptManager.getPrompt("microservice-candidate-design",
+                Map.of(
+                    "boundedContext", contextJson,
+                    "classes", classes
+                ));
+
+            return llmClient.complete(prompt, Map.of(LLMClient.PROMPT_ID, "microservice-candidate-design"))
+                .thenApply(response -> {
+                    try {
+                        Map<String, Object> result = objectMapper.readValue(response, Map.class);
+                        Map<String, Object> microservice = (Map<String, Object>) result.get("microservice");
+                        return convertToMicroserviceCandidate(microservice, context);
+                    } catch (Exception e) {
+                        throw new RuntimeException("Failed to parse microservice candidate", e);
+                    }
+                });
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new RuntimeException("Failed to generate microservice candidate", e));
+        }
+    }
+
+    private static String describe(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) {
+            return "timed out";
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    /**
+     * Details of the most central classes of a context, within the token budget.
+     */
+    private String classDetails(
+            BoundedContext context,
+            Map<String, ClassInfo> classesByName,
+            List<DependencyInfo> dependencies) throws Exception {
+        List<ClassInfo> members = roleSets(context).stream()
+            .flatMap(Set::stream)
+            .distinct()
+            .map(classesByName::get)
+            .filter(Objects::nonNull)
             .collect(Collectors.toList());
+        if (members.isEmpty()) {
+            return "(not available)";
+        }
+        return objectMapper.writeValueAsString(selector.select(members, dependencies).classes());
+    }
+
+    /**
+     * Moves pre-classified classes into the set matching their rule-based role,
+     * whatever the LLM put them under.
+     */
+    private BoundedContext applyClassification(BoundedContext context, Map<String, DomainRole> classified) {
+        Set<String> aggregateRoots = new HashSet<>();
+        Map<DomainRole, Set<String>> byRole = new EnumMap<>(DomainRole.class);
+        for (DomainRole role : DomainRole.values()) {
+            byRole.put(role, new HashSet<>());
+        }
+
+        for (String root : context.aggregateRoots()) {
+            DomainRole role = classified.get(root);
+            if (role == null || role == DomainRole.ENTITY) {
+                aggregateRoots.add(root);
+            } else {
+                byRole.get(role).add(root);
+            }
+        }
+        addByRole(byRole, context.entities(), DomainRole.ENTITY, classified);
+        addByRole(byRole, context.valueObjects(), DomainRole.VALUE_OBJECT, classified);
+        addByRole(byRole, context.repositories(), DomainRole.REPOSITORY, classified);
+        addByRole(byRole, context.services(), DomainRole.SERVICE, classified);
+        byRole.get(DomainRole.ENTITY).removeAll(aggregateRoots);
+
+        return new BoundedContext(
+            context.name(),
+            context.description(),
+            aggregateRoots,
+            byRole.get(DomainRole.ENTITY),
+            byRole.get(DomainRole.VALUE_OBJECT),
+            byRole.get(DomainRole.REPOSITORY),
+            byRole.get(DomainRole.SERVICE),
+            context.domainEvents()
+        );
+    }
+
+    private void addByRole(
+            Map<DomainRole, Set<String>> byRole,
+            Set<String> names,
+            DomainRole assigned,
+            Map<String, DomainRole> classified) {
+        for (String name : names) {
+            byRole.get(classified.getOrDefault(name, assigned)).add(name);
+        }
+    }
+
+    /**
+     * Adds the other members of each fingerprint group wherever the LLM placed
+     * the group's representative, preferring the context that owns a member's
+     * own stem (PetDao next to Pet) over the representative's context.
+     *
+     * @param sent Names of the representatives sent to the LLM
+     * @return Members of the groups whose representative was sent but placed
+     *         in no context, representative included
+     */
+    private List<String> expandGroups(List<BoundedContext> contexts, List<ClassGroup> groups, Set<String> sent) {
+        List<String> dropped = new ArrayList<>();
+        for (ClassGroup group : groups) {
+            String representative = group.representative().name();
+            if (!sent.contains(representative)) {
+                continue;
+            }
+            boolean placed = false;
+            for (BoundedContext context : contexts) {
+                List<Set<String>> sets = roleSets(context);
+                int role = -1;
+                for (int i = 0; i < sets.size() && role < 0; i++) {
+                    if (sets.get(i).contains(representative)) {
+                        role = i;
+                    }
+                }
+                if (role < 0) {
+                    continue;
+                }
+
+                placed = true;
+                for (ClassInfo member : group.members().subList(1, group.members().size())) {
+                    String stem = fingerprinter.stem(member.name());
+                    BoundedContext owner = contexts.stream()
+                        .filter(c -> c.aggregateRoots().contains(stem) || c.entities().contains(stem))
+                        .findFirst()
+                        .orElse(context);
+                    roleSets(owner).get(role).add(member.name());
+                }
+                break;
+            }
+            if (!placed) {
+                group.members().forEach(member -> dropped.add(member.name()));
+            }
+        }
+        return dropped;
+    }
+
+    private List<Set<String>> roleSets(BoundedContext context) {
+        return List.of(
+            context.aggregateRoots(),
+            context.entities(),
+            context.valueObjects(),
+            context.repositories(),
+            context.services()
+        );
+    }
+
+    /**
+     * Places pre-classified classes the LLM left out into the context owning
+     * the class they are named after, e.g. OwnerRepository next to Owner, or
+     * else into the context of the first class they depend on, or that
+     * depends on them. Classes related to no context are reported.
+     */
+    private void placeUnassigned(List<BoundedContext> contexts, Map<String, DomainRole> classified,
+                                 Map<String, List<String>> neighbours) {
+        Map<String, BoundedContext> contextByClass = new HashMap<>();
+        for (BoundedContext context : contexts) {
+            roleSets(context).forEach(set -> set.forEach(c -> contextByClass.putIfAbsent(c, context)));
+        }
+        List<String> unplaced = new ArrayList<>();
+        for (Map.Entry<String, DomainRole> entry : classified.entrySet()) {
+            String name = entry.getKey();
+            if (contextByClass.containsKey(name)) {
+                continue;
+            }
+            String stem = classifier.stem(name);
+            Optional<BoundedContext> owner = contexts.stream()
+                .filter(c -> c.aggregateRoots().contains(stem) || c.entities().contains(stem))
+                .findFirst()
+                .or(() -> neighbours.getOrDefault(name, List.of()).stream()
+                    .map(contextByClass::get)
+                    .filter(Objects::nonNull)
+                    .findFirst());
+            if (owner.isPresent()) {
+                setFor(owner.get(), entry.getValue()).add(name);
+            } else {
+                unplaced.add(name);
+            }
+        }
+        if (!unplaced.isEmpty()) {
+            log.warn("{} classified classes belong to no bounded context: {}", unplaced.size(), unplaced);
+        }
+    }
+
+    /**
+     * The classes each class depends on or is depended on by, resolving
+     * targets such as {@code List<Pet>} to the classes they mention.
+     */
+    private static Map<String, List<String>> neighbours(List<ClassInfo> classes, List<DependencyInfo> dependencies) {
+        ClassGraph.Builder known = ClassGraph.builder(classes.stream().map(ClassInfo::name).toList());
+        Map<String, List<String>> neighbours = new HashMap<>();
+        for (DependencyInfo dependency : dependencies) {
+            for (String target : DependencyGraphs.resolveTargets(dependency.targetClass(), known)) {
+                neighbours.computeIfAbsent(dependency.sourceClass(), c -> new ArrayList<>()).add(target);
+                neighbours.computeIfAbsent(target, c -> new ArrayList<>()).add(dependency.sourceClass());
+            }
+        }
+        return neighbours;
+    }
+
+    /**
+     * Places classes left out of the prompt, or of the LLM's answer, into the
+     * context of the first class they depend on, or that depends on them, as
+     * entities. Classes related to no context are reported.
+     */
+    private void placeOmitted(List<BoundedContext> contexts, List<String> omitted,
+                              Map<String, List<String>> neighbours) {
+        if (omitted.isEmpty()) {
+            return;
+        }
+        Map<String, BoundedContext> contextByClass = new HashMap<>();
+        for (BoundedContext context : contexts) {
+            roleSets(context).forEach(set -> set.forEach(c -> contextByClass.putIfAbsent(c, context)));
+        }
+
+        List<String> unplaced = new ArrayList<>();
+        for (String name : omitted) {
+            Optional<BoundedContext> owner = neighbours.getOrDefault(name, List.of()).stream()
+                .map(contextByClass::get)
+                .filter(Objects::nonNull)
+                .findFirst();
+            if (owner.isPresent()) {
+                owner.get().entities().add(name);
+                contextByClass.put(name, owner.get());
+            } else {
+                unplaced.add(name);
+            }
+        }
+        if (!unplaced.isEmpty()) {
+            log.warn("{} classes left out of the bounded contexts belong to none: {}", unplaced.size(), unplaced);
+        }
+    }
+
+    private Set<String> setFor(BoundedContext context, DomainRole role) {
+        return switch (role) {
+            case ENTITY -> context.entities();
+            case VALUE_OBJECT -> context.valueObjects();
+            case REPOSITORY -> context.repositories();
+            case SERVICE -> context.services();
+        };
     }
 
     private BoundedContext convertToBoundedContext(Map<String, Object> map) {
         return new BoundedContext(
             (String) map.get("name"),
             (String) map.get("description"),
-            new HashSet<>((List<String>) map.get("aggregateRoots")),
-            new HashSet<>((List<String>) map.get("entities")),
-            new HashSet<>((List<String>) map.get("valueObjects")),
-            new HashSet<>((List<String>) map.get("repositories")),
-            new HashSet<>((List<String>) map.get("services")),
-            ((List<Map<String, Object>>) map.get("relationships")).stream()
+            stringSet(map, "aggregateRoots"),
+            stringSet(map, "entities"),
+            stringSet(map, "valueObjects"),
+            stringSet(map, "repositories"),
+            stringSet(map, "services"),
+            ((List<Map<String, Object>>) map.getOrDefault("relationships", List.of())).stream()
                 .map(rel -> new DomainEvent(
                     (String) rel.get("name"),
                     (String) rel.get("aggregateRoot"),
-                    new HashSet<>((List<String>) rel.get("payload"))
+                    stringSet(rel, "payload")
                 ))
                 .collect(Collectors.toList())
         );
     }
 
+    private Set<String> stringSet(Map<String, Object> map, String key) {
+        List<String> values = (List<String>) map.get(key);
+        return values == null ? new HashSet<>() : new HashSet<>(values);
+    }
+
     private MicroserviceCandidate convertToMicroserviceCandidate(
             Map<String, Object> map,
             BoundedContext context) {
         
+        // APIs keep their method, e.g. "POST /owners", so load tests send the right requests
         List<Map<String, Object>> apis = (List<Map<String, Object>>) map.get("apis");
         Set<String> apiPaths = apis.stream()
-            .map(api -> (String) api.get("path"))
+            .map(api -> {
+                String method = (String) api.get("method");
+                String path = (String) api.get("path");
+                return method == null || method.isBlank() ? path : method.trim().toUpperCase() + " " + path;
+            })
             .collect(Collectors.toSet());
 
         List<Map<String, Object>> events = (List<Map<String, Object>>) map.get("events");
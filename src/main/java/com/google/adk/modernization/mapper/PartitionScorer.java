@@ -0,0 +1,98 @@
+package com.google.adk.modernization.mapper;
+
+import com.google.adk.modernization.analyzer.CodeAnalyzer.CodeAnalysisResult;
+import com.google.adk.modernization.graph.ClassGraph;
+import com.google.adk.modernization.graph.DependencyGraphs;
+import com.google.adk.modernization.graph.PartitionMetrics;
+import com.google.adk.modernization.mapper.DDDMapper.BoundedContext;
+import com.google.adk.modernization.mapper.DDDMapper.ContextMetrics;
+import com.google.adk.modernization.mapper.DDDMapper.MicroserviceCandidate;
+import com.google.adk.modernization.mapper.DDDMapper.PartitionQuality;
+
+import java.util.*;
+
+/**
+ * Scores bounded contexts and microservice candidates with
+ * {@link PartitionMetrics} on the dependency graph of the analysis.
+ * A class listed in several contexts counts for the first one.
+ */
+public final class PartitionScorer {
+    private PartitionScorer() {}
+
+    /**
+     * Scores a split of the analysis into bounded contexts.
+     */
+    public static PartitionQuality score(List<BoundedContext> contexts, CodeAnalysisResult analysis) {
+        ClassGraph graph = DependencyGraphs.build(analysis.classes(), analysis.dependencies());
+        List<String> names = contexts.stream().map(BoundedContext::name).toList();
+        return score(graph, partition(graph, contexts), names);
+    }
+
+    /**
+     * Scores a split of the analysis into microservice candidates.
+     */
+    public static PartitionQuality scoreCandidates(List<MicroserviceCandidate> candidates, CodeAnalysisResult analysis) {
+        ClassGraph graph = DependencyGraphs.build(analysis.classes(), analysis.dependencies());
+        List<BoundedContext> contexts = candidates.stream().map(MicroserviceCandidate::boundedContext).toList();
+        List<String> names = candidates.stream().map(MicroserviceCandidate::name).toList();
+        return score(graph, partition(graph, contexts), names);
+    }
+
+    /**
+     * Scores a partition given as the part of every node of the graph.
+     *
+     * @param graph The dependency graph
+     * @param partition Part per node, or -1 for none
+     * @param names Name of every part
+     * @return The quality of the partition
+     */
+    public static PartitionQuality score(ClassGraph graph, int[] partition, List<String> names) {
+        PartitionMetrics.Result result = PartitionMetrics.compute(graph, partition, names.size());
+
+        List<ContextMetrics> metrics = new ArrayList<>(names.size());
+        double cohesion = 0;
+        double instability = 0;
+        for (int p = 0; p < names.size(); p++) {
+            metrics.add(new ContextMetrics(
+                names.get(p),
+                result.sizes()[p],
+                result.afferent()[p],
+                result.efferent()[p],
+                result.instability(p),
+                result.cohesion(p),
+                result.boundaryEdges()[p]
+            ));
+            cohesion += result.cohesion(p);
+            instability += result.instability(p);
+        }
+        int unassigned = (int) Arrays.stream(partition).filter(p -> p < 0).count();
+        int parts = Math.max(1, names.size());
+
+        return new PartitionQuality(
+            result.modularity(),
+            result.cutEdges(),
+            cohesion / parts,
+            instability / parts,
+            unassigned,
+            metrics
+        );
+    }
+
+    private static int[] partition(ClassGraph graph, List<BoundedContext> contexts) {
+        int[] partition = new int[graph.size()];
+        Arrays.fill(partition, -1);
+        for (int p = 0; p < contexts.size(); p++) {
+            BoundedContext context = contexts.get(p);
+            for (Set<String> members : List.of(context.aggregateRoots(), context.entities(),
+                    context.valueObjects(), context.repositories(), context.services())) {
+                for (String member : members) {
+                    int node = graph.id(member);
+                    if (node >= 0 && partition[node] < 0) {
+                        partition[node] = p;
+                    }
+                }
+            }
+        }
+        return partition;
+    }
+}
@@ -0,0 +1,391 @@
+package com.google.adk.modernization.planner;
+
+import com.google.adk.modernization.analyzer.CodeAnalyzer.CodeAnalysisResult;
+import com.google.adk.modernization.graph.ClassGraph;
+import com.google.adk.modernization.graph.DependencyGraphs;
+import com.google.adk.modernization.mapper.DDDMapper.BoundedContext;
+import com.google.adk.modernization.mapper.DDDMapper.MicroserviceCandidate;
+import com.google.adk.modernization.profile.CallProfile;
+import com.google.adk.modernization.profile.CallProfile.CallEdge;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Estimates how chatty a proposed split is: how many synchronous network
+ * hops each candidate API introduces, what they add to latency, and how
+ * many inter-service requests they cause.
+ *
+ * A request to an API is followed through the class dependency graph from
+ * the classes that serve it, up to a maximum call depth. Every dependency
+ * leading into a class owned by another candidate is one synchronous
+ * cross-service call. Runtime call profiles, when available, add the calls
+ * only seen at runtime and give the share of profiled calls that would go
+ * over the network, overall and for the crossings on each API's path.
+ * Profiles sample time spent rather than count calls, so they do not change
+ * the per-request hop counts.
+ */
+@Component
+public class ChattinessEstimator {
+    private final HopCostModel costModel;
+    private final int maxCallDepth;
+    private final int fanOutThreshold;
+
+    /**
+     * Cost of one synchronous call between services.
+     *
+     * @param latencyMillisPerHop Latency added by each cross-service call
+     * @param requestsPerSecond Expected requests per second to each API
+     */
+    public record HopCostModel(
+        double latencyMillisPerHop,
+        double requestsPerSecond
+    ) {}
+
+    /**
+     * Estimate for one API of a candidate.
+     *
+     * @param service The candidate serving the API
+     * @param api The API
+     * @param crossServiceCalls Synchronous calls to other services per request
+     * @param criticalPathHops Most cross-service calls on one call chain
+     * @param downstreamServices Services the request reaches
+     * @param addedLatencyMillis Latency the calls add, made one after another
+     * @param interServiceRequestsPerSecond Requests to other services caused by this API
+     * @param profiledCrossServiceShare Share of the profile's stack samples spent in
+     *                                  this API's cross-service calls, or NaN without a profile
+     */
+    public record ApiEstimate(
+        String service,
+        String api,
+        int crossServiceCalls,
+        int criticalPathHops,
+        Set<String> downstreamServices,
+        double addedLatencyMillis,
+        double interServiceRequestsPerSecond,
+        double profiledCrossServiceShare
+    ) {}
+
+    /**
+     * Estimate for one candidate.
+     *
+     * @param service The candidate name
+     * @param apis Estimates of its APIs
+     * @param fanOut Whether it requires more services than the fan-out threshold
+     * @param inCycle Whether its required services lead back to it
+     */
+    public record ServiceEstimate(
+        String service,
+        List<ApiEstimate> apis,
+        boolean fanOut,
+        boolean inCycle
+    ) {}
+
+    /**
+     * Chattiness of a whole split.
+     *
+     * @param services Estimates per candidate, in input order
+     * @param cycles Groups of candidates whose required services call each other in a cycle
+     * @param interServiceRequestsPerSecond Inter-service requests caused by all APIs
+     * @param profiledCrossServiceShare Share of profiled runtime calls that cross
+     *                                  services, or NaN without a profile
+     */
+    public record ChattinessReport(
+        List<ServiceEstimate> services,
+        List<List<String>> cycles,
+        double interServiceRequestsPerSecond,
+        double profiledCrossServiceShare
+    ) {}
+
+    /**
+     * @param latencyMillisPerHop Latency added by each cross-service call
+     * @param requestsPerSecond Expected requests per second to each API
+     * @param maxCallDepth Dependencies followed from an API's entry classes
+     * @param fanOutThreshold Required services above which a candidate is flagged
+     */
+    public ChattinessEstimator(
+            @Value("${agent.planner.chattiness.latency-ms-per-hop:5}") double latencyMillisPerHop,
+            @Value("${agent.planner.chattiness.requests-per-second:100}") double requestsPerSecond,
+            @Value("${agent.planner.chattiness.max-call-depth:4}") int maxCallDepth,
+            @Value("${agent.planner.chattiness.fan-out-threshold:3}") int fanOutThreshold) {
+        this.costModel = new HopCostModel(latencyMillisPerHop, requestsPerSecond);
+        this.maxCallDepth = maxCallDepth;
+        this.fanOutThreshold = fanOutThreshold;
+    }
+
+    public ChattinessReport estimate(List<MicroserviceCandidate> candidates, CodeAnalysisResult analysis) {
+        return estimate(candidates, analysis, CallProfile.EMPTY);
+    }
+
+    /**
+     * Estimates the chattiness of a split.
+     *
+     * @param candidates The proposed microservices
+     * @param analysis Analysis of the monolith
+     * @param profile Runtime calls between classes, or {@link CallProfile#EMPTY}
+     * @return The estimate
+     */
+    public ChattinessReport estimate(
+            List<MicroserviceCandidate> candidates,
+            CodeAnalysisResult analysis,
+            CallProfile profile) {
+        ClassGraph graph = DependencyGraphs.build(analysis.classes(), analysis.dependencies(), 0, profile, 1);
+        Map<Long, Long> profiledSamples = profiledSamples(graph, profile);
+
+        // Owning candidate per node; the first candidate listing a class wins
+        int[] owner = new int[graph.size()];
+        Arrays.fill(owner, -1);
+        for (int s = 0; s < candidates.size(); s++) {
+            for (String member : classesOf(candidates.get(s).boundedContext())) {
+                int node = graph.id(member);
+                if (node >= 0 && owner[node] < 0) {
+                    owner[node] = s;
+                }
+            }
+        }
+
+        List<List<String>> cycles = cycles(candidates);
+        Set<String> inCycle = cycles.stream().flatMap(List::stream).collect(Collectors.toSet());
+
+        List<ServiceEstimate> services = new ArrayList<>();
+        double totalRequests = 0;
+        for (int s = 0; s < candidates.size(); s++) {
+            MicroserviceCandidate candidate = candidates.get(s);
+            List<ApiEstimate> apis = new ArrayList<>();
+            for (String api : new TreeSet<>(candidate.apis())) {
+                ApiEstimate estimate = estimateApi(graph, owner, profiledSamples, profile.samples(), candidates, s, api);
+                apis.add(estimate);
+                totalRequests += estimate.interServiceRequestsPerSecond();
+            }
+            Set<String> required = new HashSet<>(Objects.requireNonNullElse(candidate.requiredServices(), List.of()));
+            required.remove(candidate.name());
+            services.add(new ServiceEstimate(
+                candidate.name(),
+                apis,
+                required.size() > fanOutThreshold
+                    || apis.stream().anyMatch(a -> a.downstreamServices().size() > fanOutThreshold),
+                inCycle.contains(candidate.name())
+            ));
+        }
+
+        return new ChattinessReport(services, cycles, totalRequests, crossServiceShare(graph, owner, profile));
+    }
+
+    private ApiEstimate estimateApi(
+            ClassGraph graph,
+            int[] owner,
+            Map<Long, Long> profiledSamples,
+            long totalSamples,
+            List<MicroserviceCandidate> candidates,
+            int service,
+            String api) {
+        int n = graph.size();
+        int[] depth = new int[n];
+        int[] crossings = new int[n];
+        Arrays.fill(depth, -1);
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int entry : entryNodes(graph, candidates.get(service), api)) {
+            depth[entry] = 0;
+            queue.add(entry);
+        }
+
+        int calls = 0;
+        long crossingSamples = 0;
+        int criticalPath = 0;
+        Set<String> downstream = new TreeSet<>();
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            if (depth[u] == maxCallDepth) {
+                continue;
+            }
+            for (int e = graph.outStart(u); e < graph.outEnd(u); e++) {
+                int v = graph.outTarget(e);
+                if (owner[v] < 0) {
+                    continue;
+                }
+                boolean crosses = owner[v] != owner[u];
+                if (crosses) {
+                    calls++;
+                    crossingSamples += profiledSamples.getOrDefault(edgeKey(n, u, v), 0L);
+                    downstream.add(candidates.get(owner[v]).name());
+                }
+                if (depth[v] < 0) {
+                    depth[v] = depth[u] + 1;
+                    crossings[v] = crossings[u] + (crosses ? 1 : 0);
+                    criticalPath = Math.max(criticalPath, crossings[v]);
+                    queue.add(v);
+                }
+            }
+        }
+        downstream.remove(candidates.get(service).name());
+
+        return new ApiEstimate(
+            candidates.get(service).name(),
+            api,
+            calls,
+            criticalPath,
+            downstream,
+            calls * costModel.latencyMillisPerHop(),
+            calls * costModel.requestsPerSecond(),
+            totalSamples == 0 ? Double.NaN : (double) crossingSamples / totalSamples
+        );
+    }
+
+    /**
+     * The classes serving an API: the class named by its path, e.g. Owner for
+     * /api/owners/{id}, plus the context's services. Without a match, all
+     * aggregate roots and services of the context.
+     */
+    private List<Integer> entryNodes(ClassGraph graph, MicroserviceCandidate candidate, String api) {
+        BoundedContext context = candidate.boundedContext();
+        Set<String> named = new HashSet<>();
+        for (String segment : MicroserviceCandidate.path(api).split("/")) {
+            if (segment.isEmpty() || segment.startsWith("{")) {
+                continue;
+            }
+            String resource = segment.toLowerCase().replace("-", "");
+            for (String member : classesOf(context)) {
+                String name = member.toLowerCase();
+                if (resource.equals(name) || resource.equals(name + "s") || resource.equals(name + "es")) {
+                    named.add(member);
+                }
+            }
+        }
+
+        Set<String> entries = new TreeSet<>(context.services());
+        if (named.isEmpty()) {
+            entries.addAll(context.aggregateRoots());
+        } else {
+            entries.addAll(named);
+        }
+        return entries.stream()
+            .map(graph::id)
+            .filter(node -> node >= 0)
+            .toList();
+    }
+
+    /**
+     * Profiled stack samples per caller and callee node, keyed by {@link #edgeKey}.
+     */
+    private static Map<Long, Long> profiledSamples(ClassGraph graph, CallProfile profile) {
+        Map<Long, Long> samples = new HashMap<>();
+        for (CallEdge edge : profile.edges()) {
+            int u = graph.id(edge.caller());
+            int v = graph.id(edge.callee());
+            if (u >= 0 && v >= 0) {
+                samples.merge(edgeKey(graph.size(), u, v), edge.samples(), Long::sum);
+            }
+        }
+        return samples;
+    }
+
+    private static long edgeKey(int n, int u, int v) {
+        return (long) u * n + v;
+    }
+
+    private double crossServiceShare(ClassGraph graph, int[] owner, CallProfile profile) {
+        long total = 0;
+        long crossing = 0;
+        for (CallEdge edge : profile.edges()) {
+            int u = graph.id(edge.caller());
+            int v = graph.id(edge.callee());
+            if (u < 0 || v < 0 || owner[u] < 0 || owner[v] < 0) {
+                continue;
+            }
+            total += edge.samples();
+            if (owner[u] != owner[v]) {
+                crossing += edge.samples();
+            }
+        }
+        return total == 0 ? Double.NaN : (double) crossing / total;
+    }
+
+    /**
+     * Strongly connected groups of candidates in the requiredServices graph,
+     * found with Tarjan's algorithm.
+     */
+    private List<List<String>> cycles(List<MicroserviceCandidate> candidates) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int s = 0; s < candidates.size(); s++) {
+            index.putIfAbsent(candidates.get(s).name(), s);
+        }
+        int n = candidates.size();
+        List<List<Integer>> edges = new ArrayList<>(n);
+        boolean[] selfLoop = new boolean[n];
+        for (int s = 0; s < n; s++) {
+            List<Integer> targets = new ArrayList<>();
+            for (String required : Objects.requireNonNullElse(candidates.get(s).requiredServices(), List.<String>of())) {
+                Integer t = index.get(required);
+                if (t != null) {
+                    targets.add(t);
+                    selfLoop[s] |= t == s;
+                }
+            }
+            edges.add(targets);
+        }
+
+        int[] order = new int[n];
+        int[] low = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(order, -1);
+        Deque<Integer> stack = new ArrayDeque<>();
+        List<List<String>> cycles = new ArrayList<>();
+        int[] counter = {0};
+        for (int s = 0; s < n; s++) {
+            if (order[s] < 0) {
+                strongConnect(s, edges, order, low, onStack, stack, counter, component -> {
+                    if (component.size() > 1 || selfLoop[component.get(0)]) {
+                        cycles.add(component.stream().sorted().map(c -> candidates.get(c).name()).toList());
+                    }
+                });
+            }
+        }
+        return cycles;
+    }
+
+    private void strongConnect(
+            int v,
+            List<List<Integer>> edges,
+            int[] order,
+            int[] low,
+            boolean[] onStack,
+            Deque<Integer> stack,
+            int[] counter,
+            Consumer<List<Integer>> onComponent) {
+        order[v] = low[v] = counter[0]++;
+        stack.push(v);
+        onStack[v] = true;
+        for (int w : edges.get(v)) {
+            if (order[w] < 0) {
+                strongConnect(w, edges, order, low, onStack, stack, counter, onComponent);
+                low[v] = Math.min(low[v], low[w]);
+            } else if (onStack[w]) {
+                low[v] = Math.min(low[v], order[w]);
+            }
+        }
+        if (low[v] == order[v]) {
+            List<Integer> component = new ArrayList<>();
+            int w;
+            do {
+                w = stack.pop();
+                onStack[w] = false;
+                component.add(w);
+            } while (w != v);
+            onComponent.accept(component);
+        }
+    }
+
+    private static Set<String> classesOf(BoundedContext context) {
+        Set<String> classes = new LinkedHashSet<>();
+        classes.addAll(context.aggregateRoots());
+        classes.addAll(context.entities());
+        classes.addAll(context.valueObjects());
+        classes.addAll(context.repositories());
+        classes.addAll(context.services());
+        return classes;
+    }
+}
@@ -0,0 +1,34 @@
+package com.google.adk.modernization.profile;
+
+import java.util.List;
+
+/**
+ * How often classes of the monolith called each other at runtime, as seen
+ * by a profiler.
+ *
+ * @param edges Caller/callee class pairs observed on sampled stacks
+ * @param samples Number of stack samples the profile was built from
+ */
+public record CallProfile(
+    List<CallEdge> edges,
+    long samples
+) {
+    public static final CallProfile EMPTY = new CallProfile(List.of(), 0);
+
+    /**
+     * A caller class calling into a callee class.
+     *
+     * @param caller Simple name of the calling class
+     * @param callee Simple name of the called class
+     * @param samples Number of stack samples in which the call was active
+     */
+    public record CallEdge(
+        String caller,
+        String callee,
+        long samples
+    ) {}
+
+    public boolean isEmpty() {
+        return edges.isEmpty();
+    }
+}
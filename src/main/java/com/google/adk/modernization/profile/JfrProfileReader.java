@@ -0,0 +1,160 @@
+package com.google.adk.modernization.profile;
+
+import com.google.adk.modernization.profile.CallProfile.CallEdge;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Builds a {@link CallProfile} from JDK Flight Recorder recordings of the
+ * running monolith, e.g. taken with
+ * {@code -XX:StartFlightRecording=settings=profile,filename=monolith.jfr}.
+ *
+ * Every execution sample contributes one count to each pair of adjacent
+ * known classes on its stack, caller to callee. Frames of unknown classes,
+ * such as JDK, framework or proxy frames, are skipped, so a controller
+ * calling a repository through a Spring proxy still counts as a direct call.
+ * Each pair counts at most once per sample, however deep the recursion.
+ */
+@Component
+public class JfrProfileReader {
+    private static final Logger log = LoggerFactory.getLogger(JfrProfileReader.class);
+    private static final Set<String> SAMPLE_EVENTS = Set.of("jdk.ExecutionSample", "jdk.NativeMethodSample");
+
+    private final List<Path> recordings;
+    private Set<String> lastKnown;
+    private CallProfile lastProfile;
+
+    /**
+     * @param recordings Comma-separated .jfr files or directories holding them;
+     *                   empty for none
+     */
+    public JfrProfileReader(@Value("${agent.profile.jfr:}") String recordings) {
+        this.recordings = Arrays.stream(recordings.split(","))
+            .map(String::trim)
+            .filter(s -> !s.isEmpty())
+            .map(Path::of)
+            .toList();
+    }
+
+    /**
+     * Reads the configured recordings.
+     *
+     * @param knownClasses Simple names of the classes of the monolith
+     * @return The call profile, empty if no recordings are configured
+     */
+    public synchronized CallProfile read(Collection<String> knownClasses) {
+        if (recordings.isEmpty()) {
+            return CallProfile.EMPTY;
+        }
+        // The same classes are clustered repeatedly, e.g. at several resolutions
+        Set<String> known = new HashSet<>(knownClasses);
+        if (known.equals(lastKnown)) {
+            return lastProfile;
+        }
+        try {
+            lastProfile = read(recordingFiles(), known);
+            lastKnown = known;
+            return lastProfile;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read JFR recordings " + recordings, e);
+        }
+    }
+
+    /**
+     * Reads the given recordings.
+     *
+     * @param files JFR recording files
+     * @param knownClasses Simple names of the classes of the monolith
+     * @return The call profile
+     */
+    public static CallProfile read(List<Path> files, Collection<String> knownClasses) throws IOException {
+        Set<String> known = new HashSet<>(knownClasses);
+        Map<String, String> classCache = new HashMap<>();
+        Map<String, Map<String, long[]>> counts = new HashMap<>();
+        Set<String> seenInSample = new HashSet<>();
+        long samples = 0;
+
+        for (Path file : files) {
+            try (RecordingFile recording = new RecordingFile(file)) {
+                while (recording.hasMoreEvents()) {
+                    RecordedEvent event = recording.readEvent();
+                    RecordedStackTrace stackTrace = event.getStackTrace();
+                    if (stackTrace == null || !SAMPLE_EVENTS.contains(event.getEventType().getName())) {
+                        continue;
+                    }
+                    samples++;
+                    seenInSample.clear();
+
+                    // Frames run from the innermost (callee) to the outermost (caller)
+                    String callee = null;
+                    for (RecordedFrame frame : stackTrace.getFrames()) {
+                        if (frame.getMethod() == null || frame.getMethod().getType() == null) {
+                            continue;
+                        }
+                        String typeName = frame.getMethod().getType().getName();
+                        String caller = classCache.computeIfAbsent(typeName, t -> knownClass(t, known));
+                        if (caller.isEmpty() || caller.equals(callee)) {
+                            continue;
+                        }
+                        if (callee != null && seenInSample.add(caller + '\n' + callee)) {
+                            counts.computeIfAbsent(caller, c -> new HashMap<>())
+                                .computeIfAbsent(callee, c -> new long[1])[0]++;
+                        }
+                        callee = caller;
+                    }
+                }
+            }
+        }
+
+        List<CallEdge> edges = new ArrayList<>();
+        counts.forEach((caller, callees) ->
+            callees.forEach((callee, count) -> edges.add(new CallEdge(caller, callee, count[0]))));
+        edges.sort(Comparator.comparingLong(CallEdge::samples).reversed()
+            .thenComparing(CallEdge::caller)
+            .thenComparing(CallEdge::callee));
+        log.info("Read {} call pairs from {} samples in {} JFR recordings", edges.size(), samples, files.size());
+        return new CallProfile(edges, samples);
+    }
+
+    private List<Path> recordingFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path path : recordings) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> listing = Files.list(path)) {
+                    listing.filter(p -> p.toString().endsWith(".jfr")).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Maps a JVM type name such as {@code com.example.Owner$Address} or
+     * {@code com.example.OwnerService$$SpringCGLIB$$0} to the innermost known
+     * class it belongs to, or an empty string if there is none.
+     */
+    static String knownClass(String typeName, Set<String> known) {
+        String simple = typeName.substring(typeName.lastIndexOf('.') + 1);
+        String[] parts = simple.split("\\$");
+        for (int i = parts.length - 1; i >= 0; i--) {
+            if (known.contains(parts[i])) {
+                return parts[i];
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,196 @@
+package com.google.adk.modernization.prompt;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {{variable}} template parsed once into alternating literal and variable
+ * segments, so rendering is a single pass over the segments regardless of how
+ * many variables are substituted or how large their values are.
+ */
+public final class CompiledTemplate {
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    private final String source;
+    // literals.length == slots.length + 1; slot i sits between literals i and i+1
+    private final String[] literals;
+    private final int[] slots;
+    private final String[] names;
+    private final Set<String> variableNames;
+    private final Set<String> requiredVariables;
+    private final int literalLength;
+
+    private CompiledTemplate(
+            String source,
+            List<String> literals,
+            List<Integer> slots,
+            List<String> names,
+            Set<String> requiredVariables) {
+        this.source = source;
+        this.literals = literals.toArray(String[]::new);
+        this.slots = slots.stream().mapToInt(Integer::intValue).toArray();
+        this.names = names.toArray(String[]::new);
+        this.variableNames = Set.copyOf(names);
+        this.requiredVariables = requiredVariables;
+
+        int length = 0;
+        for (String literal : this.literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Parses a template into its segments.
+     *
+     * @param template The template text containing {{name}} placeholders
+     * @param requiredVariables Variables that must be supplied on every render
+     * @return The compiled template
+     */
+    public static CompiledTemplate compile(String template, Collection<String> requiredVariables) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        Map<String, Integer> slotByName = new LinkedHashMap<>();
+
+        StringBuilder literal = new StringBuilder();
+        int pos = 0;
+        while (pos < template.length()) {
+            int open = template.indexOf(OPEN, pos);
+            if (open < 0) {
+                break;
+            }
+            int close = template.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                break;
+            }
+
+            String name = template.substring(open + OPEN.length(), close).trim();
+            if (!isVariableName(name)) {
+                // Not a placeholder, keep the braces as text
+                literal.append(template, pos, open + OPEN.length());
+                pos = open + OPEN.length();
+                continue;
+            }
+
+            literal.append(template, pos, open);
+            literals.add(literal.toString());
+            literal.setLength(0);
+            slots.add(slotByName.computeIfAbsent(name, n -> slotByName.size()));
+            pos = close + CLOSE.length();
+        }
+        literal.append(template, pos, template.length());
+        literals.add(literal.toString());
+
+        Set<String> required = requiredVariables == null
+            ? Set.of()
+            : Set.copyOf(new LinkedHashSet<>(requiredVariables));
+        for (String name : required) {
+            if (!slotByName.containsKey(name)) {
+                throw new IllegalArgumentException(
+                    "Required variable '" + name + "' does not appear in template");
+            }
+        }
+
+        return new CompiledTemplate(
+            template, literals, slots, new ArrayList<>(slotByName.keySet()), required);
+    }
+
+    public String source() {
+        return source;
+    }
+
+    public Set<String> variableNames() {
+        return variableNames;
+    }
+
+    public Set<String> requiredVariables() {
+        return requiredVariables;
+    }
+
+    /**
+     * Renders the template into a string sized up front for the result.
+     */
+    public String render(Map<String, ?> variables) {
+        CharSequence[] values = resolve(variables);
+        int length = literalLength;
+        for (int slot : slots) {
+            length += values[slot].length();
+        }
+
+        StringBuilder out = new StringBuilder(length);
+        try {
+            write(values, out);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Streams the rendered template to the given target without building the
+     * whole prompt in memory first.
+     */
+    public void render(Map<String, ?> variables, Appendable out) throws IOException {
+        write(resolve(variables), out);
+    }
+
+    private void write(CharSequence[] values, Appendable out) throws IOException {
+        out.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            out.append(values[slots[i]]);
+            out.append(literals[i + 1]);
+        }
+    }
+
+    private CharSequence[] resolve(Map<String, ?> variables) {
+        for (String key : variables.keySet()) {
+            if (!variableNames.contains(key)) {
+                throw new IllegalArgumentException("Unknown template variable: " + key);
+            }
+        }
+
+        CharSequence[] values = new CharSequence[names.length];
+        List<String> missing = null;
+        for (int i = 0; i < names.length; i++) {
+            Object value = variables.get(names[i]);
+            if (value == null) {
+                if (requiredVariables.contains(names[i])) {
+                    if (missing == null) {
+                        missing = new ArrayList<>();
+                    }
+                    missing.add(names[i]);
+                }
+                // Optional placeholders without a value are left as written
+                values[i] = OPEN + names[i] + CLOSE;
+            } else {
+                values[i] = value instanceof CharSequence cs ? cs : value.toString();
+            }
+        }
+        if (missing != null) {
+            throw new IllegalArgumentException("Missing required template variables: " + missing);
+        }
+        return values;
+    }
+
+    private static boolean isVariableName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-' && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
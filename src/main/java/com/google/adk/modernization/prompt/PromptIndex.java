@@ -0,0 +1,149 @@
+package com.google.adk.modernization.prompt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.google.adk.modernization.prompt.PromptManager.PromptConfig;
+import com.google.adk.modernization.prompt.PromptManager.PromptTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compact binary index of all prompt templates, produced from the prompt YAML
+ * files at build time so that loading prompts at runtime needs neither a
+ * classpath scan nor a YAML parser.
+ */
+public final class PromptIndex {
+    static final String RESOURCE = "META-INF/prompts.idx";
+
+    private static final int MAGIC = 0x50494458; // "PIDX"
+    private static final int VERSION = 1;
+
+    private PromptIndex() {}
+
+    static void write(Collection<PromptTemplate> templates, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(templates.size());
+        for (PromptTemplate template : templates) {
+            data.writeUTF(template.id());
+            writeString(data, template.description());
+            writeString(data, template.template());
+
+            List<String> required = template.requiredVariables() == null
+                ? List.of() : template.requiredVariables();
+            data.writeInt(required.size());
+            for (String variable : required) {
+                data.writeUTF(variable);
+            }
+
+            Map<String, String> examples = template.examples() == null
+                ? Map.of() : template.examples();
+            data.writeInt(examples.size());
+            for (Map.Entry<String, String> example : examples.entrySet()) {
+                data.writeUTF(example.getKey());
+                writeString(data, example.getValue());
+            }
+        }
+        data.flush();
+    }
+
+    static List<PromptTemplate> read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a prompt index");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported prompt index version: " + version);
+        }
+
+        int count = data.readInt();
+        List<PromptTemplate> templates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = data.readUTF();
+            String description = readString(data);
+            String template = readString(data);
+
+            int requiredCount = data.readInt();
+            List<String> required = new ArrayList<>(requiredCount);
+            for (int j = 0; j < requiredCount; j++) {
+                required.add(data.readUTF());
+            }
+
+            int exampleCount = data.readInt();
+            Map<String, String> examples = new LinkedHashMap<>();
+            for (int j = 0; j < exampleCount; j++) {
+                examples.put(data.readUTF(), readString(data));
+            }
+
+            templates.add(new PromptTemplate(id, description, template, required, examples));
+        }
+        return templates;
+    }
+
+    // writeUTF is limited to 64KB, so template bodies are length-prefixed UTF-8
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        if (value == null) {
+            data.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        int length = data.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Build-time entry point: compiles every prompts/**.yaml under the given
+     * classes directory into {@value #RESOURCE}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: PromptIndex <classes-dir>");
+        }
+        Path classesDir = Paths.get(args[0]);
+        Path promptsDir = classesDir.resolve("prompts");
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(promptsDir)) {
+            files = walk
+                .filter(p -> p.toString().endsWith(".yaml"))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+
+        ObjectMapper yamlMapper = new ObjectMapper(new YAMLFactory());
+        Map<String, PromptTemplate> templates = new LinkedHashMap<>();
+        for (Path file : files) {
+            PromptConfig config = yamlMapper.readValue(file.toFile(), PromptConfig.class);
+            for (PromptTemplate template : config.templates()) {
+                // Fail the build on templates that would fail at runtime
+                template.compile();
+                templates.put(template.id(), template);
+            }
+        }
+
+        Path index = classesDir.resolve(RESOURCE);
+        Files.createDirectories(index.getParent());
+        try (OutputStream out = Files.newOutputStream(index)) {
+            write(templates.values(), out);
+        }
+    }
+}
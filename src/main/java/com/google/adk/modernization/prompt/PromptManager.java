@@ -2,53 +2,118 @@ package com.google.adk.modernization.prompt;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 @Component
 public class PromptManager {
-    private final Map<String, PromptTemplate> prompts;
-    private final ObjectMapper yamlMapper;
+    private final boolean devMode;
+    private volatile Map<String, CompiledTemplate> prompts;
 
     public PromptManager() {
-        this.prompts = new HashMap<>();
-        this.yamlMapper = new ObjectMapper(new YAMLFactory());
-        loadPrompts();
+        this(false);
     }
 
-    private void loadPrompts() {
-        try {
-            PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
-            Resource[] resources = resolver.getResources("classpath:prompts/**/*.yaml");
-
-            for (Resource resource : resources) {
-                PromptConfig config = yamlMapper.readValue(
-                    resource.getInputStream(),
-                    PromptConfig.class
-                );
+    /**
+     * @param devMode Always scan prompts/**.yaml on the classpath instead of
+     *                using the index generated at build time, so edited
+     *                prompts are picked up without a rebuild
+     */
+    @Autowired
+    public PromptManager(@Value("${agent.prompts.dev-mode:false}") boolean devMode) {
+        this.devMode = devMode;
+    }
 
-                for (PromptTemplate template : config.templates()) {
-                    prompts.put(template.id(), template);
+    private Map<String, CompiledTemplate> prompts() {
+        Map<String, CompiledTemplate> loaded = prompts;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = prompts;
+                if (loaded == null) {
+                    loaded = loadPrompts();
+                    prompts = loaded;
                 }
             }
+        }
+        return loaded;
+    }
+
+    private Map<String, CompiledTemplate> loadPrompts() {
+        try {
+            List<PromptTemplate> templates = null;
+            if (!devMode) {
+                templates = loadIndex();
+            }
+            if (templates == null) {
+                templates = scanClasspath();
+            }
+
+            Map<String, CompiledTemplate> compiled = new HashMap<>();
+            for (PromptTemplate template : templates) {
+                compiled.put(template.id(), template.compile());
+            }
+            return compiled;
         } catch (IOException e) {
             throw new RuntimeException("Failed to load prompts", e);
         }
     }
 
+    private List<PromptTemplate> loadIndex() throws IOException {
+        ClassLoader classLoader = PromptManager.class.getClassLoader();
+        try (InputStream in = classLoader.getResourceAsStream(PromptIndex.RESOURCE)) {
+            return in == null ? null : PromptIndex.read(in);
+        }
+    }
+
+    private List<PromptTemplate> scanClasspath() throws IOException {
+        ObjectMapper yamlMapper = new ObjectMapper(new YAMLFactory());
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        Resource[] resources = resolver.getResources("classpath:prompts/**/*.yaml");
+
+        List<PromptTemplate> templates = new ArrayList<>();
+        for (Resource resource : resources) {
+            try (InputStream in = resource.getInputStream()) {
+                PromptConfig config = yamlMapper.readValue(in, PromptConfig.class);
+                templates.addAll(config.templates());
+            }
+        }
+        return templates;
+    }
+
     public String getPrompt(String id, Map<String, Object> variables) {
-        PromptTemplate template = prompts.get(id);
+        return getTemplate(id).render(variables);
+    }
+
+    /**
+     * Streams a rendered prompt to the given target instead of materializing it.
+     */
+    public void writePrompt(String id, Map<String, Object> variables, Appendable out) throws IOException {
+        getTemplate(id).render(variables, out);
+    }
+
+    /**
+     * @return The unrendered text of a prompt, e.g. to detect template changes
+     */
+    public String getTemplateSource(String id) {
+        return getTemplate(id).source();
+    }
+
+    private CompiledTemplate getTemplate(String id) {
+        CompiledTemplate template = prompts().get(id);
         if (template == null) {
             throw new IllegalArgumentException("Unknown prompt ID: " + id);
         }
-
-        return template.format(variables);
+        return template;
     }
 
     record PromptConfig(
@@ -64,12 +129,12 @@ public class PromptManager {
         List<String> requiredVariables,
         Map<String, String> examples
     ) {
-        public String format(Map<String, Object> variables) {
-            String result = template;
-            for (Map.Entry<String, Object> entry : variables.entrySet()) {
-                result = result.replace("{{" + entry.getKey() + "}}", entry.getValue().toString());
+        public CompiledTemplate compile() {
+            try {
+                return CompiledTemplate.compile(template, requiredVariables);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid prompt template '" + id + "'", e);
             }
-            return result;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,322 @@
+package com.google.adk.modernization.refactor;
+
+import java.util.*;
+
+/**
+ * Applies a batch of text edits to a source file in one pass.
+ *
+ * All edit targets are located with a single Aho-Corasick scan of the file,
+ * so finding them takes time linear in the file size plus the number of
+ * matches, however many edits there are. The accepted replacements are then
+ * laid out as a piece table over the original text and materialized once,
+ * instead of copying the whole file per edit.
+ *
+ * Edits are matched against the original text. An edit whose target only
+ * appears once earlier edits are applied (e.g. a step renaming what the
+ * previous step introduced) is retried on the result of the previous round.
+ * Targets that are never found, that match more than once for a
+ * single-location edit, or that overlap a region already claimed by an
+ * earlier edit are reported as warnings rather than silently ignored.
+ */
+public final class EditEngine {
+    private EditEngine() {}
+
+    /**
+     * A replacement of literal text.
+     *
+     * @param oldText Text to replace
+     * @param newText Replacement
+     * @param everywhere Whether to replace every occurrence, or a single one
+     */
+    public record Edit(String oldText, String newText, boolean everywhere) {
+        /**
+         * An edit meant for a single location, such as a refactoring step.
+         */
+        public static Edit once(String oldText, String newText) {
+            return new Edit(oldText, newText, false);
+        }
+
+        /**
+         * An edit of every occurrence, such as renaming an import.
+         */
+        public static Edit everywhere(String oldText, String newText) {
+            return new Edit(oldText, newText, true);
+        }
+    }
+
+    /**
+     * @param content The edited content
+     * @param applied Number of edits applied at least once
+     * @param warnings Edits not found, ambiguous or conflicting, in edit order
+     */
+    public record Outcome(
+        String content,
+        int applied,
+        List<String> warnings
+    ) {}
+
+    /**
+     * Applies edits to content.
+     *
+     * @param content The original content
+     * @param edits Edits in priority order: when two overlap, the earlier wins
+     * @return The edited content and warnings about edits that were not applied as asked
+     */
+    public static Outcome apply(String content, List<Edit> edits) {
+        List<String> warnings = new ArrayList<>();
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < edits.size(); i++) {
+            if (edits.get(i).oldText() == null || edits.get(i).oldText().isEmpty()) {
+                warnings.add("Edit " + (i + 1) + " has no text to replace");
+            } else if (!edits.get(i).oldText().equals(edits.get(i).newText())) {
+                pending.add(i);
+            }
+        }
+
+        String current = content;
+        int applied = 0;
+        Set<Integer> conflicting = new HashSet<>();
+        while (!pending.isEmpty()) {
+            Round round = applyRound(current, edits, pending, conflicting, warnings);
+            if (round.applied().isEmpty()) {
+                break;
+            }
+            current = round.content();
+            applied += round.applied().size();
+            pending = round.unmatched();
+        }
+        for (int i : pending) {
+            warnings.add("Edit " + (i + 1) + (conflicting.contains(i) ? " conflicts with an earlier edit: " : " not found: ")
+                + abbreviate(edits.get(i).oldText()));
+        }
+        return new Outcome(current, applied, warnings);
+    }
+
+    private record Round(String content, List<Integer> applied, List<Integer> unmatched) {}
+
+    /**
+     * Matches the pending edits against the content and applies all that
+     * match, leaving for the next round unmatched ones and those whose every
+     * match overlaps an edit applied in this round.
+     */
+    private static Round applyRound(String content, List<Edit> edits, List<Integer> pending,
+                                    Set<Integer> conflicting, List<String> warnings) {
+        // Edits sharing a target share a pattern
+        Map<String, Integer> patternIds = new LinkedHashMap<>();
+        for (int i : pending) {
+            patternIds.putIfAbsent(edits.get(i).oldText(), patternIds.size());
+        }
+        List<List<Integer>> matches = new Matcher(new ArrayList<>(patternIds.keySet())).findAll(content);
+
+        TreeMap<Integer, Integer> claimed = new TreeMap<>();
+        List<Replacement> replacements = new ArrayList<>();
+        List<Integer> applied = new ArrayList<>();
+        List<Integer> unmatched = new ArrayList<>();
+        for (int i : pending) {
+            Edit edit = edits.get(i);
+            List<Integer> starts = matches.get(patternIds.get(edit.oldText()));
+            if (starts.isEmpty()) {
+                unmatched.add(i);
+                continue;
+            }
+            int length = edit.oldText().length();
+
+            int replaced = 0;
+            int conflicts = 0;
+            int nextFree = 0;
+            for (int start : starts) {
+                // Overlapping occurrences of the same target: keep the leftmost, as String.replace does
+                if (start < nextFree) {
+                    continue;
+                }
+                if (overlaps(claimed, start, start + length)) {
+                    conflicts++;
+                    continue;
+                }
+                claimed.put(start, start + length);
+                replacements.add(new Replacement(start, start + length, edit.newText()));
+                nextFree = start + length;
+                replaced++;
+                if (!edit.everywhere()) {
+                    break;
+                }
+            }
+            if (replaced == 0) {
+                // Every match overlaps an edit of this round: retry on the edited content
+                conflicting.add(i);
+                unmatched.add(i);
+                continue;
+            }
+            if (!edit.everywhere() && starts.size() > 1) {
+                warnings.add("Edit " + (i + 1) + " is ambiguous, " + starts.size()
+                    + " matches; applied to the first: " + abbreviate(edit.oldText()));
+            }
+            if (conflicts > 0) {
+                warnings.add("Edit " + (i + 1) + " conflicts with an earlier edit at " + conflicts
+                    + (conflicts == 1 ? " location" : " locations") + ": " + abbreviate(edit.oldText()));
+            }
+            applied.add(i);
+        }
+
+        replacements.sort(Comparator.comparingInt(Replacement::start));
+        return new Round(materialize(content, replacements), applied, unmatched);
+    }
+
+    private static boolean overlaps(TreeMap<Integer, Integer> claimed, int start, int end) {
+        Map.Entry<Integer, Integer> before = claimed.floorEntry(start);
+        if (before != null && before.getValue() > start) {
+            return true;
+        }
+        Integer after = claimed.ceilingKey(start);
+        return after != null && after < end;
+    }
+
+    /**
+     * A replacement of the original range [start, end).
+     */
+    public record Replacement(int start, int end, String text) {}
+
+    /**
+     * Applies replacements of known ranges, e.g. of AST nodes, in one pass.
+     *
+     * @param content The original content
+     * @param replacements Non-overlapping replacements, in any order
+     * @return The edited content
+     * @throws IllegalArgumentException If two replacements overlap
+     */
+    public static String replace(String content, List<Replacement> replacements) {
+        List<Replacement> sorted = new ArrayList<>(replacements);
+        sorted.sort(Comparator.comparingInt(Replacement::start).thenComparingInt(Replacement::end));
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).start() < sorted.get(i - 1).end()) {
+                throw new IllegalArgumentException("Overlapping replacements at offset " + sorted.get(i).start());
+            }
+        }
+        return materialize(content, sorted);
+    }
+
+    /**
+     * Materializes the piece table: original text between replacements,
+     * interleaved with the replacements, copied once into a buffer of the
+     * exact final size.
+     */
+    private static String materialize(String original, List<Replacement> replacements) {
+        if (replacements.isEmpty()) {
+            return original;
+        }
+        long size = original.length();
+        for (Replacement piece : replacements) {
+            size += piece.text().length() - (piece.end() - piece.start());
+        }
+        StringBuilder result = new StringBuilder((int) size);
+        int position = 0;
+        for (Replacement piece : replacements) {
+            result.append(original, position, piece.start()).append(piece.text());
+            position = piece.end();
+        }
+        return result.append(original, position, original.length()).toString();
+    }
+
+    private static String abbreviate(String text) {
+        String line = text.strip().replaceAll("\\s+", " ");
+        return line.length() <= 60 ? line : line.substring(0, 57) + "...";
+    }
+
+    /**
+     * Aho-Corasick automaton finding all occurrences of many patterns in one scan.
+     */
+    static final class Matcher {
+        private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+        private final List<int[]> outputs = new ArrayList<>();
+        private final int[] lengths;
+        private int[] failure;
+        // Nearest state on the failure chain with an output, or -1
+        private int[] outputLink;
+
+        Matcher(List<String> patterns) {
+            lengths = new int[patterns.size()];
+            newState();
+            for (int p = 0; p < patterns.size(); p++) {
+                String pattern = patterns.get(p);
+                lengths[p] = pattern.length();
+                int state = 0;
+                for (int k = 0; k < pattern.length(); k++) {
+                    Integer next = transitions.get(state).get(pattern.charAt(k));
+                    if (next == null) {
+                        next = newState();
+                        transitions.get(state).put(pattern.charAt(k), next);
+                    }
+                    state = next;
+                }
+                int[] output = outputs.get(state);
+                int[] extended = Arrays.copyOf(output, output.length + 1);
+                extended[output.length] = p;
+                outputs.set(state, extended);
+            }
+            buildFailureLinks();
+        }
+
+        private int newState() {
+            transitions.add(new HashMap<>());
+            outputs.add(new int[0]);
+            return transitions.size() - 1;
+        }
+
+        private void buildFailureLinks() {
+            int states = transitions.size();
+            failure = new int[states];
+            outputLink = new int[states];
+            outputLink[0] = -1;
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int child : transitions.get(0).values()) {
+                failure[child] = 0;
+                outputLink[child] = -1;
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (Map.Entry<Character, Integer> edge : transitions.get(state).entrySet()) {
+                    int child = edge.getValue();
+                    int fallback = failure[state];
+                    while (fallback > 0 && !transitions.get(fallback).containsKey(edge.getKey())) {
+                        fallback = failure[fallback];
+                    }
+                    Integer target = transitions.get(fallback).get(edge.getKey());
+                    failure[child] = target != null && target != child ? target : 0;
+                    outputLink[child] = outputs.get(failure[child]).length > 0
+                        ? failure[child] : outputLink[failure[child]];
+                    queue.add(child);
+                }
+            }
+        }
+
+        /**
+         * @return Start offsets of every occurrence of each pattern, ascending,
+         *         overlapping occurrences included
+         */
+        List<List<Integer>> findAll(String text) {
+            List<List<Integer>> matches = new ArrayList<>(lengths.length);
+            for (int p = 0; p < lengths.length; p++) {
+                matches.add(new ArrayList<>());
+            }
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                Integer next;
+                while ((next = transitions.get(state).get(c)) == null && state > 0) {
+                    state = failure[state];
+                }
+                state = next == null ? 0 : next;
+                for (int s = state; s >= 0; s = outputLink[s]) {
+                    for (int p : outputs.get(s)) {
+                        matches.get(p).add(i - lengths[p] + 1);
+                    }
+                    if (s == 0) {
+                        break;
+                    }
+                }
+            }
+            return matches;
+        }
+    }
+}
@@ -1,71 +1,312 @@
 package com.google.adk.modernization.refactor;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.adk.modernization.analyzer.SourceIndex;
+import com.google.adk.modernization.generator.output.IncrementalSink;
 import com.google.adk.modernization.llm.LLMClient;
 import com.google.adk.modernization.mapper.DDDMapper.MicroserviceCandidate;
 import com.google.adk.modernization.prompt.PromptManager;
+import com.google.adk.modernization.refactor.EditEngine.Edit;
+import com.google.adk.modernization.refactor.EditEngine.Outcome;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.lang.model.SourceVersion;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Component
 public class LLMDrivenRefactorEngine implements RefactorEngine {
+    private static final Logger log = LoggerFactory.getLogger(LLMDrivenRefactorEngine.class);
+
     private final LLMClient llmClient;
     private final PromptManager promptManager;
     private final ObjectMapper objectMapper;
+    private final SourceIndex sourceIndex;
+    private final int maxParallelism;
+    private final Path journalDirectory;
 
     public LLMDrivenRefactorEngine(
             LLMClient llmClient,
             PromptManager promptManager,
             ObjectMapper objectMapper) {
+        this(llmClient, promptManager, objectMapper, new SourceIndex(), 4, "");
+    }
+
+    /**
+     * @param maxParallelism Maximum number of files refactored at once
+     * @param journalDirectory Directory of the per-candidate run journals, or empty to keep none
+     */
+    @Autowired
+    public LLMDrivenRefactorEngine(
+            LLMClient llmClient,
+            PromptManager promptManager,
+            ObjectMapper objectMapper,
+            SourceIndex sourceIndex,
+            @Value("${agent.refactor.max-parallelism:4}") int maxParallelism,
+            @Value("${agent.refactor.journal-dir:}") String journalDirectory) {
         this.llmClient = llmClient;
         this.promptManager = promptManager;
         this.objectMapper = objectMapper;
+        this.sourceIndex = sourceIndex;
+        this.maxParallelism = Math.max(1, maxParallelism);
+        this.journalDirectory = journalDirectory.isBlank() ? null : Path.of(journalDirectory);
     }
 
+    /**
+     * Refactors the candidate's files concurrently, at most
+     * {@code agent.refactor.max-parallelism} at a time, in two passes.
+     *
+     * The first pass reads each file, gets its plan from the LLM and applies
+     * the steps in memory. Once every file's new location is known, the
+     * second pass rewrites packages, imports and qualified references of all
+     * moved types locally with a {@link ReferenceRewriter}, asks the LLM only
+     * about references to classes that stay in the monolith, and writes each
+     * file once. The result lists the files in source path order, however
+     * they completed.
+     *
+     * Progress is recorded in a {@link RefactorJournal} per candidate. A
+     * rerun after a failure reuses the plans of unchanged sources and skips
+     * files whose output on disk still matches the journal. Output goes
+     * through an {@link IncrementalSink}: files with unchanged content are not
+     * rewritten, and files refactored by an earlier run whose source no
+     * longer maps to them are deleted once the run succeeds.
+     */
     @Override
     public List<Path> refactorCode(
             Path monolithPath,
             MicroserviceCandidate candidate,
             Path targetPath) {
+        ExecutorService executor = null;
+        RefactorJournal journal = null;
         try {
-            List<Path> refactoredFiles = new ArrayList<>();
-            Map<String, String> fileCache = new HashMap<>();
-
             // Find all Java files that need to be refactored
             List<Path> sourceFiles = findSourceFiles(monolithPath, candidate);
+            if (sourceFiles.isEmpty()) {
+                return new ArrayList<>();
+            }
+            String targetContext = objectMapper.writeValueAsString(candidate);
+            String runName = candidate.name().replaceAll("[^A-Za-z0-9._-]", "_");
+            journal = RefactorJournal.open(
+                journalDirectory == null ? null : journalDirectory.resolve(runName + ".jsonl"),
+                objectMapper);
+            RefactorJournal runJournal = journal;
+            IncrementalSink output = new IncrementalSink(targetPath, ".refactored-files-" + runName);
 
-            // Process each file
+            executor = Executors.newFixedThreadPool(Math.min(maxParallelism, sourceFiles.size()));
+            List<Future<PlannedFile>> plans = new ArrayList<>();
             for (Path sourceFile : sourceFiles) {
-                // Read source file
-                String sourceCode = Files.readString(sourceFile);
-                String targetContext = objectMapper.writeValueAsString(candidate);
-
-                // Get refactoring plan from LLM
-                String refactorPlan = getRefactoringPlan(sourceCode, targetContext);
-
-                // Execute refactoring steps
-                RefactorResult result = executeRefactoring(sourceFile, refactorPlan, targetPath);
-                refactoredFiles.addAll(result.refactoredFiles());
-
-                // Cache file content for dependency updates
-                fileCache.put(sourceFile.toString(), Files.readString(result.refactoredFiles().get(0)));
+                plans.add(executor.submit(() -> planFile(sourceFile, targetContext, targetPath, runJournal)));
+            }
+            List<PlannedFile> planned = new ArrayList<>(plans.size());
+            for (Future<PlannedFile> plan : plans) {
+                planned.add(plan.get());
             }
 
-            // Update dependencies in refactored files
-            updateDependencies(refactoredFiles, fileCache, candidate);
+            ReferenceRewriter rewriter = new ReferenceRewriter(
+                movedTypes(planned), sourceIndex.of(monolithPath).qualifiedNames());
+            List<Future<RefactorResult>> results = new ArrayList<>();
+            for (PlannedFile file : planned) {
+                results.add(executor.submit(() -> finishFile(file, rewriter, targetContext, targetPath, output, runJournal)));
+            }
 
+            // Collect in submission order for deterministic output
+            List<Path> refactoredFiles = new ArrayList<>();
+            for (Future<RefactorResult> result : results) {
+                refactoredFiles.addAll(result.get().refactoredFiles());
+            }
+            journal.compact();
+            output.close();
             return refactoredFiles;
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to refactor code", e.getCause());
         } catch (Exception e) {
             throw new RuntimeException("Failed to refactor code", e);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            closeQuietly(journal);
         }
     }
 
-    private List<Path> findSourceFiles(Path monolithPath, MicroserviceCandidate candidate) throws IOException {
+    /**
+     * A file with its refactoring steps applied, not yet written.
+     */
+    private record PlannedFile(
+        Path sourceFile,
+        String sourceHash,
+        String contextHash,
+        Path targetFile,
+        String newPackage,
+        String original,
+        String content,
+        List<String> warnings
+    ) {}
+
+    private PlannedFile planFile(Path sourceFile, String targetContext, Path targetPath, RefactorJournal journal)
+            throws Exception {
+        // Read source file
+        String sourceCode = sourceIndex.sourceCache().read(sourceFile);
+        String sourceHash = RefactorJournal.hash(sourceCode);
+        String contextHash = RefactorJournal.hash(targetContext);
+
+        Optional<RefactorJournal.Entry> journaled = journal.planned(sourceFile, sourceHash, contextHash);
+        if (journaled.isPresent()) {
+            RefactorJournal.Entry entry = journaled.get();
+            return new PlannedFile(sourceFile, sourceHash, contextHash, Path.of(entry.target()), entry.newPackage(),
+                sourceCode, entry.content(), entry.warnings());
+        }
+
+        // Get refactoring plan from LLM
+        String refactorPlan = getRefactoringPlan(sourceCode, targetContext);
+
+        // Execute refactoring steps
+        Map<String, Object> plan = objectMapper.readValue(refactorPlan, Map.class);
+        Map<String, Object> refactoring = (Map<String, Object>) plan.get("refactoring");
+        List<String> warnings = new ArrayList<>();
+        String refactored = applySteps(sourceCode, refactoring, warnings);
+
+        Path targetFile = targetPath.resolve((String) refactoring.get("newLocation"));
+        String newPackage = packageFor(targetPath, targetFile)
+            .orElseGet(() -> ReferenceRewriter.declaredPackage(refactored));
+        journal.append(new RefactorJournal.Entry(RefactorJournal.PLANNED, sourceFile.toString(), sourceHash,
+            contextHash, targetFile.toString(), newPackage, refactored, null, warnings));
+        return new PlannedFile(sourceFile, sourceHash, contextHash, targetFile, newPackage, sourceCode, refactored,
+            warnings);
+    }
+
+    private RefactorResult finishFile(PlannedFile file, ReferenceRewriter rewriter, String targetContext,
+                                      Path targetPath, IncrementalSink output, RefactorJournal journal)
+            throws Exception {
+        Optional<String> outputName = outputName(targetPath, file.targetFile());
+        // Output also depends on where the other files moved: replanning one redoes the rest
+        String writtenHash = RefactorJournal.hash(file.contextHash() + ":" + rewriter.inputsHash());
+        Optional<RefactorJournal.Entry> written = journal.written(file.sourceFile(), file.sourceHash(), writtenHash);
+        if (written.isPresent() && written.get().target().equals(file.targetFile().toString())) {
+            outputName.ifPresent(output::keep);
+            return new RefactorResult(
+                List.of(file.targetFile()),
+                written.get().warnings(),
+                Map.of(file.sourceFile().toString(), file.targetFile().toString())
+            );
+        }
+
+        List<String> warnings = new ArrayList<>(file.warnings());
+        ReferenceRewriter.Rewrite rewrite = rewriter.rewrite(file.content(),
+            ReferenceRewriter.declaredPackage(file.original()), file.newPackage());
+
+        // Only references that cross the new service boundary need the LLM
+        String updated = rewrite.unresolved().isEmpty()
+            ? rewrite.content()
+            : updateDependencies(rewrite.content(), rewrite.unresolved(), targetContext, warnings);
+
+        // Unchanged output is not rewritten, so the service's build caches stay valid
+        if (outputName.isPresent()) {
+            output.write(outputName.get(), updated.getBytes(StandardCharsets.UTF_8));
+        } else {
+            Files.createDirectories(file.targetFile().getParent());
+            Files.writeString(file.targetFile(), updated);
+        }
+        journal.append(new RefactorJournal.Entry(RefactorJournal.WRITTEN, file.sourceFile().toString(),
+            file.sourceHash(), writtenHash, file.targetFile().toString(), file.newPackage(), null,
+            RefactorJournal.hash(updated), warnings));
+
+        for (String warning : warnings) {
+            log.warn("{}: {}", file.sourceFile(), warning);
+        }
+        return new RefactorResult(
+            List.of(file.targetFile()),
+            warnings,
+            Map.of(file.sourceFile().toString(), file.targetFile().toString())
+        );
+    }
+
+    private static void closeQuietly(RefactorJournal journal) {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.warn("Failed to close refactoring journal: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Old to new qualified name of every top-level type of the moved files.
+     * Types are paired by declaration order, so a type renamed by a
+     * refactoring step maps to its new name.
+     */
+    private static Map<String, String> movedTypes(List<PlannedFile> planned) {
+        Map<String, String> moved = new HashMap<>();
+        for (PlannedFile file : planned) {
+            List<String> before = ReferenceRewriter.topLevelTypes(file.original());
+            List<String> after = ReferenceRewriter.topLevelTypes(file.content());
+            String prefix = file.newPackage().isEmpty() ? "" : file.newPackage() + ".";
+            for (int i = 0; i < before.size(); i++) {
+                String name = after.size() == before.size() ? after.get(i) : before.get(i);
+                moved.put(before.get(i), prefix + name.substring(name.lastIndexOf('.') + 1));
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * The path of a target file relative to the service root, if it lies below it.
+     */
+    private static Optional<String> outputName(Path targetPath, Path targetFile) {
+        Path root = targetPath.toAbsolutePath().normalize();
+        Path file = targetFile.toAbsolutePath().normalize();
+        if (!file.startsWith(root) || file.equals(root)) {
+            return Optional.empty();
+        }
+        return Optional.of(root.relativize(file).toString().replace('\\', '/'));
+    }
+
+    /**
+     * Package implied by a file's location in the target project: its
+     * directory below src/main/java (or src/test/java), or below the project
+     * root if there is no such directory. Empty if the location does not form
+     * a valid package name.
+     */
+    static Optional<String> packageFor(Path targetPath, Path targetFile) {
+        Path directory = targetFile.getParent();
+        if (directory == null || !directory.normalize().startsWith(targetPath.normalize())) {
+            return Optional.empty();
+        }
+        String relative = targetPath.normalize().relativize(directory.normalize()).toString()
+            .replace(File.separatorChar, '/');
+        for (String sourceRoot : List.of("src/main/java", "src/test/java")) {
+            int at = relative.indexOf(sourceRoot);
+            if (at >= 0 && (at == 0 || relative.charAt(at - 1) == '/')) {
+                relative = relative.substring(at + sourceRoot.length());
+                break;
+            }
+        }
+        relative = relative.replaceAll("^/+", "");
+        if (relative.isEmpty()) {
+            return Optional.of("");
+        }
+        for (String segment : relative.split("/")) {
+            if (!SourceVersion.isName(segment)) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(relative.replace('/', '.'));
+    }
+
+    private List<Path> findSourceFiles(Path monolithPath, MicroserviceCandidate candidate) {
         // Find all Java files that belong to this bounded context
         Set<String> contextClasses = new HashSet<>();
         contextClasses.addAll(candidate.boundedContext().aggregateRoots());
@@ -74,12 +315,7 @@ public class LLMDrivenRefactorEngine implements RefactorEngine {
         contextClasses.addAll(candidate.boundedContext().repositories());
         contextClasses.addAll(candidate.boundedContext().services());
 
-        return Files.walk(monolithPath)
-            .filter(Files::isRegularFile)
-            .filter(p -> p.toString().endsWith(".java"))
-            .filter(p -> contextClasses.stream()
-                .anyMatch(cls -> p.getFileName().toString().equals(cls + ".java")))
-            .collect(Collectors.toList());
+        return sourceIndex.of(monolithPath).filesFor(contextClasses);
     }
 
     private String getRefactoringPlan(String sourceCode, String targetContext) throws Exception {
@@ -89,78 +325,62 @@ public class LLMDrivenRefactorEngine implements RefactorEngine {
                 "targetContext", targetContext
             ));
 
-        return llmClient.complete(prompt, Map.of()).get();
+        return llmClient.complete(prompt, Map.of(LLMClient.PROMPT_ID, "refactor-class")).get();
     }
 
-    private RefactorResult executeRefactoring(Path sourceFile, String refactorPlan, Path targetPath) throws Exception {
-        Map<String, Object> plan = objectMapper.readValue(refactorPlan, Map.class);
-        Map<String, Object> refactoring = (Map<String, Object>) plan.get("refactoring");
-        
-        // Create target directory if needed
-        String newLocation = (String) refactoring.get("newLocation");
-        Path targetFile = targetPath.resolve(newLocation);
-        Files.createDirectories(targetFile.getParent());
-
-        // Apply refactoring steps
-        String currentContent = Files.readString(sourceFile);
+    /**
+     * Applies the plan's steps in one pass. Each step targets a single
+     * location; steps that match nowhere, more than once, or where an earlier
+     * step already edited are reported in the warnings.
+     */
+    private String applySteps(String content, Map<String, Object> refactoring, List<String> warnings) {
         List<Map<String, Object>> steps = (List<Map<String, Object>>) refactoring.get("steps");
-        
+        List<Edit> edits = new ArrayList<>(steps.size());
         for (Map<String, Object> step : steps) {
             String oldCode = (String) step.get("oldCode");
             String newCode = (String) step.get("newCode");
-            currentContent = currentContent.replace(oldCode, newCode);
+            edits.add(Edit.once(oldCode, newCode == null ? "" : newCode));
         }
 
-        // Write refactored file
-        Files.writeString(targetFile, currentContent);
-
-        return new RefactorResult(
-            List.of(targetFile),
-            new ArrayList<>(),
-            Map.of(sourceFile.toString(), targetFile.toString())
-        );
+        Outcome outcome = EditEngine.apply(content, edits);
+        outcome.warnings().forEach(warning -> warnings.add("Refactoring step: " + warning));
+        return outcome.content();
     }
 
-    private void updateDependencies(
-            List<Path> refactoredFiles,
-            Map<String, String> fileCache,
-            MicroserviceCandidate candidate) throws Exception {
-        
-        for (Path file : refactoredFiles) {
-            String content = fileCache.get(file.toString());
-            if (content == null) continue;
-
-            String prompt = promptManager.getPrompt("dependency-update",
-                Map.of(
-                    "originalDependencies", extractImports(content),
-                    "refactoredClass", content,
-                    "serviceContext", objectMapper.writeValueAsString(candidate)
-                ));
-
-            String response = llmClient.complete(prompt, Map.of()).get();
-            Map<String, Object> updates = objectMapper.readValue(response, Map.class);
-
-            // Apply dependency updates
-            List<Map<String, Object>> changes = (List<Map<String, Object>>) updates.get("updates");
-            String updatedContent = content;
-            
-            for (Map<String, Object> change : changes) {
-                List<String> codeChanges = (List<String>) change.get("codeChanges");
-                for (String changeStr : codeChanges) {
-                    String[] parts = changeStr.split("->>");
-                    if (parts.length == 2) {
-                        updatedContent = updatedContent.replace(parts[0].trim(), parts[1].trim());
+    private String updateDependencies(String content, List<String> unresolved, String serviceContext,
+                                      List<String> warnings) throws Exception {
+        String prompt = promptManager.getPrompt("dependency-update",
+            Map.of(
+                "originalDependencies", String.join("\n", unresolved),
+                "refactoredClass", content,
+                "serviceContext", serviceContext
+            ));
+
+        String response = llmClient.complete(prompt, Map.of(LLMClient.PROMPT_ID, "dependency-update")).get();
+        JsonNode updates = objectMapper.readTree(response).path("updates");
+
+        // Each change is "old ->> new" and renames every occurrence, e.g. of an import
+        List<Edit> edits = new ArrayList<>();
+        for (JsonNode update : updates) {
+            for (JsonNode codeChange : update.path("codeChanges")) {
+                JsonNode lines = codeChange.path("changes");
+                if (!lines.isArray()) {
+                    warnings.add("Dependency update: skipping malformed code change " + codeChange);
+                    continue;
+                }
+                for (JsonNode line : lines) {
+                    String[] parts = line.isTextual() ? line.asText().split("->>", -1) : new String[0];
+                    if (parts.length != 2 || parts[0].isBlank()) {
+                        warnings.add("Dependency update: skipping malformed change " + line);
+                        continue;
                     }
+                    edits.add(Edit.everywhere(parts[0].trim(), parts[1].trim()));
                 }
             }
-
-            Files.writeString(file, updatedContent);
         }
-    }
 
-    private String extractImports(String content) {
-        return Arrays.stream(content.split("\n"))
-            .filter(line -> line.trim().startsWith("import "))
-            .collect(Collectors.joining("\n"));
+        Outcome outcome = EditEngine.apply(content, edits);
+        outcome.warnings().forEach(warning -> warnings.add("Dependency update: " + warning));
+        return outcome.content();
     }
 }
\ No newline at end of file
@@ -0,0 +1,213 @@
+package com.google.adk.modernization.refactor;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only journal of a refactoring run, so that a run interrupted by a
+ * parse error, a provider failure or a crash resumes where it stopped
+ * instead of paying for every LLM call again.
+ *
+ * Each file gets a {@code planned} entry once its steps are applied and a
+ * {@code written} entry once its output is on disk, holding the hash of that
+ * output. Entries are JSON lines keyed by the source file, its content hash
+ * and the hash of the target context, so entries of changed sources or of a
+ * different candidate are never reused. Writes are fsynced in batches of
+ * {@value #SYNC_EVERY} entries or at most {@value #SYNC_INTERVAL_MILLIS} ms
+ * apart; an entry lost in a crash only means that file is redone. A torn last
+ * line is skipped on load.
+ */
+public class RefactorJournal implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(RefactorJournal.class);
+    private static final int SYNC_EVERY = 16;
+    private static final long SYNC_INTERVAL_MILLIS = 1000;
+
+    static final String PLANNED = "planned";
+    static final String WRITTEN = "written";
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Entry> latest = new ConcurrentHashMap<>();
+    private FileChannel channel;
+    private int unsynced;
+    private long lastSync = System.currentTimeMillis();
+
+    /**
+     * One journal line.
+     *
+     * @param type {@code planned} or {@code written}
+     * @param source Source file
+     * @param sourceHash Hash of the source file's content
+     * @param contextHash Hash of the target context the file was refactored for
+     * @param target Output file
+     * @param newPackage Package of the output file
+     * @param content Content after the refactoring steps, for planned entries
+     * @param outputHash Hash of the written output, for written entries
+     * @param warnings Warnings so far
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Entry(
+        String type,
+        String source,
+        String sourceHash,
+        String contextHash,
+        String target,
+        String newPackage,
+        String content,
+        String outputHash,
+        List<String> warnings
+    ) {}
+
+    private RefactorJournal(Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Opens a journal, loading the entries already in it.
+     *
+     * @param file Journal file, or null for a journal that records nothing
+     */
+    public static RefactorJournal open(Path file, ObjectMapper objectMapper) throws IOException {
+        RefactorJournal journal = new RefactorJournal(file, objectMapper);
+        if (file == null) {
+            return journal;
+        }
+        if (Files.exists(file)) {
+            try (var lines = Files.lines(file, StandardCharsets.UTF_8)) {
+                lines.forEach(journal::load);
+            }
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        journal.channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return journal;
+    }
+
+    private void load(String line) {
+        if (line.isBlank()) {
+            return;
+        }
+        try {
+            Entry entry = objectMapper.readValue(line, Entry.class);
+            latest.put(entry.type() + ':' + entry.source(), entry);
+        } catch (IOException e) {
+            log.warn("Skipping unreadable journal line in {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * The latest planned entry of a source, if it was made from the same
+     * source content for the same context.
+     */
+    public Optional<Entry> planned(Path source, String sourceHash, String contextHash) {
+        return find(PLANNED, source, sourceHash, contextHash);
+    }
+
+    /**
+     * The latest written entry of a source whose output is still on disk
+     * unchanged.
+     */
+    public Optional<Entry> written(Path source, String sourceHash, String contextHash) {
+        return find(WRITTEN, source, sourceHash, contextHash).filter(entry -> {
+            Path target = Path.of(entry.target());
+            try {
+                return Files.isRegularFile(target) && hash(Files.readString(target)).equals(entry.outputHash());
+            } catch (IOException e) {
+                return false;
+            }
+        });
+    }
+
+    private Optional<Entry> find(String type, Path source, String sourceHash, String contextHash) {
+        return Optional.ofNullable(latest.get(type + ':' + source))
+            .filter(entry -> sourceHash.equals(entry.sourceHash()) && contextHash.equals(entry.contextHash()));
+    }
+
+    /**
+     * Appends an entry; it is on disk once the batch it belongs to is synced.
+     */
+    public synchronized void append(Entry entry) throws IOException {
+        latest.put(entry.type() + ':' + entry.source(), entry);
+        if (channel == null) {
+            return;
+        }
+        ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8));
+        while (line.hasRemaining()) {
+            channel.write(line);
+        }
+        unsynced++;
+        long now = System.currentTimeMillis();
+        if (unsynced >= SYNC_EVERY || now - lastSync >= SYNC_INTERVAL_MILLIS) {
+            sync(now);
+        }
+    }
+
+    private void sync(long now) throws IOException {
+        channel.force(false);
+        unsynced = 0;
+        lastSync = now;
+    }
+
+    /**
+     * Rewrites the journal with only the latest entry per file and kind,
+     * dropping the history of earlier runs.
+     */
+    public synchronized void compact() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        channel.close();
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            for (Entry entry : new TreeMap<>(latest).values()) {
+                ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8));
+                while (line.hasRemaining()) {
+                    out.write(line);
+                }
+            }
+            out.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        unsynced = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            if (unsynced > 0) {
+                sync(System.currentTimeMillis());
+            }
+            channel.close();
+        }
+    }
+
+    /**
+     * SHA-256 of a text, as hex.
+     */
+    public static String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.google.adk.modernization.refactor;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.Position;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.PackageDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.TypeParameter;
+import com.google.adk.modernization.refactor.EditEngine.Replacement;
+
+import java.util.*;
+
+/**
+ * Rewrites package declarations, imports and qualified references of moved
+ * classes without asking the LLM.
+ *
+ * The rewriter knows where every moved type went (old to new qualified name)
+ * and which types the monolith declares. For each moved file it sets the new
+ * package, retargets imports and fully qualified references of moved types,
+ * and adds imports for types the file used to reach through its old package.
+ * Edits are made on the AST node ranges of the original text, so the rest of
+ * the file keeps its formatting.
+ *
+ * References to monolith types that were not moved along with the file are
+ * left alone and reported as unresolved: they cross the new service boundary
+ * and need a decision (API call, event, copy) that only the LLM can make.
+ *
+ * Instances are immutable and may be shared between threads.
+ */
+public class ReferenceRewriter {
+    private static final ThreadLocal<JavaParser> PARSER = ThreadLocal.withInitial(() -> new JavaParser(
+        new ParserConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17)));
+
+    private final Map<String, String> movedTypes;
+    private final Set<String> knownTypes;
+    private final String inputsHash;
+
+    /**
+     * Result of rewriting one file.
+     *
+     * @param content The rewritten content
+     * @param unresolved References to monolith types that stay behind, or the
+     *                   file's imports if it could not be parsed
+     */
+    public record Rewrite(
+        String content,
+        List<String> unresolved
+    ) {}
+
+    /**
+     * @param movedTypes Old to new qualified name of every moved type
+     * @param knownTypes Qualified names of all types declared in the monolith
+     */
+    public ReferenceRewriter(Map<String, String> movedTypes, Set<String> knownTypes) {
+        this.movedTypes = Map.copyOf(movedTypes);
+        this.knownTypes = Set.copyOf(knownTypes);
+        this.inputsHash = RefactorJournal.hash(new TreeMap<>(movedTypes) + "\n" + new TreeSet<>(knownTypes));
+    }
+
+    /**
+     * A hash of the moved and known types. Together with a file's content and
+     * package they decide its rewrite, so output rewritten under another
+     * hash may reference types where they no longer are.
+     */
+    public String inputsHash() {
+        return inputsHash;
+    }
+
+    /**
+     * Qualified names of the top-level types declared in a file, in
+     * declaration order, or an empty list if it cannot be parsed.
+     */
+    public static List<String> topLevelTypes(String content) {
+        Optional<CompilationUnit> parsed = parse(content);
+        if (parsed.isEmpty()) {
+            return List.of();
+        }
+        String prefix = packagePrefix(parsed.get());
+        return parsed.get().getTypes().stream()
+            .map(type -> prefix + type.getNameAsString())
+            .toList();
+    }
+
+    /**
+     * The package a file declares, or an empty string for the default package
+     * or a file that cannot be parsed.
+     */
+    public static String declaredPackage(String content) {
+        return parse(content)
+            .flatMap(CompilationUnit::getPackageDeclaration)
+            .map(PackageDeclaration::getNameAsString)
+            .orElse("");
+    }
+
+    /**
+     * Rewrites one moved file whose package declaration is still the original one.
+     *
+     * @param content The file's content after its refactoring steps
+     * @param newPackage The package the file moved to
+     * @return The rewritten content and its unresolved references
+     */
+    public Rewrite rewrite(String content, String newPackage) {
+        return rewrite(content, declaredPackage(content), newPackage);
+    }
+
+    /**
+     * Rewrites one moved file.
+     *
+     * @param content The file's content after its refactoring steps, whose
+     *                package declaration may already have been changed by them
+     * @param oldPackage The package the file was in before the refactoring,
+     *                   through which it reached its same-package types
+     * @param newPackage The package the file moved to
+     * @return The rewritten content and its unresolved references
+     */
+    public Rewrite rewrite(String content, String oldPackage, String newPackage) {
+        Optional<CompilationUnit> parsed = parse(content);
+        if (parsed.isEmpty()) {
+            List<String> imports = content.lines()
+                .filter(line -> line.trim().startsWith("import "))
+                .toList();
+            return new Rewrite(content, imports);
+        }
+        CompilationUnit cu = parsed.get();
+        Offsets offsets = new Offsets(content);
+        String oldPrefix = oldPackage.isEmpty() ? "" : oldPackage + ".";
+        String newPrefix = newPackage.isEmpty() ? "" : newPackage + ".";
+
+        List<Replacement> replacements = new ArrayList<>();
+        Set<String> unresolved = new LinkedHashSet<>();
+        Set<String> addedImports = new TreeSet<>();
+
+        // Names that resolve without the old package: declared here or imported by name
+        Set<String> local = new HashSet<>();
+        cu.findAll(TypeDeclaration.class).forEach(type -> local.add(type.getNameAsString()));
+        cu.findAll(TypeParameter.class).forEach(parameter -> local.add(parameter.getNameAsString()));
+        List<String> wildcardPackages = new ArrayList<>();
+
+        for (ImportDeclaration importDeclaration : cu.getImports()) {
+            String name = importDeclaration.getNameAsString();
+            if (importDeclaration.isAsterisk() && !importDeclaration.isStatic()) {
+                wildcardPackages.add(name + ".");
+                continue;
+            }
+            if (!importDeclaration.isAsterisk()) {
+                local.add(name.substring(name.lastIndexOf('.') + 1));
+            }
+            // Static imports name a member of the type
+            String type = importDeclaration.isStatic() && !importDeclaration.isAsterisk()
+                ? name.substring(0, Math.max(0, name.lastIndexOf('.')))
+                : name;
+            String moved = movedTypes.get(type);
+            if (moved != null) {
+                replacements.add(offsets.replace(importDeclaration.getName(), moved + name.substring(type.length())));
+            } else if (knownTypes.contains(type)) {
+                unresolved.add(type);
+            }
+        }
+
+        for (ClassOrInterfaceType type : cu.findAll(ClassOrInterfaceType.class)) {
+            if (type.getParentNode().filter(ClassOrInterfaceType.class::isInstance).isPresent()) {
+                // Scopes are handled with the type they qualify
+                continue;
+            }
+            String qualified = scopedName(type);
+            String moved = movedTypes.get(qualified);
+            if (moved != null) {
+                replacements.add(offsets.replace(type, type.getName(), moved));
+            } else if (qualified.indexOf('.') > 0 && knownTypes.contains(qualified)) {
+                unresolved.add(qualified);
+            } else {
+                // Owner.Address resolves through Owner
+                int dot = qualified.indexOf('.');
+                String first = dot < 0 ? qualified : qualified.substring(0, dot);
+                resolveSimpleName(first, local, oldPrefix, newPrefix, wildcardPackages, addedImports, unresolved);
+            }
+        }
+
+        for (AnnotationExpr annotation : cu.findAll(AnnotationExpr.class)) {
+            String name = annotation.getNameAsString();
+            String moved = movedTypes.get(name);
+            if (moved != null) {
+                replacements.add(offsets.replace(annotation.getName(), moved));
+            } else if (name.indexOf('.') < 0) {
+                resolveSimpleName(name, local, oldPrefix, newPrefix, wildcardPackages, addedImports, unresolved);
+            }
+        }
+
+        // Static member access such as Pet.create(): the scope is a plain name
+        for (NameExpr nameExpr : cu.findAll(NameExpr.class)) {
+            String name = nameExpr.getNameAsString();
+            if (Character.isUpperCase(name.charAt(0))) {
+                resolveSimpleName(name, local, oldPrefix, newPrefix, wildcardPackages, addedImports, unresolved);
+            }
+        }
+
+        for (FieldAccessExpr access : cu.findAll(FieldAccessExpr.class)) {
+            String moved = movedTypes.get(access.toString());
+            if (moved != null && access.getRange().isPresent()) {
+                replacements.add(offsets.replace(access, access, moved));
+            }
+        }
+
+        // Package declaration, then any imports the move made necessary
+        Optional<PackageDeclaration> packageDeclaration = cu.getPackageDeclaration();
+        if (packageDeclaration.isPresent()) {
+            replacements.add(newPackage.isEmpty()
+                ? offsets.replace(packageDeclaration.get(), packageDeclaration.get(), "")
+                : offsets.replace(packageDeclaration.get().getName(), newPackage));
+        } else if (!newPackage.isEmpty()) {
+            replacements.add(new Replacement(0, 0, "package " + newPackage + ";\n\n"));
+        }
+        if (!addedImports.isEmpty()) {
+            StringBuilder imports = new StringBuilder();
+            addedImports.forEach(name -> imports.append("\nimport ").append(name).append(';'));
+            int at;
+            if (cu.getImports().isNonEmpty()) {
+                at = offsets.end(cu.getImports().get(cu.getImports().size() - 1));
+            } else if (packageDeclaration.isPresent()) {
+                at = offsets.end(packageDeclaration.get());
+                imports.insert(0, '\n');
+            } else {
+                at = 0;
+                imports.deleteCharAt(0).append("\n\n");
+            }
+            replacements.add(new Replacement(at, at, imports.toString()));
+        }
+
+        return new Rewrite(EditEngine.replace(content, replacements), new ArrayList<>(unresolved));
+    }
+
+    /**
+     * Resolves a type name used without qualifier or import: a type of the
+     * file's old package now has to be imported, from wherever it moved.
+     */
+    private void resolveSimpleName(String name, Set<String> local, String oldPrefix, String newPrefix,
+                                   List<String> wildcardPackages, Set<String> addedImports, Set<String> unresolved) {
+        if (local.contains(name)) {
+            return;
+        }
+        List<String> candidates = new ArrayList<>();
+        candidates.add(oldPrefix + name);
+        wildcardPackages.forEach(prefix -> candidates.add(prefix + name));
+        for (String candidate : candidates) {
+            String moved = movedTypes.get(candidate);
+            if (moved != null) {
+                if (!moved.equals(newPrefix + name)) {
+                    addedImports.add(moved);
+                }
+                return;
+            }
+            if (knownTypes.contains(candidate)) {
+                unresolved.add(candidate);
+                return;
+            }
+        }
+    }
+
+    private static String scopedName(ClassOrInterfaceType type) {
+        StringBuilder name = new StringBuilder(type.getNameAsString());
+        Optional<ClassOrInterfaceType> scope = type.getScope();
+        while (scope.isPresent()) {
+            name.insert(0, scope.get().getNameAsString() + ".");
+            scope = scope.get().getScope();
+        }
+        return name.toString();
+    }
+
+    private static String packagePrefix(CompilationUnit cu) {
+        return cu.getPackageDeclaration().map(pd -> pd.getNameAsString() + ".").orElse("");
+    }
+
+    private static Optional<CompilationUnit> parse(String content) {
+        try {
+            ParseResult<CompilationUnit> result = PARSER.get().parse(content);
+            return result.isSuccessful() ? result.getResult() : Optional.empty();
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Converts JavaParser positions (1-based lines and columns, tabs counting
+     * as one column) into string offsets.
+     */
+    private static final class Offsets {
+        private final int[] lineStarts;
+
+        Offsets(String content) {
+            List<Integer> starts = new ArrayList<>();
+            starts.add(0);
+            for (int i = 0; i < content.length(); i++) {
+                if (content.charAt(i) == '\n') {
+                    starts.add(i + 1);
+                }
+            }
+            lineStarts = starts.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        int offset(Position position) {
+            return lineStarts[position.line - 1] + position.column - 1;
+        }
+
+        int end(Node node) {
+            return offset(node.getRange().orElseThrow().end) + 1;
+        }
+
+        Replacement replace(Node node, String text) {
+            return replace(node, node, text);
+        }
+
+        /**
+         * Replaces the text from the start of one node to the end of another.
+         */
+        Replacement replace(Node from, Node to, String text) {
+            return new Replacement(offset(from.getRange().orElseThrow().begin), end(to), text);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.google.adk.modernization.analyzer;
+
+import com.google.adk.modernization.analyzer.CodeAnalyzer.ClassInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyType;
+import com.google.adk.modernization.analyzer.ContextSelector.Selection;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextSelectorTest {
+
+    private static ClassInfo classInfo(String name, String... methods) {
+        return new ClassInfo(name, "clinic", List.of(methods), List.of("id"), List.of());
+    }
+
+    /**
+     * Every class depends on Owner.
+     */
+    private static List<DependencyInfo> star(List<ClassInfo> classes) {
+        List<DependencyInfo> dependencies = new ArrayList<>();
+        for (ClassInfo classInfo : classes) {
+            if (!classInfo.name().equals("Owner")) {
+                dependencies.add(new DependencyInfo(classInfo.name(), "Owner", DependencyType.ASSOCIATION));
+            }
+        }
+        return dependencies;
+    }
+
+    @Test
+    void keepsEverythingWithinBudget() {
+        List<ClassInfo> classes = List.of(classInfo("Owner", "getName"), classInfo("Pet", "getOwner"));
+
+        Selection selection = new ContextSelector(6000).select(classes, star(classes));
+
+        assertSame(classes, selection.classes());
+        assertEquals(0, selection.omitted());
+    }
+
+    @Test
+    void prefersCentralClassesAndInformativeMethods() {
+        List<ClassInfo> classes = new ArrayList<>();
+        classes.add(classInfo("Owner", "getName", "getAddress", "addPet", "setName", "getTelephone"));
+        for (int i = 0; i < 40; i++) {
+            classes.add(classInfo("Leaf" + i, "doSomethingQuiteLongNamed" + i));
+        }
+        classes.add(classInfo("Pet"));
+
+        // Room for a handful of skeletons and a few methods
+        Selection selection = new ContextSelector(6000).select(classes, star(classes), 150);
+
+        assertEquals("Owner", selection.classes().get(0).name());
+        assertTrue(selection.omitted() > 0);
+        assertEquals(classes.size(), selection.classes().size() + selection.omitted());
+        List<String> ownerMethods = selection.classes().get(0).methods();
+        assertEquals("addPet", ownerMethods.get(0));
+    }
+
+    @Test
+    void ranksHubsAboveLeaves() {
+        List<ClassInfo> classes = List.of(classInfo("Owner"), classInfo("Pet"), classInfo("Visit"));
+        List<DependencyInfo> dependencies = List.of(
+            new DependencyInfo("Pet", "Owner", DependencyType.ASSOCIATION),
+            new DependencyInfo("Visit", "Pet", DependencyType.ASSOCIATION)
+        );
+
+        Map<String, Double> scores = new ContextSelector(6000).rank(classes, dependencies);
+
+        assertTrue(scores.get("Owner") > scores.get("Visit"));
+        assertTrue(scores.get("Pet") > scores.get("Visit"));
+    }
+
+    @Test
+    void keepsOnlyTheMostRecentRanks() {
+        ContextSelector selector = new ContextSelector(6000, 3);
+        List<ClassInfo> clinic = List.of(classInfo("Owner"), classInfo("Pet"));
+        selector.rank(clinic, star(clinic));
+        List<ClassInfo> visits = List.of(classInfo("Owner"), classInfo("Visit"), classInfo("Vet"));
+        selector.rank(visits, star(visits));
+
+        assertEquals(3, selector.warmRanks());
+        // Ranked again, so still a warm start for the next selection
+        Map<String, Double> scores = selector.rank(clinic, star(clinic));
+        assertTrue(scores.get("Owner") > scores.get("Pet"));
+        assertEquals(3, selector.warmRanks());
+    }
+}
@@ -0,0 +1,81 @@
+package com.google.adk.modernization.analyzer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceCacheTest {
+
+    private static double count(SimpleMeterRegistry registry, String result) {
+        return registry.get("source.cache").tag("result", result).counter().count();
+    }
+
+    private static double bytesRead(SimpleMeterRegistry registry) {
+        return registry.get("source.cache.bytes.read").counter().count();
+    }
+
+    @Test
+    void readsEachFileOnceUntilItChanges(@TempDir Path root) throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SourceCache cache = new SourceCache(registry, 1 << 20, 1 << 16);
+        Path file = root.resolve("Owner.java");
+        Files.writeString(file, "class Owner {}\n");
+
+        assertEquals("class Owner {}\n", cache.read(file));
+        assertEquals("class Owner {}\n", cache.read(root.resolve("./Owner.java")));
+        assertEquals(1, count(registry, "miss"));
+        assertEquals(1, count(registry, "hit"));
+        assertEquals(15, bytesRead(registry));
+
+        Files.writeString(file, "class Owner { Pet pet; }\n");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(5)));
+        assertEquals("class Owner { Pet pet; }\n", cache.read(file));
+        assertEquals(2, count(registry, "miss"));
+    }
+
+    @Test
+    void mapsLargeFilesAndStaysWithinBound(@TempDir Path root) throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SourceCache cache = new SourceCache(registry, 3000, 1000);
+        Path large = root.resolve("Large.java");
+        String content = "// " + "x".repeat(1500) + "\nclass Large {}\n";
+        Files.writeString(large, content);
+
+        assertTrue(cache.bytes(large).isDirect(), "Files above the threshold are mapped");
+        assertEquals(content, cache.read(large));
+
+        for (int i = 0; i < 10; i++) {
+            Path small = root.resolve("Small" + i + ".java");
+            Files.writeString(small, "class Small" + i + " { " + "int x;".repeat(50) + " }\n");
+            cache.read(small);
+            assertTrue(cache.cachedBytes() <= 3000, "Bound exceeded: " + cache.cachedBytes());
+        }
+    }
+
+    @Test
+    void sharesReadsBetweenAnalyzerAndIndex(@TempDir Path root) throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SourceCache cache = new SourceCache(registry, 1 << 20, 1 << 16);
+        long size = 0;
+        for (String name : new String[] {"Owner", "Pet", "Visit"}) {
+            Path file = root.resolve(name + ".java");
+            Files.writeString(file, "package clinic;\n\npublic class " + name + " {}\n");
+            size += Files.size(file);
+        }
+
+        new JavaParserCodeAnalyzer(cache).analyze(root);
+        new SourceIndex(cache).of(root);
+        new JavaParserCodeAnalyzer(cache).analyze(root);
+
+        assertEquals(size, bytesRead(registry), "Every file is read from disk once");
+        assertEquals(3, count(registry, "miss"));
+        assertEquals(6, count(registry, "hit"));
+    }
+}
@@ -0,0 +1,78 @@
+package com.google.adk.modernization.analyzer;
+
+import com.google.adk.modernization.analyzer.SourceIndex.Snapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceIndexTest {
+
+    @Test
+    void indexesNestedAndNonPublicClasses(@TempDir Path root) throws Exception {
+        Path owners = Files.createDirectories(root.resolve("clinic/owner"));
+        Path ownerFile = owners.resolve("Owner.java");
+        Files.writeString(ownerFile, """
+            package clinic.owner;
+
+            public class Owner {
+                public record Address(String street) {}
+            }
+
+            class OwnerValidator {}
+            """);
+        Path brokenFile = owners.resolve("Broken.java");
+        Files.writeString(brokenFile, "package clinic.owner; class {");
+
+        Snapshot index = new SourceIndex().of(root);
+
+        assertEquals(List.of(ownerFile), index.filesFor("Owner"));
+        assertEquals(List.of(ownerFile), index.filesFor("Address"));
+        assertEquals(List.of(ownerFile), index.filesFor("OwnerValidator"));
+        assertEquals(List.of(ownerFile), index.filesFor("clinic.owner.Owner.Address"));
+        assertEquals(List.of(brokenFile), index.filesFor("Broken"));
+        assertEquals(List.of(), index.filesFor("Vet"));
+        assertEquals(List.of(ownerFile), index.filesFor(List.of("Owner", "Address", "Vet")));
+    }
+
+    @Test
+    void buildsOncePerRoot(@TempDir Path root) {
+        SourceIndex sourceIndex = new SourceIndex();
+
+        Snapshot first = sourceIndex.of(root);
+        assertSame(first, sourceIndex.of(root.resolve(".")));
+
+        sourceIndex.invalidate(root);
+        assertNotSame(first, sourceIndex.of(root));
+    }
+
+    @Test
+    void rebuildsWhenFilesAreAddedChangedOrDeleted(@TempDir Path root) throws Exception {
+        Path clinic = Files.createDirectories(root.resolve("clinic"));
+        Path owner = Files.writeString(clinic.resolve("Owner.java"), "package clinic; class Owner {}");
+        Path pet = Files.writeString(clinic.resolve("Pet.java"), "package clinic; class Pet {}");
+        SourceIndex sourceIndex = new SourceIndex();
+        Snapshot first = sourceIndex.of(root);
+
+        Files.delete(pet);
+        Snapshot afterDelete = sourceIndex.of(root);
+        assertNotSame(first, afterDelete);
+        assertEquals(List.of(owner), afterDelete.files());
+
+        Path vet = Files.writeString(clinic.resolve("Vet.java"), "package clinic; class Vet {}");
+        Files.setLastModifiedTime(clinic, FileTime.from(Instant.now().plusSeconds(60)));
+        assertEquals(List.of(owner, vet), sourceIndex.of(root).files());
+
+        Files.writeString(owner, "package clinic; class PetOwner {}");
+        Files.setLastModifiedTime(owner, FileTime.from(Instant.now().plusSeconds(120)));
+        Snapshot afterEdit = sourceIndex.of(root);
+        assertEquals(List.of(owner), afterEdit.filesFor("PetOwner"));
+        assertSame(afterEdit, sourceIndex.of(root), "Unchanged roots reuse their index");
+    }
+}
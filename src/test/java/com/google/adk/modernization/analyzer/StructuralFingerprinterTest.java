@@ -0,0 +1,80 @@
+package com.google.adk.modernization.analyzer;
+
+import com.google.adk.modernization.analyzer.CodeAnalyzer.ClassInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyType;
+import com.google.adk.modernization.analyzer.StructuralFingerprinter.ClassGroup;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StructuralFingerprinterTest {
+    private final StructuralFingerprinter fingerprinter = new StructuralFingerprinter();
+
+    private static ClassInfo dao(String name, String... methods) {
+        return new ClassInfo(name, "clinic", List.of(methods), List.of("entityManager"), List.of("Repository"));
+    }
+
+    private String fingerprint(ClassInfo classInfo, DependencyInfo... outgoing) {
+        return fingerprinter.fingerprint(classInfo, List.of(outgoing));
+    }
+
+    @Test
+    void identicalShapesShareAFingerprint() {
+        ClassInfo owners = new ClassInfo("OwnerDao", "clinic", List.of("findOwner", "saveOwner", "findAll"),
+            List.of("owners"), List.of("Repository"));
+        ClassInfo pets = new ClassInfo("PetDao", "clinic", List.of("findAll", "savePet", "findPet"),
+            List.of("pets"), List.of("Repository"));
+
+        assertEquals(
+            fingerprint(owners, new DependencyInfo("OwnerDao", "List<Owner>", DependencyType.COMPOSITION)),
+            fingerprint(pets, new DependencyInfo("PetDao", "List<Pet>", DependencyType.COMPOSITION)));
+    }
+
+    @Test
+    void differentShapesDoNotShareAFingerprint() {
+        assertNotEquals(fingerprint(dao("OwnerDao", "findOwner")), fingerprint(dao("PetDao", "findPet", "deletePet")));
+        assertNotEquals(fingerprint(dao("OwnerDao", "findOwner")), fingerprint(dao("OwnerService", "findOwner")));
+        assertNotEquals(
+            fingerprint(dao("OwnerDao", "findOwner"), new DependencyInfo("OwnerDao", "Owner", DependencyType.ASSOCIATION)),
+            fingerprint(dao("PetDao", "findPet"), new DependencyInfo("PetDao", "Owner", DependencyType.ASSOCIATION)));
+        assertNotEquals(fingerprint(dao("Owner", "find")), fingerprint(dao("Pet", "find")),
+            "Single-word names are never merged");
+    }
+
+    @Test
+    void replacesTheStemOnlyAsWholeWords() {
+        // Pet within findCarpet or Petition is not the stem, Owner in findCarOwner is
+        assertNotEquals(fingerprint(dao("PetDao", "findPet", "findCarpet")),
+            fingerprint(dao("OwnerDao", "findOwner", "findCarOwner")));
+        assertNotEquals(fingerprint(dao("PetDao", "findPet", "findPetition")),
+            fingerprint(dao("OwnerDao", "findOwner", "findOwnerition")));
+        assertNotEquals(fingerprint(dao("ArtDao", "findArt", "start")), fingerprint(dao("EndDao", "findEnd", "stEnd")));
+    }
+
+    @Test
+    void groupsKeepTheFirstClassAsRepresentative() {
+        List<ClassInfo> classes = List.of(
+            dao("OwnerDao", "findOwner"),
+            dao("VetDao", "findVet", "findSpecialties"),
+            dao("PetDao", "findPet"),
+            dao("VisitDao", "findVisit"));
+
+        List<ClassGroup> groups = fingerprinter.group(classes, List.of());
+
+        assertEquals(2, groups.size());
+        assertEquals("OwnerDao", groups.get(0).representative().name());
+        assertEquals(List.of("OwnerDao", "PetDao", "VisitDao"),
+            groups.get(0).members().stream().map(ClassInfo::name).toList());
+        assertEquals(List.of("VetDao"), groups.get(1).members().stream().map(ClassInfo::name).toList());
+    }
+
+    @Test
+    void stemsTheTrailingWord() {
+        assertEquals("PetType", fingerprinter.stem("PetTypeController"));
+        assertEquals("Owner", fingerprinter.stem("Owner"));
+        assertEquals("URLDao", fingerprinter.stem("URLDao"));
+    }
+}
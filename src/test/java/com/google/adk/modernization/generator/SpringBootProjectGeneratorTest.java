@@ -0,0 +1,210 @@
+package com.google.adk.modernization.generator;
+
+import com.google.adk.modernization.generator.ProjectGenerator.GeneratedFile;
+import com.google.adk.modernization.generator.ProjectGenerator.RuntimeProfile;
+import com.google.adk.modernization.mapper.DDDMapper.BoundedContext;
+import com.google.adk.modernization.mapper.DDDMapper.MicroserviceCandidate;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpringBootProjectGeneratorTest {
+
+    private static MicroserviceCandidate candidate(String name, String... aggregates) {
+        BoundedContext context = new BoundedContext(name, "", new LinkedHashSet<>(List.of(aggregates)), Set.of(),
+            Set.of(), Set.of(), Set.of(), List.of());
+        return new MicroserviceCandidate(name.toLowerCase() + "-service", context, Set.of(), Set.of(), Set.of(),
+            List.of());
+    }
+
+    @Test
+    void rendersProjectFilesFromTemplates() {
+        List<GeneratedFile> files = new SpringBootProjectGenerator().generateFiles(candidate("Owners", "Owner", "Pet"));
+
+        List<String> paths = files.stream().map(f -> f.path().toString().replace('\\', '/')).toList();
+        assertEquals(List.of(
+            "pom.xml",
+            "src/main/resources/application.yml",
+            "docker/Dockerfile",
+            "kubernetes/deployment.yaml",
+            "kubernetes/service.yaml",
+            "helm/owners-service/Chart.yaml",
+            "helm/owners-service/values.yaml",
+            ".github/workflows/ci-cd.yml",
+            "src/main/java/com/example/ownersservice/domain/model/Owner.java",
+            "src/main/java/com/example/ownersservice/domain/model/Pet.java",
+            "src/main/java/com/example/ownersservice/Application.java",
+            "src/jmh/java/com/example/ownersservice/benchmark/OwnerBenchmark.java",
+            "src/jmh/java/com/example/ownersservice/benchmark/PetBenchmark.java",
+            "src/jmh/java/com/example/ownersservice/benchmark/LoadDriver.java"), paths);
+
+        String pom = files.get(0).content();
+        assertTrue(pom.contains("<artifactId>owners-service</artifactId>"));
+        assertTrue(pom.contains("<version>${spring-cloud.version}</version>"), "Maven properties are left alone");
+        assertTrue(files.get(8).content().startsWith("package com.example.ownersservice.domain.model;"));
+        assertTrue(files.get(8).content().contains("public class Owner {"));
+        files.forEach(f -> assertFalse(f.content().contains("{{"), f.path() + " has unrendered variables"));
+    }
+
+    @Test
+    void addsTheDriverOfTheConfiguredDatabase() {
+        for (RuntimeProfile profile : RuntimeProfile.values()) {
+            Map<String, String> files = new SpringBootProjectGenerator(1, profile)
+                .generateFiles(candidate("Owners", "Owner")).stream()
+                .collect(Collectors.toMap(f -> f.path().toString().replace('\\', '/'), GeneratedFile::content));
+
+            Matcher url = Pattern.compile("url: jdbc:(\\w+):").matcher(files.get("src/main/resources/application.yml"));
+            assertTrue(url.find(), profile + " configures a JDBC URL");
+            assertEquals("postgresql", url.group(1));
+            assertTrue(files.get("pom.xml").contains("<groupId>org.postgresql</groupId>\n"
+                + "            <artifactId>postgresql</artifactId>\n"
+                + "            <scope>runtime</scope>"), profile + " pom has the PostgreSQL driver");
+        }
+    }
+
+    @Test
+    void generatesManyServicesConcurrently(@TempDir Path output) throws Exception {
+        List<MicroserviceCandidate> candidates = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            candidates.add(candidate("Context" + i, "Aggregate" + i));
+        }
+
+        List<Path> projects = new SpringBootProjectGenerator(8).generateMicroservices(candidates, output);
+
+        assertEquals(60, projects.size());
+        for (int i = 0; i < 60; i++) {
+            Path project = projects.get(i);
+            assertEquals(output.resolve("context" + i + "-service"), project);
+            try (Stream<Path> files = Files.walk(project)) {
+                assertEquals(12, files.filter(Files::isRegularFile).count());
+            }
+            assertTrue(Files.readString(project.resolve(
+                    "src/main/java/com/example/context" + i + "service/domain/model/Aggregate" + i + ".java"))
+                .contains("public class Aggregate" + i + " {"));
+        }
+    }
+
+    private static Map<String, String> render(RuntimeProfile profile) {
+        return new SpringBootProjectGenerator(1, profile).generateFiles(candidate("Owners", "Owner")).stream()
+            .collect(Collectors.toMap(f -> f.path().toString().replace('\\', '/'), GeneratedFile::content));
+    }
+
+    /**
+     * Dotted names of the properties a YAML document sets.
+     */
+    private static Set<String> propertyNames(JsonNode node, String prefix, Set<String> names) {
+        if (node.isObject()) {
+            node.fields().forEachRemaining(field ->
+                propertyNames(field.getValue(), prefix.isEmpty() ? field.getKey() : prefix + "." + field.getKey(), names));
+        } else {
+            names.add(prefix);
+        }
+        return names;
+    }
+
+    @Test
+    void configuresTheApplicationWithoutSelfReferencingPlaceholders() throws Exception {
+        ObjectMapper yaml = new ObjectMapper(new YAMLFactory());
+        for (RuntimeProfile profile : RuntimeProfile.values()) {
+            String application = render(profile).get("src/main/resources/application.yml");
+            JsonNode root = yaml.readTree(application);
+            Set<String> properties = propertyNames(root, "", new HashSet<>());
+
+            assertEquals("owners-service", root.at("/spring/application/name").asText(), profile.toString());
+            assertTrue(root.at("/spring/datasource/url").asText().endsWith("/owners-service"));
+            Matcher placeholder = Pattern.compile("\\$\\{([^:}]+)").matcher(application);
+            while (placeholder.find()) {
+                assertFalse(properties.contains(placeholder.group(1)),
+                    profile + " application.yml refers to its own property " + placeholder.group(1));
+            }
+        }
+    }
+
+    @Test
+    void tunesServicesForThePerformanceProfile() {
+        Map<String, String> files = render(RuntimeProfile.PERFORMANCE);
+
+        assertTrue(files.get("pom.xml").contains("<java.version>21</java.version>"));
+        assertTrue(files.get("pom.xml").contains("<version>3.3.4</version>"));
+        String application = files.get("src/main/resources/application.yml");
+        assertTrue(application.contains("virtual:\n      enabled: true"));
+        assertTrue(application.contains("maximum-pool-size: 10"));
+        assertTrue(application.contains("max-connections: 8192"));
+        String dockerfile = files.get("docker/Dockerfile");
+        assertTrue(dockerfile.contains("-Djarmode=tools -jar application.jar extract --layers"));
+        assertTrue(dockerfile.contains("-XX:ArchiveClassesAtExit=application.jsa"));
+        assertTrue(dockerfile.contains("-XX:MaxRAMPercentage=75.0"));
+        assertTrue(files.get("kubernetes/deployment.yaml").contains("memory: 1Gi"));
+        assertTrue(files.get("helm/owners-service/values.yaml").contains("cpu: \"2\""));
+    }
+
+    @Test
+    void keepsDefaultsForTheStandardProfile() {
+        Map<String, String> files = render(RuntimeProfile.STANDARD);
+
+        assertEquals(render(RuntimeProfile.PERFORMANCE).keySet(), files.keySet());
+        assertTrue(files.get("pom.xml").contains("<java.version>17</java.version>"));
+        assertTrue(files.get("pom.xml").contains("<version>3.1.4</version>"));
+        assertFalse(files.get("src/main/resources/application.yml").contains("virtual"));
+        assertTrue(files.get("docker/Dockerfile").startsWith("FROM eclipse-temurin:17-jre-alpine"));
+        assertTrue(files.get(".github/workflows/ci-cd.yml").contains("java-version: '17'"));
+    }
+
+    @Test
+    void generatesBenchmarksAndALoadScenarioPerApi() {
+        MicroserviceCandidate owners = new MicroserviceCandidate("owners-service", candidate("Owners", "Owner")
+            .boundedContext(), Set.of("GET /api/owners/{id}", "/api/owners"), Set.of(), Set.of(), List.of());
+        Map<String, String> files = new SpringBootProjectGenerator().generateFiles(owners).stream()
+            .collect(Collectors.toMap(f -> f.path().toString().replace('\\', '/'), GeneratedFile::content));
+
+        String driver = files.get("src/jmh/java/com/example/ownersservice/benchmark/LoadDriver.java");
+        assertTrue(driver.contains("List.of(\n        \"/api/owners\",\n        \"GET /api/owners/{id}\")"));
+        assertTrue(files.get("pom.xml").contains("<mainClass>com.example.ownersservice.benchmark.LoadDriver</mainClass>"));
+        assertTrue(files.get("src/main/java/com/example/ownersservice/domain/model/Owner.java")
+            .contains("import jakarta.persistence.Entity;"));
+        JavaParser parser = new JavaParser(
+            new ParserConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17));
+        files.forEach((path, content) -> {
+            if (path.endsWith(".java")) {
+                assertTrue(parser.parse(content).isSuccessful(), path + " does not parse");
+            }
+        });
+    }
+
+    @Test
+    void addsANativeImageBuildOnlyWhenEnabled() {
+        Map<String, String> files = new SpringBootProjectGenerator(1, RuntimeProfile.PERFORMANCE, true)
+            .generateFiles(candidate("Owners", "Owner")).stream()
+            .collect(Collectors.toMap(f -> f.path().toString().replace('\\', '/'), GeneratedFile::content));
+
+        assertTrue(files.get("pom.xml").contains("<artifactId>native-maven-plugin</artifactId>"));
+        assertTrue(files.get("docker/Dockerfile.native").contains("COPY target/owners-service owners-service"));
+        assertTrue(files.get("src/main/java/com/example/ownersservice/infrastructure/aot/DomainModelHints.java")
+            .contains("List.<Class<?>>of(\n                com.example.ownersservice.domain.model.Owner.class)"));
+
+        Map<String, String> jvmOnly = render(RuntimeProfile.PERFORMANCE);
+        assertFalse(jvmOnly.containsKey("docker/Dockerfile.native"));
+        assertFalse(jvmOnly.containsKey("src/main/java/com/example/ownersservice/infrastructure/aot/DomainModelHints.java"));
+        assertFalse(jvmOnly.get("pom.xml").contains("native"));
+        assertTrue(jvmOnly.get("pom.xml").contains("        </profile>\n    </profiles>"));
+    }
+}
@@ -0,0 +1,110 @@
+package com.google.adk.modernization.generator.output;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalSinkTest {
+    private static final FileTime EARLIER = FileTime.from(Instant.now().minusSeconds(3600));
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void age(Path root, String... names) throws Exception {
+        for (String name : names) {
+            Files.setLastModifiedTime(root.resolve(name), EARLIER);
+        }
+    }
+
+    @Test
+    void rewritesOnlyChangedFiles(@TempDir Path root) throws Exception {
+        try (IncrementalSink sink = new IncrementalSink(root)) {
+            sink.write("owners/pom.xml", bytes("<project/>"));
+            sink.write("owners/src/Owner.java", bytes("class Owner {}"));
+        }
+        age(root, "owners/pom.xml", "owners/src/Owner.java");
+
+        IncrementalSink sink = new IncrementalSink(root);
+        sink.write("owners/pom.xml", bytes("<project/>"));
+        sink.write("owners/src/Owner.java", bytes("class Owner { }"));
+        sink.close();
+
+        assertEquals(1, sink.written());
+        assertEquals(1, sink.unchanged());
+        assertEquals(EARLIER, Files.getLastModifiedTime(root.resolve("owners/pom.xml")));
+        assertEquals("class Owner { }", Files.readString(root.resolve("owners/src/Owner.java")));
+    }
+
+    @Test
+    void skipsIdenticalFilesWithoutAManifest(@TempDir Path root) throws Exception {
+        Files.createDirectories(root.resolve("owners"));
+        Files.writeString(root.resolve("owners/pom.xml"), "<project/>");
+        age(root, "owners/pom.xml");
+
+        try (IncrementalSink sink = new IncrementalSink(root)) {
+            sink.write("owners/pom.xml", bytes("<project/>"));
+            assertEquals(1, sink.unchanged());
+        }
+        assertEquals(EARLIER, Files.getLastModifiedTime(root.resolve("owners/pom.xml")));
+    }
+
+    @Test
+    void deletesStaleFilesOfTheProjectsWritten(@TempDir Path root) throws Exception {
+        try (IncrementalSink sink = new IncrementalSink(root)) {
+            sink.write("owners/pom.xml", bytes("<project/>"));
+            sink.write("owners/src/model/Pet.java", bytes("class Pet {}"));
+            sink.write("owners/src/rest/PetController.java", bytes("class PetController {}"));
+            sink.write("owners/src/Edited.java", bytes("class Edited {}"));
+            sink.write("visits/pom.xml", bytes("<project/>"));
+        }
+        Files.writeString(root.resolve("owners/src/Edited.java"), "class Edited { int kept; }");
+
+        IncrementalSink sink = new IncrementalSink(root);
+        sink.directory("owners/src/model");
+        sink.write("owners/pom.xml", bytes("<project/>"));
+        sink.close();
+
+        assertEquals(2, sink.deleted());
+        assertFalse(Files.exists(root.resolve("owners/src/rest")), "Directories left empty are deleted");
+        assertTrue(Files.isDirectory(root.resolve("owners/src/model")), "Declared directories are kept");
+        assertTrue(Files.exists(root.resolve("owners/src/Edited.java")), "Modified files are kept");
+        assertTrue(Files.exists(root.resolve("visits/pom.xml")), "Projects not written are left alone");
+
+        // The project left alone is still tracked
+        Files.delete(root.resolve("owners/src/Edited.java"));
+        try (IncrementalSink next = new IncrementalSink(root)) {
+            next.write("owners/pom.xml", bytes("<project/>"));
+            next.write("other/pom.xml", bytes("<project/>"));
+        }
+        try (IncrementalSink last = new IncrementalSink(root)) {
+            last.write("visits/README.md", bytes("visits"));
+        }
+        assertFalse(Files.exists(root.resolve("visits/pom.xml")));
+    }
+
+    @Test
+    void failedRunsKeepThePreviousManifest(@TempDir Path root) throws Exception {
+        try (IncrementalSink sink = new IncrementalSink(root)) {
+            sink.write("owners/pom.xml", bytes("<project/>"));
+            sink.write("owners/Owner.java", bytes("class Owner {}"));
+        }
+
+        // Not closed, as after a failure: nothing is deleted
+        new IncrementalSink(root).write("owners/pom.xml", bytes("<project/>"));
+        assertTrue(Files.exists(root.resolve("owners/Owner.java")));
+
+        try (IncrementalSink sink = new IncrementalSink(root)) {
+            sink.keep("owners/Owner.java");
+            sink.write("owners/pom.xml", bytes("<project/>"));
+        }
+        assertTrue(Files.exists(root.resolve("owners/Owner.java")), "Kept files are not stale");
+    }
+}
@@ -0,0 +1,170 @@
+package com.google.adk.modernization.generator.output;
+
+import com.google.adk.modernization.generator.SpringBootProjectGenerator;
+import com.google.adk.modernization.mapper.DDDMapper.BoundedContext;
+import com.google.adk.modernization.mapper.DDDMapper.MicroserviceCandidate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutputSinkTest {
+
+    private static final List<MicroserviceCandidate> CANDIDATES = List.of(
+        candidate("Owners", "Owner", "Pet"),
+        candidate("Visits", "Visit"));
+
+    private static MicroserviceCandidate candidate(String name, String... aggregates) {
+        BoundedContext context = new BoundedContext(name, "", new LinkedHashSet<>(List.of(aggregates)), Set.of(),
+            Set.of(), Set.of(), Set.of(), List.of());
+        return new MicroserviceCandidate(name.toLowerCase() + "-service", context, Set.of(), Set.of(), Set.of(),
+            List.of());
+    }
+
+    /**
+     * Files and directories of a tree, by path relative to its root; directories end in '/'.
+     */
+    private static Map<String, String> tree(Path root) throws IOException {
+        Map<String, String> entries = new TreeMap<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.filter(p -> !p.equals(root) && !p.endsWith(IncrementalSink.MANIFEST)).toList()) {
+                String name = root.relativize(path).toString().replace('\\', '/');
+                if (Files.isDirectory(path)) {
+                    entries.put(name + "/", "");
+                } else {
+                    entries.put(name, Files.readString(path));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static Map<String, String> unzip(Path archive) throws IOException {
+        Map<String, String> entries = new TreeMap<>();
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(archive))) {
+            for (ZipEntry entry; (entry = in.getNextEntry()) != null; ) {
+                assertNull(entries.put(entry.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8)),
+                    "Duplicate entry " + entry.getName());
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Reads a ustar archive, applying pax path records and checking header checksums.
+     */
+    private static Map<String, String> untar(InputStream in) throws IOException {
+        Map<String, String> entries = new TreeMap<>();
+        String paxPath = null;
+        while (true) {
+            byte[] header = in.readNBytes(512);
+            assertEquals(512, header.length, "Archive ends without its trailer");
+            if (Arrays.equals(header, new byte[512])) {
+                break;
+            }
+            long checksum = 0;
+            for (int i = 0; i < 512; i++) {
+                checksum += i >= 148 && i < 156 ? ' ' : header[i] & 0xff;
+            }
+            assertEquals(checksum, Long.parseLong(field(header, 148, 6), 8));
+            assertEquals("ustar", field(header, 257, 6));
+
+            int size = Integer.parseInt(field(header, 124, 11), 8);
+            byte[] content = in.readNBytes(size);
+            in.readNBytes((512 - size % 512) % 512);
+
+            if (header[156] == 'x') {
+                String record = new String(content, StandardCharsets.UTF_8);
+                assertEquals(content.length, Integer.parseInt(record.substring(0, record.indexOf(' '))));
+                paxPath = record.substring(record.indexOf("path=") + 5, record.length() - 1);
+                continue;
+            }
+            String prefix = field(header, 345, 155);
+            String name = paxPath != null ? paxPath
+                : prefix.isEmpty() ? field(header, 0, 100) : prefix + "/" + field(header, 0, 100);
+            paxPath = null;
+            assertNull(entries.put(name, new String(content, StandardCharsets.UTF_8)), "Duplicate entry " + name);
+        }
+        return entries;
+    }
+
+    private static String field(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void zipHoldsTheSameTreeAsTheDirectory(@TempDir Path output) throws Exception {
+        SpringBootProjectGenerator generator = new SpringBootProjectGenerator();
+        generator.generateMicroservices(CANDIDATES, output.resolve("projects"));
+        try (OutputSink sink = OutputSink.open(output.resolve("projects.zip"))) {
+            assertFalse(sink.concurrent());
+            generator.writeMicroservices(CANDIDATES, sink);
+        }
+
+        Map<String, String> expected = tree(output.resolve("projects"));
+        assertTrue(expected.containsKey("owners-service/src/main/java/com/example/ownersservice/interfaces/rest/"));
+        assertEquals(expected, unzip(output.resolve("projects.zip")));
+    }
+
+    @Test
+    void tarHoldsTheSameTreeAsTheDirectory(@TempDir Path output) throws Exception {
+        SpringBootProjectGenerator generator = new SpringBootProjectGenerator();
+        generator.generateMicroservices(CANDIDATES, output.resolve("projects"));
+        try (OutputSink sink = OutputSink.open(output.resolve("projects.tar.gz"))) {
+            generator.writeMicroservices(CANDIDATES, sink);
+        }
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(output.resolve("projects.tar.gz")))) {
+            assertEquals(tree(output.resolve("projects")), untar(in));
+        }
+    }
+
+    @Test
+    void tarKeepsLongNames() throws Exception {
+        String split = "a".repeat(120) + "/" + "b".repeat(90) + ".txt";
+        String pax = "c".repeat(130) + ".txt";
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (TarSink sink = new TarSink(archive)) {
+            sink.write(split, "split".getBytes(StandardCharsets.UTF_8));
+            sink.write(pax, "pax".getBytes(StandardCharsets.UTF_8));
+        }
+
+        Map<String, String> entries = untar(new ByteArrayInputStream(archive.toByteArray()));
+        assertEquals(Map.of("a".repeat(120) + "/", "", split, "split", pax, "pax"), entries);
+    }
+
+    @Test
+    void paxRecordLengthCountsItsOwnDigits() {
+        assertEquals("12 path=abc\n", new String(TarSink.paxRecord("path", "abc"), StandardCharsets.UTF_8));
+        // 98 bytes without the length and 100 with it, so the length needs a third digit
+        String value = "x".repeat(91);
+        byte[] record = TarSink.paxRecord("path", value);
+        assertEquals("101 path=" + value + "\n", new String(record, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void rejectsPathsLeavingTheArchive(@TempDir Path output) throws Exception {
+        try (OutputSink sink = OutputSink.open(output.resolve("projects.zip"))) {
+            assertThrows(IllegalArgumentException.class, () -> sink.write("../pom.xml", new byte[0]));
+        }
+        DirectorySink directory = new DirectorySink(output.resolve("projects"));
+        assertThrows(IllegalArgumentException.class, () -> directory.write("a/../../pom.xml", new byte[0]));
+    }
+}
@@ -0,0 +1,36 @@
+package com.google.adk.modernization.graph;
+
+import com.google.adk.modernization.graph.PartitionMetrics.Result;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionMetricsTest {
+
+    @Test
+    void ignoresDependenciesOfClassesInNoPart() {
+        ClassGraph graph = ClassGraph.builder(List.of("Owner", "Pet", "Vet", "Util"))
+            .addEdge("Owner", "Pet", 1)
+            .addEdge("Pet", "Vet", 1)
+            .addEdge("Owner", "Util", 1)
+            .addEdge("Util", "Vet", 1)
+            .build();
+        int[] partition = new int[graph.size()];
+        partition[graph.id("Owner")] = 0;
+        partition[graph.id("Pet")] = 0;
+        partition[graph.id("Vet")] = 1;
+        partition[graph.id("Util")] = -1;
+
+        Result result = PartitionMetrics.compute(graph, partition, 2);
+
+        assertArrayEquals(new int[] {2, 1}, result.sizes());
+        assertEquals(1, result.cutEdges(), "Only Pet -> Vet crosses between parts");
+        assertArrayEquals(new int[] {1, 1}, result.boundaryEdges());
+        assertArrayEquals(new int[] {0, 1}, result.afferent());
+        assertArrayEquals(new int[] {1, 0}, result.efferent());
+        assertEquals(1.0 / 2, result.cohesion(0));
+        assertEquals(0.0, result.cohesion(1));
+    }
+}
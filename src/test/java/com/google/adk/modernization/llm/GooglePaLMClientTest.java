@@ -0,0 +1,140 @@
+package com.google.adk.modernization.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.ExpectedCount.times;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withException;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class GooglePaLMClientTest {
+    private static final String URL =
+        "http://llm.test/v1beta/models/gemini-1.0-pro:generateContent?key=secret";
+    private static final String RESPONSE =
+        "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"bounded contexts\"}]}}]}";
+    private static final Map<String, Object> PARAMETERS = Map.of(LLMClient.PROMPT_ID, "identify-contexts");
+
+    private SimpleMeterRegistry registry;
+    private MockRestServiceServer server;
+    private GooglePaLMClient client;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        client = new GooglePaLMClient(restTemplate, new LLMMetrics(registry), "http://llm.test", "secret", 2, 1);
+    }
+
+    private long latencyCount(String outcome) {
+        return registry.get("llm.request.latency")
+            .tag("prompt", "identify-contexts")
+            .tag("outcome", outcome)
+            .timer()
+            .count();
+    }
+
+    private double errors(String status) {
+        return registry.get("llm.request.errors")
+            .tag("prompt", "identify-contexts")
+            .tag("status", status)
+            .counter()
+            .count();
+    }
+
+    private double retries() {
+        Counter retries = registry.find("llm.request.retries").tag("prompt", "identify-contexts").counter();
+        return retries == null ? 0 : retries.count();
+    }
+
+    private double inFlight() {
+        return registry.get("llm.requests.in-flight").tag("prompt", "identify-contexts").gauge().value();
+    }
+
+    @Test
+    void recordsLatencyAndSizesOfSuccessfulCalls() {
+        server.expect(once(), requestTo(URL))
+            .andExpect(method(HttpMethod.POST))
+            .andRespond(withSuccess(RESPONSE, MediaType.APPLICATION_JSON));
+
+        assertEquals("bounded contexts", client.complete("Find the contexts", PARAMETERS).join());
+
+        server.verify();
+        assertEquals(1, latencyCount("success"));
+        assertEquals(0, retries());
+        assertEquals(0, inFlight());
+        assertEquals(17, registry.get("llm.request.size").tag("prompt", "identify-contexts").summary().totalAmount());
+        assertEquals(4, registry.get("llm.tokens.estimated").tag("direction", "completion").summary().totalAmount());
+    }
+
+    @Test
+    void retriesTooManyRequestsAndServerErrors() {
+        server.expect(once(), requestTo(URL)).andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS));
+        server.expect(once(), requestTo(URL)).andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+        server.expect(once(), requestTo(URL)).andRespond(withSuccess(RESPONSE, MediaType.APPLICATION_JSON));
+
+        assertEquals("bounded contexts", client.complete("Find the contexts", PARAMETERS).join());
+
+        server.verify();
+        assertEquals(1, errors("429"));
+        assertEquals(1, errors("502"));
+        assertEquals(2, retries());
+        assertEquals(1, latencyCount("success"));
+        assertEquals(0, inFlight());
+    }
+
+    @Test
+    void stopsAfterMaxRetries() {
+        server.expect(times(3), requestTo(URL)).andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertThrows(CompletionException.class, () -> client.complete("Find the contexts", PARAMETERS).join());
+
+        server.verify();
+        assertEquals(3, errors("503"));
+        assertEquals(2, retries());
+        assertEquals(1, latencyCount("error"));
+        assertEquals(0, inFlight());
+    }
+
+    @Test
+    void doesNotRetryOtherClientErrors() {
+        server.expect(once(), requestTo(URL)).andRespond(withStatus(HttpStatus.BAD_REQUEST));
+
+        assertThrows(CompletionException.class, () -> client.complete("Find the contexts", PARAMETERS).join());
+
+        server.verify();
+        assertEquals(1, errors("400"));
+        assertEquals(0, retries());
+        assertEquals(1, latencyCount("error"));
+        assertEquals(0, inFlight());
+    }
+
+    @Test
+    void retriesIoFailures() {
+        server.expect(once(), requestTo(URL)).andRespond(withException(new IOException("Connection reset")));
+        server.expect(once(), requestTo(URL)).andRespond(withSuccess(RESPONSE, MediaType.APPLICATION_JSON));
+
+        assertEquals("bounded contexts", client.complete("Find the contexts", PARAMETERS).join());
+
+        server.verify();
+        assertEquals(1, errors("io"));
+        assertEquals(1, retries());
+        assertEquals(0, inFlight());
+    }
+}
@@ -0,0 +1,75 @@
+package com.google.adk.modernization.mapper;
+
+import com.google.adk.modernization.analyzer.CodeAnalyzer.ClassInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyType;
+import com.google.adk.modernization.mapper.DomainRoleClassifier.ClassificationResult;
+import com.google.adk.modernization.mapper.DomainRoleClassifier.DomainRole;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DomainRoleClassifierTest {
+    private final DomainRoleClassifier classifier = new DomainRoleClassifier();
+
+    @Test
+    void classifiesFromAnnotationsNamesAndShape() {
+        List<ClassInfo> classes = List.of(
+            new ClassInfo("Owner", "clinic", List.of("addPet"), List.of("pets"), List.of("Entity")),
+            new ClassInfo("OwnerRepository", "clinic", List.of("findByLastName"), List.of(), List.of()),
+            new ClassInfo("VisitService", "clinic", List.of("schedule"), List.of(), List.of("Service")),
+            new ClassInfo("OwnerDto", "clinic", List.of(), List.of("name"), List.of()),
+            new ClassInfo("Address", "clinic", List.of("getCity"), List.of("city"), List.of()),
+            new ClassInfo("ClinicController", "clinic", List.of("showOwner"), List.of(), List.of("Controller")),
+            new ClassInfo("PetService", "clinic", List.of(), List.of(), List.of("Repository"))
+        );
+        List<DependencyInfo> dependencies = List.of(
+            new DependencyInfo("Owner", "Address", DependencyType.COMPOSITION)
+        );
+
+        ClassificationResult result = classifier.classify(classes, dependencies);
+
+        assertEquals(Map.of(
+            "Owner", DomainRole.ENTITY,
+            "OwnerRepository", DomainRole.REPOSITORY,
+            "VisitService", DomainRole.SERVICE,
+            "OwnerDto", DomainRole.VALUE_OBJECT,
+            "Address", DomainRole.VALUE_OBJECT
+        ), result.classified());
+        assertEquals(List.of("ClinicController", "PetService"),
+            result.ambiguous().stream().map(ClassInfo::name).toList());
+    }
+
+    @Test
+    void countsOnlyDependenciesOnAnalyzedClasses() {
+        List<ClassInfo> classes = List.of(
+            new ClassInfo("Owner", "clinic", List.of(), List.of("name", "address", "pets"), List.of("Entity")),
+            new ClassInfo("Address", "clinic", List.of("getCity"), List.of("street", "city", "lines"), List.of()),
+            new ClassInfo("Pet", "clinic", List.of("getName"), List.of("name", "owner"), List.of()));
+        // One dependency per field, as JavaParserCodeAnalyzer reports them
+        List<DependencyInfo> dependencies = List.of(
+            new DependencyInfo("Owner", "String", DependencyType.COMPOSITION),
+            new DependencyInfo("Owner", "Address", DependencyType.COMPOSITION),
+            new DependencyInfo("Owner", "List<Pet>", DependencyType.COMPOSITION),
+            new DependencyInfo("Address", "String", DependencyType.COMPOSITION),
+            new DependencyInfo("Address", "String", DependencyType.COMPOSITION),
+            new DependencyInfo("Address", "List<String>", DependencyType.COMPOSITION),
+            new DependencyInfo("Pet", "String", DependencyType.COMPOSITION),
+            new DependencyInfo("Pet", "Owner", DependencyType.COMPOSITION));
+
+        ClassificationResult result = classifier.classify(classes, dependencies);
+
+        assertEquals(Map.of("Owner", DomainRole.ENTITY, "Address", DomainRole.VALUE_OBJECT), result.classified());
+        assertEquals(List.of("Pet"), result.ambiguous().stream().map(ClassInfo::name).toList());
+    }
+
+    @Test
+    void stemsRoleSuffixes() {
+        assertEquals("Owner", classifier.stem("OwnerRepository"));
+        assertEquals("Owner", classifier.stem("OwnerServiceImpl"));
+        assertEquals("Service", classifier.stem("Service"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.google.adk.modernization.mapper;
+
+import com.google.adk.modernization.analyzer.CodeAnalyzer.ClassInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.CodeAnalysisResult;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyType;
+import com.google.adk.modernization.mapper.DDDMapper.BoundedContext;
+import com.google.adk.modernization.mapper.DDDMapper.ContextMetrics;
+import com.google.adk.modernization.mapper.DDDMapper.MicroserviceCandidate;
+import com.google.adk.modernization.mapper.DDDMapper.PartitionQuality;
+import com.google.adk.modernization.mapper.DDDMapper.ScoredContexts;
+import com.google.adk.modernization.profile.JfrProfileReader;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphClusteringDDDMapperTest {
+    private final GraphClusteringDDDMapper mapper =
+        new GraphClusteringDDDMapper(new DomainRoleClassifier(), 1.0, 0.0);
+
+    private static ClassInfo entity(String name, String pkg) {
+        return new ClassInfo(name, pkg, List.of("getId"), List.of("id"), List.of("Entity"));
+    }
+
+    private static ClassInfo repository(String name, String pkg) {
+        return new ClassInfo(name, pkg, List.of("findById"), List.of(), List.of());
+    }
+
+    private static CodeAnalysisResult petClinic() {
+        List<ClassInfo> classes = List.of(
+            entity("Owner", "clinic.owner"),
+            entity("Pet", "clinic.owner"),
+            repository("OwnerRepository", "clinic.owner"),
+            entity("Vet", "clinic.vet"),
+            entity("Specialty", "clinic.vet"),
+            repository("VetRepository", "clinic.vet")
+        );
+        List<DependencyInfo> dependencies = List.of(
+            new DependencyInfo("Owner", "List<Pet>", DependencyType.COMPOSITION),
+            new DependencyInfo("OwnerRepository", "Owner", DependencyType.ASSOCIATION),
+            new DependencyInfo("Vet", "Set<Specialty>", DependencyType.COMPOSITION),
+            new DependencyInfo("VetRepository", "Vet", DependencyType.ASSOCIATION),
+            new DependencyInfo("Pet", "Vet", DependencyType.ASSOCIATION)
+        );
+        return new CodeAnalysisResult(List.of(), classes, dependencies);
+    }
+
+    @Test
+    void clustersDependencyGraphIntoContexts() {
+        List<BoundedContext> contexts = mapper.identifyBoundedContexts(petClinic());
+
+        assertEquals(2, contexts.size());
+        BoundedContext owner = contexts.stream().filter(c -> c.aggregateRoots().contains("Owner")).findFirst().orElseThrow();
+        assertEquals("Owner", owner.name());
+        assertEquals(Set.of("Pet"), owner.entities());
+        assertEquals(Set.of("OwnerRepository"), owner.repositories());
+
+        BoundedContext vet = contexts.stream().filter(c -> c.aggregateRoots().contains("Vet")).findFirst().orElseThrow();
+        assertEquals(Set.of("Specialty"), vet.entities());
+        assertEquals(Set.of("VetRepository"), vet.repositories());
+
+        assertEquals(contexts, mapper.identifyBoundedContexts(petClinic()), "Clustering should be deterministic");
+    }
+
+    @Test
+    void derivesRequiredServicesFromCrossContextDependencies() {
+        CodeAnalysisResult analysis = petClinic();
+        List<MicroserviceCandidate> candidates = mapper.generateMicroserviceCandidates(
+            mapper.identifyBoundedContexts(analysis), analysis);
+
+        MicroserviceCandidate owner = candidates.stream().filter(c -> c.name().equals("owner-service")).findFirst().orElseThrow();
+        assertEquals(List.of("vet-service"), owner.requiredServices());
+        assertTrue(owner.apis().contains("/api/owners/{id}"));
+    }
+
+    @Test
+    void scoresCouplingAndCohesionOfContexts() {
+        ScoredContexts scored = new GraphClusteringDDDMapper(new DomainRoleClassifier(), 1.0, 0.0, new double[] {0.25, 4.0},
+                new JfrProfileReader(""), 0)
+            .identifyScoredBoundedContexts(petClinic());
+
+        PartitionQuality quality = scored.quality();
+        assertEquals(2, scored.contexts().size());
+        assertEquals(1, quality.cutEdges());
+        assertEquals(0, quality.unassignedClasses());
+        assertTrue(quality.modularity() > 0.3);
+
+        ContextMetrics owner = quality.contexts().stream().filter(c -> c.name().equals("Owner")).findFirst().orElseThrow();
+        assertEquals(3, owner.classes());
+        assertEquals(0, owner.afferentCoupling());
+        assertEquals(1, owner.efferentCoupling());
+        assertEquals(1.0, owner.instability());
+        assertEquals(0.8, owner.cohesion(), 1e-9);
+
+        ContextMetrics vet = quality.contexts().stream().filter(c -> c.name().equals("Vet")).findFirst().orElseThrow();
+        assertEquals(1, vet.afferentCoupling());
+        assertEquals(0.0, vet.instability());
+    }
+}
@@ -0,0 +1,346 @@
+package com.google.adk.modernization.mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.ClassInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.CodeAnalysisResult;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyType;
+import com.google.adk.modernization.analyzer.ContextSelector;
+import com.google.adk.modernization.analyzer.StructuralFingerprinter;
+import com.google.adk.modernization.llm.LLMClient;
+import com.google.adk.modernization.mapper.DDDMapper.BoundedContext;
+import com.google.adk.modernization.mapper.DDDMapper.CandidateOutcome;
+import com.google.adk.modernization.mapper.DDDMapper.MicroserviceCandidate;
+import com.google.adk.modernization.prompt.PromptManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LLMDrivenDDDMapperTest {
+
+    /**
+     * Answers each prompt id with a canned response and records the calls.
+     */
+    private static class StubClient implements LLMClient {
+        final Map<String, Function<String, String>> responses = new HashMap<>();
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public CompletableFuture<String> complete(String prompt, Map<String, Object> parameters) {
+            String promptId = (String) parameters.get(PROMPT_ID);
+            calls.add(promptId);
+            return CompletableFuture.completedFuture(responses.get(promptId).apply(prompt));
+        }
+
+        @Override
+        public <T> CompletableFuture<T> complete(String prompt, Class<T> responseType, Map<String, Object> parameters) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static ClassInfo entity(String name, String pkg) {
+        return new ClassInfo(name, pkg, List.of("getId"), List.of("id"), List.of("Entity"));
+    }
+
+    private static CodeAnalysisResult petClinic() {
+        List<ClassInfo> classes = List.of(
+            entity("Owner", "clinic.owner"),
+            entity("Pet", "clinic.owner"),
+            entity("Vet", "clinic.vet"),
+            entity("Specialty", "clinic.vet")
+        );
+        List<DependencyInfo> dependencies = List.of(
+            new DependencyInfo("Owner", "List<Pet>", DependencyType.COMPOSITION),
+            new DependencyInfo("Vet", "Set<Specialty>", DependencyType.COMPOSITION)
+        );
+        return new CodeAnalysisResult(List.of(), classes, dependencies);
+    }
+
+    private static LLMDrivenDDDMapper mapper(LLMClient client, String mode, int maxPartitionSize) {
+        return mapper(client, mode, maxPartitionSize, new CandidateCache(new ObjectMapper(), new SimpleMeterRegistry(), ""));
+    }
+
+    private static LLMDrivenDDDMapper mapper(LLMClient client, String mode, int maxPartitionSize, CandidateCache cache) {
+        return mapper(client, mode, maxPartitionSize, cache, 2, 5, 1);
+    }
+
+    private static LLMDrivenDDDMapper mapper(LLMClient client, String mode, int maxPartitionSize, CandidateCache cache,
+                                             int maxParallelism, long timeoutSeconds, int retries) {
+        DomainRoleClassifier classifier = new DomainRoleClassifier();
+        return new LLMDrivenDDDMapper(
+            client,
+            new PromptManager(true),
+            new ObjectMapper(),
+            classifier,
+            new StructuralFingerprinter(),
+            new GraphClusteringDDDMapper(classifier, 1.0, 0.0),
+            new ContextSelector(6000),
+            cache,
+            mode,
+            maxPartitionSize,
+            maxParallelism,
+            timeoutSeconds,
+            retries
+        );
+    }
+
+    private static String partitionResponse(String prompt) {
+        boolean owners = prompt.contains("Owner: ENTITY");
+        String root = owners ? "Owner" : "Vet";
+        String entity = owners ? "Pet" : "Specialty";
+        return "{\"boundedContexts\":[{\"name\":\"" + root + "s\",\"description\":\"\",\"aggregateRoots\":[\""
+            + root + "\"],\"entities\":[\"" + entity + "\"]}]}";
+    }
+
+    @Test
+    void hierarchicalModeRefinesPartitionsAndMerges() {
+        StubClient client = new StubClient();
+        client.responses.put("refine-partition", LLMDrivenDDDMapperTest::partitionResponse);
+        client.responses.put("merge-bounded-contexts", prompt ->
+            "{\"boundedContexts\":[{\"name\":\"Clinic\",\"description\":\"merged\",\"sourceContexts\":[\"c0\",\"c1\"]}]}");
+
+        List<BoundedContext> contexts = mapper(client, "hierarchical", 2).identifyBoundedContexts(petClinic());
+
+        assertEquals(List.of("refine-partition", "refine-partition", "merge-bounded-contexts"), client.calls);
+        assertEquals(1, contexts.size());
+        BoundedContext clinic = contexts.get(0);
+        assertEquals("Clinic", clinic.name());
+        assertEquals(Set.of("Owner", "Vet"), clinic.aggregateRoots());
+        assertEquals(Set.of("Pet", "Specialty"), clinic.entities());
+    }
+
+    @Test
+    void failedMergeKeepsPartitionContexts() {
+        StubClient client = new StubClient();
+        client.responses.put("refine-partition", LLMDrivenDDDMapperTest::partitionResponse);
+        client.responses.put("merge-bounded-contexts", prompt -> "not json");
+
+        List<BoundedContext> contexts = mapper(client, "hierarchical", 2).identifyBoundedContexts(petClinic());
+
+        assertEquals(2, contexts.size());
+    }
+
+    @Test
+    void singlePartitionSkipsMerge() {
+        StubClient client = new StubClient();
+        client.responses.put("refine-partition", prompt -> "{\"boundedContexts\":["
+            + "{\"name\":\"Owners\",\"description\":\"\",\"aggregateRoots\":[\"Owner\"]},"
+            + "{\"name\":\"Vets\",\"description\":\"\",\"aggregateRoots\":[\"Vet\"]}]}");
+
+        List<BoundedContext> contexts = mapper(client, "hierarchical", 150).identifyBoundedContexts(petClinic());
+
+        assertEquals(List.of("refine-partition"), client.calls);
+        assertEquals(List.of("Owners", "Vets"), contexts.stream().map(BoundedContext::name).toList());
+    }
+
+    @Test
+    void expandsEachRepresentativesRoleToItsGroup() {
+        List<ClassInfo> classes = new ArrayList<>(petClinic().classes());
+        for (String stem : List.of("Owner", "Pet", "Vet")) {
+            classes.add(new ClassInfo(stem + "Controller", "clinic.web", List.of("show" + stem, "list" + stem + "s"),
+                List.of(), List.of("Controller")));
+        }
+        StubClient client = new StubClient();
+        client.responses.put("refine-partition", prompt -> {
+            assertTrue(prompt.contains("OwnerController"));
+            assertFalse(prompt.contains("PetController") || prompt.contains("VetController"),
+                "Only the representative of the controllers is sent");
+            return "{\"boundedContexts\":["
+                + "{\"name\":\"Owners\",\"description\":\"\",\"aggregateRoots\":[\"Owner\"],\"entities\":[\"Pet\"],"
+                + "\"services\":[\"OwnerController\"]},"
+                + "{\"name\":\"Vets\",\"description\":\"\",\"aggregateRoots\":[\"Vet\"],\"entities\":[\"Specialty\"]}]}";
+        });
+
+        List<BoundedContext> contexts = mapper(client, "hierarchical", 150)
+            .identifyBoundedContexts(new CodeAnalysisResult(List.of(), classes, petClinic().dependencies()));
+
+        assertEquals(Set.of("OwnerController", "PetController"), contexts.get(0).services());
+        assertEquals(Set.of("VetController"), contexts.get(1).services(), "Members go to the context of their stem");
+    }
+
+    @Test
+    void placesGroupsWhoseRepresentativeTheLLMLeftOut() {
+        List<ClassInfo> classes = new ArrayList<>(petClinic().classes());
+        List<DependencyInfo> dependencies = new ArrayList<>(petClinic().dependencies());
+        for (String stem : List.of("Owner", "Pet", "Vet")) {
+            classes.add(new ClassInfo(stem + "Controller", "clinic.web", List.of("show" + stem, "list" + stem + "s"),
+                List.of(), List.of("Controller")));
+            dependencies.add(new DependencyInfo(stem + "Controller", stem, DependencyType.ASSOCIATION));
+        }
+        StubClient client = new StubClient();
+        client.responses.put("refine-partition", prompt -> {
+            assertTrue(prompt.contains("OwnerController") && !prompt.contains("PetController"),
+                "Only the representative is sent");
+            return "{\"boundedContexts\":["
+                + "{\"name\":\"Owners\",\"description\":\"\",\"aggregateRoots\":[\"Owner\"],\"entities\":[\"Pet\"]},"
+                + "{\"name\":\"Vets\",\"description\":\"\",\"aggregateRoots\":[\"Vet\"],\"entities\":[\"Specialty\"]}]}";
+        });
+
+        List<BoundedContext> contexts = mapper(client, "hierarchical", 150)
+            .identifyBoundedContexts(new CodeAnalysisResult(List.of(), classes, dependencies));
+
+        assertEquals(Set.of("Pet", "OwnerController", "PetController"), contexts.get(0).entities());
+        assertEquals(Set.of("Specialty", "VetController"), contexts.get(1).entities(), "Placed next to their dependencies");
+    }
+
+    @Test
+    void placesClassifiedClassesWithoutANamesakeNextToTheirDependencies() {
+        CodeAnalysisResult clinic = petClinic();
+        List<ClassInfo> classes = new ArrayList<>(clinic.classes());
+        classes.add(new ClassInfo("BillingService", "clinic.billing", List.of("bill"), List.of("owners"), List.of()));
+        classes.add(new ClassInfo("AuditService", "clinic.audit", List.of("log"), List.of(), List.of()));
+        List<DependencyInfo> dependencies = new ArrayList<>(clinic.dependencies());
+        dependencies.add(new DependencyInfo("BillingService", "List<Owner>", DependencyType.COMPOSITION));
+        StubClient client = new StubClient();
+        client.responses.put("refine-partition", prompt ->
+            "{\"boundedContexts\":[{\"name\":\"Owners\",\"description\":\"\",\"aggregateRoots\":[\"Owner\"]}]}");
+
+        List<BoundedContext> contexts = mapper(client, "hierarchical", 150)
+            .identifyBoundedContexts(new CodeAnalysisResult(List.of(), classes, dependencies));
+
+        assertEquals(Set.of("BillingService"), contexts.get(0).services(),
+            "Placed by its dependency; AuditService relates to no context");
+    }
+
+    private static BoundedContext context(String name) {
+        return new BoundedContext(name, "", new HashSet<>(Set.of(name)), new HashSet<>(), new HashSet<>(),
+            new HashSet<>(), new HashSet<>(), new ArrayList<>());
+    }
+
+    @Test
+    void candidateGenerationKeepsPartialResultsAndBoundsParallelism() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        LLMClient client = new StubClient() {
+            @Override
+            public CompletableFuture<String> complete(String prompt, Map<String, Object> parameters) {
+                String name = List.of("Owners", "Vets", "Visits").stream()
+                    .filter(n -> prompt.contains("\"name\":\"" + n + "\""))
+                    .findFirst()
+                    .orElseThrow();
+                attempts.computeIfAbsent(name, n -> new AtomicInteger()).incrementAndGet();
+                return CompletableFuture.supplyAsync(() -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    if (name.equals("Vets")) {
+                        return "not json";
+                    }
+                    return "{\"microservice\":{\"name\":\"" + name.toLowerCase() + "-service\",\"apis\":[],\"events\":[]}}";
+                });
+            }
+        };
+
+        List<BoundedContext> contexts = List.of(context("Owners"), context("Vets"), context("Visits"));
+        LLMDrivenDDDMapper mapper = mapper(client, "single", 150);
+
+        List<CandidateOutcome> outcomes = mapper
+            .streamMicroserviceCandidates(contexts, new CodeAnalysisResult(List.of(), List.of(), List.of()))
+            .toList();
+        assertEquals(3, outcomes.size());
+        CandidateOutcome vets = outcomes.stream().filter(o -> !o.succeeded()).findFirst().orElseThrow();
+        assertEquals("Vets", vets.context().name());
+        assertNotNull(vets.error());
+        assertEquals(2, attempts.get("Vets").get(), "Failed contexts are retried once");
+        assertTrue(peak.get() <= 2, "At most two candidates are generated at once");
+
+        List<MicroserviceCandidate> candidates = mapper.generateMicroserviceCandidates(contexts);
+        assertEquals(List.of("owners-service", "visits-service"),
+            candidates.stream().map(MicroserviceCandidate::name).toList());
+    }
+
+    @Test
+    void timedOutCallsKeepTheirSlotUntilTheyComplete() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        LLMClient client = new StubClient() {
+            @Override
+            public CompletableFuture<String> complete(String prompt, Map<String, Object> parameters) {
+                boolean slow = prompt.contains("\"name\":\"Owners\"");
+                return CompletableFuture.supplyAsync(() -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(slow ? 1500 : 10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    return "{\"microservice\":{\"name\":\"svc\",\"apis\":[],\"events\":[]}}";
+                });
+            }
+        };
+        CandidateCache cache = new CandidateCache(new ObjectMapper(), new SimpleMeterRegistry(), "");
+
+        List<CandidateOutcome> outcomes = mapper(client, "single", 150, cache, 1, 1, 0)
+            .streamMicroserviceCandidates(List.of(context("Owners"), context("Vets")),
+                new CodeAnalysisResult(List.of(), List.of(), List.of()))
+            .toList();
+
+        assertEquals(List.of("Owners", "Vets"), outcomes.stream().map(o -> o.context().name()).toList());
+        assertFalse(outcomes.get(0).succeeded(), "Owners timed out");
+        assertEquals(1, peak.get(), "Vets waits for the timed-out call to complete");
+    }
+
+    @Test
+    void candidatesKeepTheMethodsOfTheirApis() {
+        StubClient client = new StubClient();
+        client.responses.put("microservice-candidate-design", prompt -> "{\"microservice\":{\"name\":\"svc\","
+            + "\"apis\":[{\"path\":\"/owners\",\"method\":\"post\"},{\"path\":\"/owners/{id}\"}],\"events\":[]}}");
+
+        List<MicroserviceCandidate> candidates = mapper(client, "single", 150)
+            .generateMicroserviceCandidates(List.of(context("Owners")));
+
+        assertEquals(Set.of("POST /owners", "/owners/{id}"), candidates.get(0).apis());
+    }
+
+    @Test
+    void unchangedContextsReuseStoredCandidates(@TempDir Path dir) {
+        StubClient client = new StubClient();
+        client.responses.put("microservice-candidate-design", prompt ->
+            "{\"microservice\":{\"name\":\"svc\",\"apis\":[],\"events\":[]}}");
+        String file = dir.resolve("candidates.json").toString();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        List<BoundedContext> contexts = List.of(context("Owners"), context("Vets"));
+        mapper(client, "single", 150, new CandidateCache(new ObjectMapper(), registry, file))
+            .generateMicroserviceCandidates(contexts);
+        assertEquals(2, client.calls.size());
+
+        // A fresh cache reads the stored candidates back; only the edited context is regenerated
+        BoundedContext edited = context("Vets");
+        edited.entities().add("Specialty");
+        CandidateCache reloaded = new CandidateCache(new ObjectMapper(), registry, file);
+        List<MicroserviceCandidate> candidates = mapper(client, "single", 150, reloaded)
+            .generateMicroserviceCandidates(List.of(context("Owners"), edited));
+
+        assertEquals(3, client.calls.size());
+        assertEquals(2, candidates.size());
+        assertSame(edited, candidates.get(1).boundedContext());
+        assertEquals(1.0, registry.counter("mapper.candidates.cache", "result", "hit").count());
+    }
+
+    @Test
+    void fingerprintIgnoresOrderAndDescription() {
+        BoundedContext a = new BoundedContext("Owners", "one", new LinkedHashSet<>(List.of("Owner", "Pet")),
+            Set.of(), Set.of(), Set.of(), Set.of(), List.of());
+        BoundedContext b = new BoundedContext("Owners", "two", new LinkedHashSet<>(List.of("Pet", "Owner")),
+            Set.of(), Set.of(), Set.of(), Set.of(), List.of());
+
+        assertEquals(CandidateCache.fingerprint(a), CandidateCache.fingerprint(b));
+        assertNotEquals(CandidateCache.fingerprint(a), CandidateCache.fingerprint(context("Owners")));
+    }
+}
@@ -0,0 +1,116 @@
+package com.google.adk.modernization.planner;
+
+import com.google.adk.modernization.analyzer.CodeAnalyzer.ClassInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.CodeAnalysisResult;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyInfo;
+import com.google.adk.modernization.analyzer.CodeAnalyzer.DependencyType;
+import com.google.adk.modernization.mapper.DDDMapper.BoundedContext;
+import com.google.adk.modernization.mapper.DDDMapper.MicroserviceCandidate;
+import com.google.adk.modernization.planner.ChattinessEstimator.ApiEstimate;
+import com.google.adk.modernization.planner.ChattinessEstimator.ChattinessReport;
+import com.google.adk.modernization.profile.CallProfile;
+import com.google.adk.modernization.profile.CallProfile.CallEdge;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChattinessEstimatorTest {
+
+    private static ClassInfo classInfo(String name) {
+        return new ClassInfo(name, "clinic", List.of(), List.of(), List.of());
+    }
+
+    private static CodeAnalysisResult petClinic() {
+        return new CodeAnalysisResult(
+            List.of(),
+            List.of(classInfo("Owner"), classInfo("Pet"), classInfo("Vet"), classInfo("Specialty")),
+            List.of(
+                new DependencyInfo("Owner", "List<Pet>", DependencyType.COMPOSITION),
+                new DependencyInfo("Pet", "Vet", DependencyType.ASSOCIATION),
+                new DependencyInfo("Vet", "Set<Specialty>", DependencyType.COMPOSITION)
+            ));
+    }
+
+    private static MicroserviceCandidate candidate(String name, String root, String entity, List<String> required) {
+        BoundedContext context = new BoundedContext(name, "", Set.of(root), Set.of(entity), Set.of(), Set.of(),
+            Set.of(), List.of());
+        String resource = "/api/" + root.toLowerCase() + "s";
+        return new MicroserviceCandidate(name, context, Set.of(resource, "GET " + resource + "/{id}"), Set.of(), Set.of(),
+            required);
+    }
+
+    @Test
+    void countsCrossServiceHopsPerApi() {
+        List<MicroserviceCandidate> candidates = List.of(
+            candidate("owner-service", "Owner", "Pet", List.of("vet-service")),
+            candidate("vet-service", "Vet", "Specialty", List.of())
+        );
+
+        ChattinessReport report = new ChattinessEstimator(5, 100, 4, 3).estimate(candidates, petClinic());
+
+        ApiEstimate owners = report.services().get(0).apis().get(0);
+        assertEquals("/api/owners", owners.api());
+        assertEquals(1, owners.crossServiceCalls());
+        assertEquals(1, owners.criticalPathHops());
+        assertEquals(Set.of("vet-service"), owners.downstreamServices());
+        assertEquals(5.0, owners.addedLatencyMillis());
+        assertEquals(100.0, owners.interServiceRequestsPerSecond());
+        assertEquals(1, report.services().get(0).apis().get(1).crossServiceCalls(), "Methods are not path segments");
+
+        ApiEstimate vets = report.services().get(1).apis().get(0);
+        assertEquals(0, vets.crossServiceCalls());
+        assertEquals(200.0, report.interServiceRequestsPerSecond());
+        assertTrue(report.cycles().isEmpty());
+        assertTrue(Double.isNaN(report.profiledCrossServiceShare()));
+        assertTrue(Double.isNaN(owners.profiledCrossServiceShare()));
+    }
+
+    @Test
+    void flagsCyclesAndFanOut() {
+        List<MicroserviceCandidate> candidates = List.of(
+            candidate("owner-service", "Owner", "Pet", List.of("vet-service")),
+            candidate("vet-service", "Vet", "Specialty", List.of("owner-service"))
+        );
+
+        ChattinessReport report = new ChattinessEstimator(5, 100, 4, 0).estimate(candidates, petClinic());
+
+        assertEquals(List.of(List.of("owner-service", "vet-service")), report.cycles());
+        assertTrue(report.services().stream().allMatch(s -> s.inCycle() && s.fanOut()));
+    }
+
+    @Test
+    void reportsProfiledCallsCrossingServices() {
+        List<MicroserviceCandidate> candidates = List.of(
+            candidate("owner-service", "Owner", "Pet", List.of()),
+            candidate("vet-service", "Vet", "Specialty", List.of())
+        );
+        CallProfile profile = new CallProfile(List.of(
+            new CallEdge("Owner", "Pet", 30),
+            new CallEdge("Pet", "Vet", 10)
+        ), 40);
+
+        ChattinessReport report = new ChattinessEstimator(5, 100, 4, 3).estimate(candidates, petClinic(), profile);
+
+        assertEquals(0.25, report.profiledCrossServiceShare(), 1e-9);
+        ApiEstimate owners = report.services().get(0).apis().get(0);
+        assertEquals(1, owners.crossServiceCalls(), "Samples measure time, not calls per request");
+        assertEquals(5.0, owners.addedLatencyMillis());
+        assertEquals(100.0, owners.interServiceRequestsPerSecond());
+        assertEquals(0.25, owners.profiledCrossServiceShare(), 1e-9, "Pet -> Vet took 10 of 40 samples");
+
+        // A longer recording of the same workload gives the same estimate
+        CallProfile longer = new CallProfile(List.of(
+            new CallEdge("Owner", "Pet", 3000),
+            new CallEdge("Pet", "Vet", 1000)
+        ), 4000);
+        ApiEstimate longerOwners = new ChattinessEstimator(5, 100, 4, 3).estimate(candidates, petClinic(), longer)
+            .services().get(0).apis().get(0);
+        assertEquals(owners, longerOwners);
+
+        ApiEstimate vets = report.services().get(1).apis().get(0);
+        assertEquals(0.0, vets.profiledCrossServiceShare());
+    }
+}
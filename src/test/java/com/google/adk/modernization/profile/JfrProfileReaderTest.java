@@ -0,0 +1,78 @@
+package com.google.adk.modernization.profile;
+
+import com.google.adk.modernization.profile.CallProfile.CallEdge;
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrProfileReaderTest {
+
+    static final class OrderService {
+        static double place(int rounds) {
+            double total = 0;
+            for (int i = 0; i < rounds; i++) {
+                total += PriceCalculator.price(i);
+            }
+            return total;
+        }
+    }
+
+    static final class PriceCalculator {
+        static double price(int seed) {
+            double value = seed;
+            for (int i = 0; i < 2_000; i++) {
+                value = Math.sqrt(value + i) * 1.0001;
+            }
+            return value;
+        }
+    }
+
+    @Test
+    void countsSampledCallsBetweenKnownClasses(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("monolith.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(1));
+            recording.start();
+            long end = System.nanoTime() + Duration.ofMillis(500).toNanos();
+            double sink = 0;
+            while (System.nanoTime() < end) {
+                sink += OrderService.place(1_000);
+            }
+            assertTrue(sink > 0);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        CallProfile profile = JfrProfileReader.read(List.of(file), Set.of("OrderService", "PriceCalculator"));
+
+        assertTrue(profile.samples() > 0);
+        CallEdge edge = profile.edges().stream()
+            .filter(e -> e.caller().equals("OrderService") && e.callee().equals("PriceCalculator"))
+            .findFirst()
+            .orElseThrow();
+        assertTrue(edge.samples() > 0);
+        assertTrue(profile.edges().stream().noneMatch(e -> e.caller().equals(e.callee())));
+    }
+
+    @Test
+    void mapsNestedAndProxyTypesToKnownClasses() {
+        Set<String> known = Set.of("Owner", "Address", "OwnerService");
+
+        assertEquals("Address", JfrProfileReader.knownClass("com.example.Owner$Address", known));
+        assertEquals("Owner", JfrProfileReader.knownClass("com.example.Owner$1", known));
+        assertEquals("OwnerService", JfrProfileReader.knownClass("com.example.OwnerService$$SpringCGLIB$$0", known));
+        assertEquals("", JfrProfileReader.knownClass("java.lang.Thread", known));
+    }
+
+    @Test
+    void noRecordingsGiveAnEmptyProfile() {
+        assertTrue(new JfrProfileReader("").read(Set.of("Owner")).isEmpty());
+    }
+}
@@ -0,0 +1,49 @@
+package com.google.adk.modernization.prompt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledTemplateTest {
+
+    @Test
+    void rendersAllPlaceholdersInOnePass() throws Exception {
+        CompiledTemplate template = CompiledTemplate.compile(
+            "Class {{name}} in {{ package }}: {{name}}\n{\n  \"json\": {}\n}",
+            List.of("name"));
+
+        Map<String, Object> variables = Map.of("name", "Owner", "package", "clinic");
+        String expected = "Class Owner in clinic: Owner\n{\n  \"json\": {}\n}";
+        assertEquals(expected, template.render(variables));
+
+        StringWriter writer = new StringWriter();
+        template.render(variables, writer);
+        assertEquals(expected, writer.toString());
+    }
+
+    @Test
+    void valuesAreNotRescannedForPlaceholders() {
+        CompiledTemplate template = CompiledTemplate.compile("{{a}} {{b}}", List.of("a", "b"));
+        assertEquals("{{b}} x", template.render(Map.of("a", "{{b}}", "b", "x")));
+    }
+
+    @Test
+    void rejectsMissingRequiredAndUnknownVariables() {
+        CompiledTemplate template = CompiledTemplate.compile("{{classes}} {{hint}}", List.of("classes"));
+
+        assertThrows(IllegalArgumentException.class, () -> template.render(Map.of("hint", "h")));
+        assertThrows(IllegalArgumentException.class,
+            () -> template.render(Map.of("classes", "c", "other", "o")));
+        assertEquals("c {{hint}}", template.render(Map.of("classes", "c")));
+    }
+
+    @Test
+    void rejectsRequiredVariableAbsentFromTemplate() {
+        assertThrows(IllegalArgumentException.class,
+            () -> CompiledTemplate.compile("no placeholders", List.of("classes")));
+    }
+}
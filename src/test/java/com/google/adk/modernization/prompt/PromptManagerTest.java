@@ -0,0 +1,31 @@
+package com.google.adk.modernization.prompt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptManagerTest {
+
+    @Test
+    void loadsAndRendersBundledPrompts() {
+        PromptManager manager = new PromptManager();
+        String prompt = manager.getPrompt("identify-aggregates", Map.of("classes", "class Owner {}"));
+        assertTrue(prompt.contains("class Owner {}"));
+        assertFalse(prompt.contains("{{classes}}"));
+    }
+
+    @Test
+    void buildTimeIndexMatchesClasspathScan() {
+        assertNotNull(PromptManager.class.getClassLoader().getResource(PromptIndex.RESOURCE),
+            "Prompt index should be generated during the build");
+
+        PromptManager indexed = new PromptManager(false);
+        PromptManager scanned = new PromptManager(true);
+        Map<String, Object> variables = Map.of("sourceCode", "class A {}", "targetContext", "{}");
+        assertEquals(
+            scanned.getPrompt("refactor-class", variables),
+            indexed.getPrompt("refactor-class", variables));
+    }
+}
@@ -0,0 +1,64 @@
+package com.google.adk.modernization.prompt;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old replace-per-variable prompt formatting with compiled
+ * single-pass rendering on multi-megabyte variable values.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.google.adk.modernization.prompt.PromptRenderingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptRenderingBenchmark {
+
+    @Param({"1048576", "8388608"})
+    private int variableSize;
+
+    private String template;
+    private CompiledTemplate compiled;
+    private Map<String, Object> variables;
+
+    @Setup
+    public void setup() {
+        template = "Original Class:\n{{sourceCode}}\n\nTarget Context:\n{{targetContext}}\n"
+            + "Consider the classes:\n{{classes}}\n".repeat(4);
+        compiled = CompiledTemplate.compile(template, List.of("sourceCode", "targetContext", "classes"));
+        variables = Map.of(
+            "sourceCode", "x".repeat(variableSize),
+            "targetContext", "{\"name\":\"orders\"}",
+            "classes", "y".repeat(variableSize)
+        );
+    }
+
+    @Benchmark
+    public String replacePerVariable() {
+        String result = template;
+        for (Map.Entry<String, Object> entry : variables.entrySet()) {
+            result = result.replace("{{" + entry.getKey() + "}}", entry.getValue().toString());
+        }
+        return result;
+    }
+
+    @Benchmark
+    public String compiledRender() {
+        return compiled.render(variables);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+            .include(PromptRenderingBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
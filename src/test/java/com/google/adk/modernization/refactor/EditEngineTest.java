@@ -0,0 +1,104 @@
+package com.google.adk.modernization.refactor;
+
+import com.google.adk.modernization.refactor.EditEngine.Edit;
+import com.google.adk.modernization.refactor.EditEngine.Outcome;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EditEngineTest {
+    private static final String OWNER = """
+        package clinic;
+
+        import clinic.Pet;
+
+        class Owner {
+            private Pet pet;
+            Pet getPet() { return pet; }
+        }
+        """;
+
+    @Test
+    void appliesStepsToSingleLocationsAndRenamesEverywhere() {
+        Outcome outcome = EditEngine.apply(OWNER, List.of(
+            Edit.once("class Owner", "public class Owner"),
+            Edit.everywhere("clinic", "owners")));
+
+        assertEquals(OWNER.replace("class Owner", "public class Owner").replace("clinic", "owners"),
+            outcome.content());
+        assertEquals(2, outcome.applied());
+        assertTrue(outcome.warnings().isEmpty(), outcome.warnings().toString());
+    }
+
+    @Test
+    void reportsMissingAmbiguousAndConflictingEdits() {
+        Outcome outcome = EditEngine.apply(OWNER, List.of(
+            Edit.once("Pet getPet()", "Pet pet()"),
+            Edit.once("pet;", "pet = new Pet();"),
+            Edit.once("getPet() {", "findPet() {"),
+            Edit.once("class Vet", "class Doctor")));
+
+        assertTrue(outcome.content().contains("Pet pet() { return pet; }"));
+        assertTrue(outcome.content().contains("private Pet pet = new Pet();"));
+        assertEquals(2, outcome.applied());
+        List<String> warnings = outcome.warnings();
+        assertEquals(3, warnings.size(), warnings.toString());
+        assertTrue(warnings.get(0).startsWith("Edit 2 is ambiguous, 2 matches"), warnings.get(0));
+        assertTrue(warnings.get(1).startsWith("Edit 3 conflicts"), warnings.get(1));
+        assertTrue(warnings.get(2).startsWith("Edit 4 not found"), warnings.get(2));
+    }
+
+    @Test
+    void retriesEditsOfTextIntroducedByEarlierEdits() {
+        Outcome outcome = EditEngine.apply("class Owner {}", List.of(
+            Edit.once("class Owner", "class PetOwner"),
+            Edit.once("class PetOwner {}", "public class PetOwner {}")));
+
+        assertEquals("public class PetOwner {}", outcome.content());
+        assertTrue(outcome.warnings().isEmpty(), outcome.warnings().toString());
+    }
+
+    @Test
+    void retriesEditsThatOnlyConflictWithEditsOfTheSameRound() {
+        Outcome outcome = EditEngine.apply("public class Foo {}", List.of(
+            Edit.once("public class Foo", "@Entity\npublic class Foo"),
+            Edit.once("public class Foo", "public class Bar")));
+
+        assertEquals("@Entity\npublic class Bar {}", outcome.content());
+        assertEquals(2, outcome.applied());
+        assertTrue(outcome.warnings().isEmpty(), outcome.warnings().toString());
+    }
+
+    @Test
+    void matchesStringReplaceOnRandomInput() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            String text = randomText(random, 200);
+            String target = randomText(random, 1 + random.nextInt(3));
+            String replacement = randomText(random, random.nextInt(4));
+            Outcome outcome = EditEngine.apply(text, List.of(Edit.everywhere(target, replacement)));
+            assertEquals(text.replace(target, replacement), outcome.content(), text + " / " + target);
+        }
+    }
+
+    @Test
+    void findsOverlappingPatternsInOneScan() {
+        List<List<Integer>> matches = new EditEngine.Matcher(List.of("he", "she", "his", "hers"))
+            .findAll("ushers");
+
+        assertEquals(List.of(List.of(2), List.of(1), List.of(), List.of(2)), matches);
+    }
+
+    private static String randomText(Random random, int length) {
+        List<Character> chars = new ArrayList<>(List.of('a', 'b', 'c'));
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(chars.get(random.nextInt(chars.size())));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,193 @@
+package com.google.adk.modernization.refactor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.adk.modernization.analyzer.SourceIndex;
+import com.google.adk.modernization.llm.LLMClient;
+import com.google.adk.modernization.mapper.DDDMapper.BoundedContext;
+import com.google.adk.modernization.mapper.DDDMapper.MicroserviceCandidate;
+import com.google.adk.modernization.prompt.PromptManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LLMDrivenRefactorEngineTest {
+    private static final Pattern CLASS_NAME = Pattern.compile("class (\\w+) \\{");
+
+    /**
+     * Moves each class to the service package after a delay that is longest
+     * for the first files, so completion order differs from input order.
+     */
+    private static final class StubClient implements LLMClient {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        final AtomicInteger dependencyUpdates = new AtomicInteger();
+        final AtomicInteger plans = new AtomicInteger();
+        final Map<String, String> locations = new ConcurrentHashMap<>();
+        volatile String failing;
+
+        @Override
+        public CompletableFuture<String> complete(String prompt, Map<String, Object> parameters) {
+            return CompletableFuture.supplyAsync(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Matcher matcher = CLASS_NAME.matcher(prompt);
+                    matcher.find();
+                    String name = matcher.group(1);
+                    Thread.sleep(name.equals("Owner") ? 150 : 20);
+                    if ("dependency-update".equals(parameters.get(PROMPT_ID))) {
+                        dependencyUpdates.incrementAndGet();
+                        // Shaped like the dependency-update schema, with one malformed change
+                        return "{\"updates\":[{\"type\":\"API_CALL\",\"oldDependency\":\"clinic.Vet\","
+                            + "\"newMechanism\":\"REST client\",\"codeChanges\":[{\"file\":\"" + name + ".java\","
+                            + "\"changes\":[\"Vet vet; ->> VetClient vet;\", 42, \"no arrow\"]}]}]}";
+                    }
+                    if (name.equals(failing)) {
+                        throw new IllegalStateException("Provider error");
+                    }
+                    plans.incrementAndGet();
+                    return "{\"refactoring\":{\"newLocation\":\"" + locations.getOrDefault(name, "owners")
+                        + "/" + name + ".java\",\"steps\":"
+                        + "[{\"oldCode\":\"class " + name + "\",\"newCode\":\"public class " + name + "\"}]}}";
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    running.decrementAndGet();
+                }
+            });
+        }
+
+        @Override
+        public <T> CompletableFuture<T> complete(String prompt, Class<T> responseType, Map<String, Object> parameters) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final BoundedContext CONTEXT = new BoundedContext("Owners", "", Set.of("Owner"),
+        Set.of("Pet", "Visit"), Set.of("Address"), Set.of(), Set.of(), List.of());
+    private static final MicroserviceCandidate CANDIDATE = new MicroserviceCandidate("owner-service", CONTEXT,
+        Set.of(), Set.of(), Set.of(), List.of());
+
+    private static Path writeMonolith(Path dir) throws Exception {
+        Path monolith = Files.createDirectories(dir.resolve("monolith/clinic"));
+        for (String name : List.of("Owner", "Pet", "Visit", "Address")) {
+            Files.writeString(monolith.resolve(name + ".java"), "package clinic;\n\nclass " + name + " {}\n");
+        }
+        return dir.resolve("monolith");
+    }
+
+    private static LLMDrivenRefactorEngine engine(StubClient client, Path journalDirectory) {
+        return new LLMDrivenRefactorEngine(client, new PromptManager(true), new ObjectMapper(), new SourceIndex(), 2,
+            journalDirectory == null ? "" : journalDirectory.toString());
+    }
+
+    @Test
+    void refactorsFilesConcurrentlyInDeterministicOrder(@TempDir Path dir) throws Exception {
+        Path monolith = writeMonolith(dir);
+        StubClient client = new StubClient();
+        Path target = dir.resolve("service");
+        List<Path> files = engine(client, null).refactorCode(monolith, CANDIDATE, target);
+
+        assertEquals(List.of("Address", "Owner", "Pet", "Visit").stream()
+            .map(n -> target.resolve("owners/" + n + ".java"))
+            .toList(), files);
+        assertEquals("package owners;\n\npublic class Owner {}\n", Files.readString(files.get(1)));
+        assertEquals(2, client.peak.get(), "Two files are refactored at a time");
+        assertEquals(0, client.dependencyUpdates.get(), "Moves within the service are rewritten locally");
+    }
+
+    @Test
+    void resumesFromJournalAfterFailure(@TempDir Path dir) throws Exception {
+        Path monolith = writeMonolith(dir);
+        Path target = dir.resolve("service");
+        Path journals = dir.resolve("journals");
+
+        StubClient failing = new StubClient();
+        failing.failing = "Visit";
+        assertThrows(RuntimeException.class, () -> engine(failing, journals).refactorCode(monolith, CANDIDATE, target));
+        assertEquals(3, failing.plans.get());
+
+        StubClient resumed = new StubClient();
+        List<Path> files = engine(resumed, journals).refactorCode(monolith, CANDIDATE, target);
+        assertEquals(4, files.size());
+        assertEquals(1, resumed.plans.get(), "Only the failed file is planned again");
+
+        // Outputs changed on disk are rewritten from the journaled plan
+        Files.writeString(files.get(1), "tampered");
+        StubClient rerun = new StubClient();
+        engine(rerun, journals).refactorCode(monolith, CANDIDATE, target);
+        assertEquals(0, rerun.plans.get());
+        assertEquals("package owners;\n\npublic class Owner {}\n", Files.readString(files.get(1)));
+
+        // A changed source is planned again
+        Files.writeString(monolith.resolve("clinic/Pet.java"), "package clinic;\n\nclass Pet { int age; }\n");
+        StubClient changed = new StubClient();
+        engine(changed, journals).refactorCode(monolith, CANDIDATE, target);
+        assertEquals(1, changed.plans.get());
+    }
+
+    @Test
+    void rewritesJournaledOutputWhenAnotherFileMoves(@TempDir Path dir) throws Exception {
+        Path monolith = writeMonolith(dir);
+        Files.writeString(monolith.resolve("clinic/Owner.java"), "package clinic;\n\nclass Owner { Pet pet; }\n");
+        Path target = dir.resolve("service");
+        Path journals = dir.resolve("journals");
+        engine(new StubClient(), journals).refactorCode(monolith, CANDIDATE, target);
+        assertEquals("package owners;\n\npublic class Owner { Pet pet; }\n",
+            Files.readString(target.resolve("owners/Owner.java")));
+
+        // Pet is planned again into another package; Owner keeps its plan but not its output
+        Files.writeString(monolith.resolve("clinic/Pet.java"), "package clinic;\n\nclass Pet { int age; }\n");
+        StubClient moved = new StubClient();
+        moved.locations.put("Pet", "owners/model");
+        engine(moved, journals).refactorCode(monolith, CANDIDATE, target);
+
+        assertEquals(1, moved.plans.get());
+        assertTrue(Files.readString(target.resolve("owners/Owner.java")).contains("import owners.model.Pet;"),
+            Files.readString(target.resolve("owners/Owner.java")));
+    }
+
+    @Test
+    void leavesUnchangedOutputAloneAndDeletesStaleOutput(@TempDir Path dir) throws Exception {
+        Path monolith = writeMonolith(dir);
+        Path target = dir.resolve("service");
+        List<Path> files = engine(new StubClient(), null).refactorCode(monolith, CANDIDATE, target);
+        FileTime earlier = FileTime.from(Instant.now().minusSeconds(3600));
+        for (Path file : files) {
+            Files.setLastModifiedTime(file, earlier);
+        }
+
+        Files.delete(monolith.resolve("clinic/Visit.java"));
+        engine(new StubClient(), null).refactorCode(monolith, CANDIDATE, target);
+
+        assertEquals(earlier, Files.getLastModifiedTime(target.resolve("owners/Owner.java")));
+        assertFalse(Files.exists(target.resolve("owners/Visit.java")), "Output of a removed source is deleted");
+    }
+
+    @Test
+    void updatesReferencesToClassesLeftInTheMonolith(@TempDir Path dir) throws Exception {
+        Path monolith = writeMonolith(dir);
+        Files.writeString(monolith.resolve("clinic/Owner.java"), "package clinic;\n\nclass Owner { Vet vet; }\n");
+        Files.writeString(monolith.resolve("clinic/Vet.java"), "package clinic;\n\nclass Vet {}\n");
+        StubClient client = new StubClient();
+        Path target = dir.resolve("service");
+
+        List<Path> files = engine(client, null).refactorCode(monolith, CANDIDATE, target);
+
+        assertEquals(1, client.dependencyUpdates.get(), "Only Owner references a class left behind");
+        assertEquals("package owners;\n\npublic class Owner { VetClient vet; }\n", Files.readString(files.get(1)));
+    }
+}
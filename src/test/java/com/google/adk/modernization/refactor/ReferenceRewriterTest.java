@@ -0,0 +1,131 @@
+package com.google.adk.modernization.refactor;
+
+import com.google.adk.modernization.refactor.ReferenceRewriter.Rewrite;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReferenceRewriterTest {
+    private static final ReferenceRewriter REWRITER = new ReferenceRewriter(
+        Map.of(
+            "clinic.Owner", "com.petclinic.owners.Owner",
+            "clinic.Pet", "com.petclinic.owners.Pet",
+            "clinic.model.Address", "com.petclinic.owners.model.Address"),
+        Set.of("clinic.Owner", "clinic.Pet", "clinic.Vet", "clinic.model.Address", "clinic.billing.Invoice"));
+
+    @Test
+    void rewritesPackageImportsAndQualifiedReferences() {
+        String owner = """
+            package clinic;
+
+            import clinic.model.Address;
+            import static clinic.model.Address.parse;
+            import java.util.List;
+
+            public class Owner {
+                private List<Pet> pets;
+                private clinic.model.Address address;
+
+                Pet adopt() {
+                    return Pet.create(clinic.Pet.DEFAULT_NAME);
+                }
+            }
+            """;
+
+        Rewrite rewrite = REWRITER.rewrite(owner, "com.petclinic.owners");
+
+        assertEquals("""
+            package com.petclinic.owners;
+
+            import com.petclinic.owners.model.Address;
+            import static com.petclinic.owners.model.Address.parse;
+            import java.util.List;
+
+            public class Owner {
+                private List<Pet> pets;
+                private com.petclinic.owners.model.Address address;
+
+                Pet adopt() {
+                    return Pet.create(com.petclinic.owners.Pet.DEFAULT_NAME);
+                }
+            }
+            """, rewrite.content());
+        assertEquals(List.of(), rewrite.unresolved());
+    }
+
+    @Test
+    void importsTypesOfTheOldPackageAndReportsThoseLeftBehind() {
+        String address = """
+            package clinic.model;
+
+            import clinic.billing.Invoice;
+
+            public class Address {
+                Owner owner;
+                Invoice invoice;
+            }
+            """;
+        // Owner was in the file's package before and lives elsewhere now;
+        // Invoice stays in the monolith
+        ReferenceRewriter rewriter = new ReferenceRewriter(
+            Map.of("clinic.model.Owner", "com.petclinic.owners.Owner",
+                "clinic.model.Address", "com.petclinic.owners.model.Address"),
+            Set.of("clinic.model.Owner", "clinic.model.Address", "clinic.billing.Invoice"));
+
+        Rewrite rewrite = rewriter.rewrite(address, "com.petclinic.owners.model");
+
+        assertEquals("""
+            package com.petclinic.owners.model;
+
+            import clinic.billing.Invoice;
+            import com.petclinic.owners.Owner;
+
+            public class Address {
+                Owner owner;
+                Invoice invoice;
+            }
+            """, rewrite.content());
+        assertEquals(List.of("clinic.billing.Invoice"), rewrite.unresolved());
+    }
+
+    @Test
+    void reportsSamePackageTypesThatStayBehind() {
+        Rewrite rewrite = REWRITER.rewrite("package clinic;\n\nclass Pet { Vet vet; }\n", "com.petclinic.owners");
+
+        assertEquals("package com.petclinic.owners;\n\nclass Pet { Vet vet; }\n", rewrite.content());
+        assertEquals(List.of("clinic.Vet"), rewrite.unresolved());
+    }
+
+    @Test
+    void resolvesThroughTheOriginalPackageAfterAStepMovedTheFile() {
+        // A MOVE step already rewrote the package line
+        Rewrite rewrite = REWRITER.rewrite("package owners;\n\nclass Pet { Vet vet; Owner owner; }\n", "clinic",
+            "com.petclinic.owners");
+
+        assertEquals("package com.petclinic.owners;\n\nclass Pet { Vet vet; Owner owner; }\n", rewrite.content());
+        assertEquals(List.of("clinic.Vet"), rewrite.unresolved());
+    }
+
+    @Test
+    void fallsBackToImportsForUnparseableFiles() {
+        Rewrite rewrite = REWRITER.rewrite("package clinic;\nimport clinic.Vet;\nclass Pet {", "owners");
+
+        assertEquals("package clinic;\nimport clinic.Vet;\nclass Pet {", rewrite.content());
+        assertEquals(List.of("import clinic.Vet;"), rewrite.unresolved());
+    }
+
+    @Test
+    void derivesPackagesFromTargetLocations() {
+        Path root = Path.of("/tmp/service");
+
+        assertEquals("com.petclinic.owners", LLMDrivenRefactorEngine.packageFor(root,
+            root.resolve("src/main/java/com/petclinic/owners/Owner.java")).orElseThrow());
+        assertEquals("owners", LLMDrivenRefactorEngine.packageFor(root, root.resolve("owners/Owner.java")).orElseThrow());
+        assertTrue(LLMDrivenRefactorEngine.packageFor(root, root.resolve("my-service/Owner.java")).isEmpty());
+    }
+}